@@ -0,0 +1,267 @@
+package redis.embedded.gradle;
+
+import redis.embedded.Redis;
+import redis.embedded.RedisExecProvider;
+import redis.embedded.RedisServer;
+import redis.embedded.SentinelCluster;
+import redis.embedded.cluster.RedisCluster;
+import redis.embedded.config.RedisConfig;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.ports.ReservingPortProvider;
+import redis.embedded.shared.RedisFactory;
+import redis.embedded.util.OS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The {@code embeddedRedis} extension describing the topology shared by the test tasks of a project:
+ * <pre>
+ * {@code
+ * embeddedRedis {
+ *     topology = 'cluster'
+ *     masters = 3
+ *     replicas = 1
+ *     settings = ['maxmemory 64mb']
+ * }
+ * }
+ * </pre>
+ * Every topology runs on ports reserved across the JVMs of the host, so that concurrent builds do not collide.
+ */
+@SuppressWarnings("unused")
+public class EmbeddedRedisExtension {
+    public static final String SERVER = "server";
+    public static final String CLUSTER = "cluster";
+    public static final String SENTINEL = "sentinel";
+
+    private String topology = SERVER;
+    private int masters = 3;
+    private int replicas = 1;
+    private int sentinels = 1;
+    private int quorum = 1;
+    private List<String> groups = new ArrayList<>(Arrays.asList("master"));
+    private List<String> settings = new ArrayList<>();
+    private String executable;
+    private long idleTimeout = 0;
+    private String propertyPrefix = "embedded.redis";
+
+    public String getTopology() {
+        return topology;
+    }
+
+    /**
+     * @param topology one of {@code server}, {@code cluster} or {@code sentinel}
+     */
+    public void setTopology(String topology) {
+        this.topology = topology;
+    }
+
+    public int getMasters() {
+        return masters;
+    }
+
+    /**
+     * @param masters number of masters of a {@code cluster}
+     */
+    public void setMasters(int masters) {
+        this.masters = masters;
+    }
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @param replicas number of replicas per master of a {@code cluster} or per group of a {@code sentinel} topology
+     */
+    public void setReplicas(int replicas) {
+        this.replicas = replicas;
+    }
+
+    public int getSentinels() {
+        return sentinels;
+    }
+
+    public void setSentinels(int sentinels) {
+        this.sentinels = sentinels;
+    }
+
+    public int getQuorum() {
+        return quorum;
+    }
+
+    public void setQuorum(int quorum) {
+        this.quorum = quorum;
+    }
+
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @param groups master names of the replication groups of a {@code sentinel} topology
+     */
+    public void setGroups(List<String> groups) {
+        this.groups = groups;
+    }
+
+    public List<String> getSettings() {
+        return settings;
+    }
+
+    /**
+     * @param settings redis.conf lines applied to every server of the topology. A {@code sentinel} topology only
+     *                 takes lines of a parameter and its value, each parameter at most once, as given to
+     *                 {@code CONFIG SET}
+     */
+    public void setSettings(List<String> settings) {
+        this.settings = settings;
+    }
+
+    public String getExecutable() {
+        return executable;
+    }
+
+    /**
+     * @param executable path of the redis-server executable, replacing the default ones on every OS
+     */
+    public void setExecutable(String executable) {
+        this.executable = executable;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout milliseconds the topology is kept running once no test task uses it, so that test tasks
+     *                    of other projects can reuse it
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public String getPropertyPrefix() {
+        return propertyPrefix;
+    }
+
+    public void setPropertyPrefix(String propertyPrefix) {
+        this.propertyPrefix = propertyPrefix;
+    }
+
+    /**
+     * @return a key identical for every extension describing the same topology
+     */
+    String key() {
+        switch (topology) {
+            case SERVER:
+                return serverBuilder().port(new ReservingPortProvider()).fingerprint();
+            case CLUSTER:
+                return clusterBuilder().fingerprint();
+            case SENTINEL:
+                return "SentinelCluster{" +
+                        "sentinels=" + sentinels +
+                        ", quorum=" + quorum +
+                        ", groups=" + groups +
+                        ", replicas=" + replicas +
+                        ", server=" + executableBuilder().fingerprint() +
+                        ", config=" + settingsConfig() +
+                        '}';
+            default:
+                throw new IllegalArgumentException("Unknown embedded redis topology: " + topology);
+        }
+    }
+
+    RedisFactory<Redis> factory() {
+        return new RedisFactory<Redis>() {
+            @Override
+            public Redis create() {
+                switch (topology) {
+                    case SERVER:
+                        return serverBuilder().port(new ReservingPortProvider()).build();
+                    case CLUSTER:
+                        return clusterBuilder().build();
+                    case SENTINEL:
+                        return sentinelBuilder().build();
+                    default:
+                        throw new IllegalArgumentException("Unknown embedded redis topology: " + topology);
+                }
+            }
+        };
+    }
+
+    private RedisServer.Builder serverBuilder() {
+        RedisServer.Builder builder = executableBuilder();
+        for (String setting : settings) {
+            builder.setting(setting);
+        }
+        return builder;
+    }
+
+    private RedisServer.Builder executableBuilder() {
+        RedisServer.Builder builder = new RedisServer.Builder();
+        if (executable != null) {
+            RedisExecProvider provider = RedisExecProvider.build();
+            for (OS os : OS.values()) {
+                provider.override(os, executable);
+            }
+            builder.redisExecProvider(provider);
+        }
+        return builder;
+    }
+
+    /**
+     * The sentinel cluster builds its servers from a reset server builder, which drops the settings, so they are
+     * given as a configuration instead.
+     *
+     * @return the settings as a configuration
+     * @throws IllegalArgumentException if a setting cannot be expressed as a configuration parameter
+     */
+    RedisConfig settingsConfig() {
+        RedisConfig.Builder config = new RedisConfig.Builder();
+        Set<String> parameters = new HashSet<>();
+        for (String setting : settings) {
+            String[] parameter = setting.trim().split("\\s+", 2);
+            if (parameter.length < 2) {
+                throw new IllegalArgumentException("Setting '" + setting + "' of a " + SENTINEL
+                        + " topology must be a parameter followed by its value");
+            }
+            if (!parameters.add(parameter[0].toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Parameter " + parameter[0] + " is set more than once, which a "
+                        + SENTINEL + " topology does not support");
+            }
+            try {
+                config.set(parameter[0], parameter[1]);
+            } catch (RedisBuildingException e) {
+                throw new IllegalArgumentException("Setting '" + setting + "' is not supported by a " + SENTINEL
+                        + " topology: " + e.getMessage(), e);
+            }
+        }
+        return config.build();
+    }
+
+    private RedisCluster.Builder clusterBuilder() {
+        return new RedisCluster.Builder()
+                .withServerBuilder(serverBuilder())
+                .serverPorts(new ReservingPortProvider())
+                .numOfMasters(masters)
+                .numOfReplicates(replicas);
+    }
+
+    private SentinelCluster.Builder sentinelBuilder() {
+        SentinelCluster.Builder builder = new SentinelCluster.Builder()
+                .withServerBuilder(executableBuilder())
+                .config(settingsConfig())
+                .reserving()
+                .sentinelCount(sentinels)
+                .quorumSize(quorum);
+        for (String group : groups) {
+            builder.replicationGroup(group, replicas);
+        }
+        return builder;
+    }
+}
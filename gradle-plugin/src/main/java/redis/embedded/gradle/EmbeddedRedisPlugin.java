@@ -0,0 +1,52 @@
+package redis.embedded.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.testing.Test;
+
+import java.util.Map;
+
+/**
+ * Shares one embedded redis topology between all the test workers of a build.
+ * <p>
+ * The topology described by the {@code embeddedRedis} extension is started once before the test tasks of the
+ * project, its ports are published to every forked test worker through system properties (see
+ * {@link StartEmbeddedRedis}), and it is released once every test task of the project is done, even if one fails.
+ */
+public class EmbeddedRedisPlugin implements Plugin<Project> {
+    public static final String EXTENSION_NAME = "embeddedRedis";
+    public static final String START_TASK_NAME = "startEmbeddedRedis";
+    public static final String STOP_TASK_NAME = "stopEmbeddedRedis";
+
+    @Override
+    public void apply(Project project) {
+        project.getExtensions().create(EXTENSION_NAME, EmbeddedRedisExtension.class);
+
+        final StartEmbeddedRedis start = project.getTasks().create(START_TASK_NAME, StartEmbeddedRedis.class);
+        start.setDescription("Starts the embedded redis topology used by the tests.");
+
+        final StopEmbeddedRedis stop = project.getTasks().create(STOP_TASK_NAME, StopEmbeddedRedis.class);
+        stop.setDescription("Stops the embedded redis topology used by the tests.");
+        stop.setStartTask(start);
+        start.finalizedBy(stop);
+
+        project.getTasks().withType(Test.class, new Action<Test>() {
+            @Override
+            public void execute(final Test test) {
+                test.dependsOn(start);
+                // A finalizer runs after the first task it finalizes, so it is ordered after all of them instead
+                stop.mustRunAfter(test);
+                test.doFirst(new Action<Task>() {
+                    @Override
+                    public void execute(Task task) {
+                        for (Map.Entry<String, String> property : start.systemProperties().entrySet()) {
+                            test.systemProperty(property.getKey(), property.getValue());
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
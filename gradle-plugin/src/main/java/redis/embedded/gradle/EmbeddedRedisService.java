@@ -0,0 +1,46 @@
+package redis.embedded.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import redis.embedded.Redis;
+import redis.embedded.shared.SharedRedis;
+import redis.embedded.shared.SharedRedisRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the embedded topologies of a build. There is one service per build, shared by all its projects, so that
+ * test tasks describing the same topology use the same running instance.
+ * <p>
+ * A topology is stopped once released by the stop task of every project using it and its {@code idleTimeout} has
+ * elapsed, even after the end of the build in a daemon. A JVM exiting first stops it through the shutdown hook of the
+ * embedded instances, and the topologies left running by a cancelled build are stopped by the next build of the daemon.
+ */
+class EmbeddedRedisService {
+    private static final String SERVICE_PROPERTY = "embeddedRedisService";
+
+    /**
+     * The service of the last build of this daemon
+     */
+    private static EmbeddedRedisService current;
+
+    private final SharedRedisRegistry registry = new SharedRedisRegistry(0, TimeUnit.MILLISECONDS);
+
+    static synchronized EmbeddedRedisService of(Project project) {
+        ExtraPropertiesExtension extra = project.getRootProject().getExtensions().getExtraProperties();
+        if (!extra.has(SERVICE_PROPERTY)) {
+            if (current != null) {
+                // A daemon runs one build at a time, so the previous one is over
+                current.registry.stopAll();
+            }
+            current = new EmbeddedRedisService();
+            extra.set(SERVICE_PROPERTY, current);
+        }
+        return (EmbeddedRedisService) extra.get(SERVICE_PROPERTY);
+    }
+
+    SharedRedis<Redis> acquire(EmbeddedRedisExtension extension) {
+        registry.idleTimeout(extension.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        return registry.acquire(extension.key(), extension.factory());
+    }
+}
@@ -0,0 +1,78 @@
+package redis.embedded.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.TaskAction;
+import redis.embedded.Redis;
+import redis.embedded.SentinelCluster;
+import redis.embedded.shared.SharedRedis;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the topology of the {@code embeddedRedis} extension, or joins it if it is already running for this build,
+ * and computes the system properties published to the test workers:
+ * <ul>
+ * <li>{@code <prefix>.ports} and {@code <prefix>.hosts}: every port of the topology</li>
+ * <li>{@code <prefix>.port}: the port of a {@code server} topology</li>
+ * <li>{@code <prefix>.sentinel.ports}, {@code <prefix>.sentinel.hosts} and {@code <prefix>.masters}: sentinels and
+ * master names of a {@code sentinel} topology</li>
+ * </ul>
+ * All ports are comma separated, hosts being {@code localhost:port}.
+ */
+public class StartEmbeddedRedis extends DefaultTask {
+    private SharedRedis<Redis> shared;
+
+    @TaskAction
+    public void start() {
+        if (shared == null) {
+            EmbeddedRedisExtension extension = getProject().getExtensions().getByType(EmbeddedRedisExtension.class);
+            shared = EmbeddedRedisService.of(getProject()).acquire(extension);
+            getLogger().info("Embedded redis running on ports {}", shared.get().ports());
+        }
+    }
+
+    void release() {
+        if (shared != null) {
+            shared.release();
+            shared = null;
+        }
+    }
+
+    Map<String, String> systemProperties() {
+        if (shared == null) {
+            return new LinkedHashMap<>();
+        }
+        return systemProperties(getProject().getExtensions().getByType(EmbeddedRedisExtension.class), shared.get());
+    }
+
+    static Map<String, String> systemProperties(EmbeddedRedisExtension extension, Redis redis) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        String prefix = extension.getPropertyPrefix();
+
+        properties.put(prefix + ".ports", join(redis.ports(), ""));
+        properties.put(prefix + ".hosts", join(redis.ports(), "localhost:"));
+        if (EmbeddedRedisExtension.SERVER.equals(extension.getTopology())) {
+            properties.put(prefix + ".port", redis.ports().get(0).toString());
+        }
+        if (redis instanceof SentinelCluster) {
+            SentinelCluster sentinel = (SentinelCluster) redis;
+            properties.put(prefix + ".sentinel.ports", join(sentinel.sentinelPorts(), ""));
+            properties.put(prefix + ".sentinel.hosts", join(sentinel.sentinelPorts(), "localhost:"));
+            properties.put(prefix + ".masters", join(extension.getGroups(), ""));
+        }
+        return properties;
+    }
+
+    private static String join(List<?> values, String itemPrefix) {
+        StringBuilder joined = new StringBuilder();
+        for (Object value : values) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(itemPrefix).append(value);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,21 @@
+package redis.embedded.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Releases the topology started by {@link StartEmbeddedRedis}, which stops it once no other test task of the build
+ * uses it and the {@code idleTimeout} of the extension has elapsed.
+ */
+public class StopEmbeddedRedis extends DefaultTask {
+    private StartEmbeddedRedis startTask;
+
+    void setStartTask(StartEmbeddedRedis startTask) {
+        this.startTask = startTask;
+    }
+
+    @TaskAction
+    public void stop() {
+        startTask.release();
+    }
+}
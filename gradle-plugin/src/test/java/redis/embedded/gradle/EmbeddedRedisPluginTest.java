@@ -0,0 +1,107 @@
+package redis.embedded.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import redis.embedded.Redis;
+import redis.embedded.SentinelCluster;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class EmbeddedRedisPluginTest {
+
+    private Project project;
+    private Task start;
+    private Task stop;
+
+    @Before
+    public void setUp() {
+        project = ProjectBuilder.builder().build();
+        project.getPluginManager().apply(EmbeddedRedisPlugin.class);
+        start = project.getTasks().getByName(EmbeddedRedisPlugin.START_TASK_NAME);
+        stop = project.getTasks().getByName(EmbeddedRedisPlugin.STOP_TASK_NAME);
+    }
+
+    @org.junit.Test
+    public void everyTestTaskShouldStartTheTopology() {
+        Test test = project.getTasks().create("test", Test.class);
+        Test integrationTest = project.getTasks().create("integrationTest", Test.class);
+
+        assertThat(test.getDependsOn(), hasItem((Object) start));
+        assertThat(integrationTest.getDependsOn(), hasItem((Object) start));
+    }
+
+    @org.junit.Test
+    public void topologyShouldBeStoppedAfterEveryTestTask() {
+        Test test = project.getTasks().create("test", Test.class);
+        Test integrationTest = project.getTasks().create("integrationTest", Test.class);
+
+        Set<? extends Task> finalizers = start.getFinalizedBy().getDependencies(start);
+        Set<? extends Task> before = stop.getMustRunAfter().getDependencies(stop);
+
+        assertThat(finalizers, contains(stop));
+        assertThat(before, containsInAnyOrder((Task) test, integrationTest));
+        assertThat(test.getFinalizedBy().getDependencies(test), is(empty()));
+    }
+
+    @org.junit.Test
+    public void sentinelTopologyShouldKeepSettingsAsConfig() {
+        EmbeddedRedisExtension extension = new EmbeddedRedisExtension();
+        extension.setTopology(EmbeddedRedisExtension.SENTINEL);
+        extension.setSettings(Arrays.asList("maxmemory 64mb", "maxmemory-policy allkeys-lru"));
+        String key = extension.key();
+
+        assertThat(extension.settingsConfig().configLines(), contains("maxmemory 64mb", "maxmemory-policy allkeys-lru"));
+        extension.setSettings(Arrays.asList("maxmemory 32mb"));
+        assertThat(extension.key(), not(equalTo(key)));
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void sentinelTopologyShouldRejectRepeatedSettings() {
+        EmbeddedRedisExtension extension = new EmbeddedRedisExtension();
+        extension.setTopology(EmbeddedRedisExtension.SENTINEL);
+        extension.setSettings(Arrays.asList("save 900 1", "save 300 10"));
+
+        extension.key();
+    }
+
+    @org.junit.Test
+    public void serverShouldPublishItsPort() {
+        EmbeddedRedisExtension extension = new EmbeddedRedisExtension();
+        Redis redis = mock(Redis.class);
+        when(redis.ports()).thenReturn(Arrays.asList(20001));
+
+        Map<String, String> properties = StartEmbeddedRedis.systemProperties(extension, redis);
+
+        assertThat(properties, hasEntry("embedded.redis.ports", "20001"));
+        assertThat(properties, hasEntry("embedded.redis.hosts", "localhost:20001"));
+        assertThat(properties, hasEntry("embedded.redis.port", "20001"));
+    }
+
+    @org.junit.Test
+    public void sentinelTopologyShouldPublishSentinelsAndMasters() {
+        EmbeddedRedisExtension extension = new EmbeddedRedisExtension();
+        extension.setTopology(EmbeddedRedisExtension.SENTINEL);
+        extension.setGroups(Arrays.asList("cache", "sessions"));
+        extension.setPropertyPrefix("redis");
+        SentinelCluster redis = mock(SentinelCluster.class);
+        when(redis.ports()).thenReturn(Arrays.asList(26379, 26380, 20001, 20002));
+        when(redis.sentinelPorts()).thenReturn(Arrays.asList(26379, 26380));
+
+        Map<String, String> properties = StartEmbeddedRedis.systemProperties(extension, redis);
+
+        assertThat(properties, hasEntry("redis.ports", "26379,26380,20001,20002"));
+        assertThat(properties, hasEntry("redis.sentinel.ports", "26379,26380"));
+        assertThat(properties, hasEntry("redis.sentinel.hosts", "localhost:26379,localhost:26380"));
+        assertThat(properties, hasEntry("redis.masters", "cache,sessions"));
+        assertThat(properties, not(hasKey("redis.port")));
+    }
+}
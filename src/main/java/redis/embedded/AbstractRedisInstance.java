@@ -1,18 +1,76 @@
 package redis.embedded;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.embedded.affinity.Affinity;
 import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.ports.ReservingPortProvider;
+import redis.embedded.proc.Proc;
+import redis.embedded.proc.ProcessStats;
+import redis.embedded.reaper.OrphanReaper;
+import redis.embedded.reaper.PidFile;
+import redis.embedded.util.Instances;
+import redis.embedded.util.RawClient;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
-abstract class AbstractRedisInstance implements Redis {
+public abstract class AbstractRedisInstance implements Redis, Resettable {
+    static final long DEFAULT_STARTUP_TIMEOUT = 10000L;
+
+    private static final String BIND_FAILURE_PATTERN = ".*Creating Server TCP listening socket .*bind.*";
+    private static final String PORT_ARG = "--port";
+    private static final String PROCESS_ID_FIELD = "process_id:";
+    private static final long EXIT_POLL_INTERVAL = 10L;
+    static final String LOCAL_HOST = "127.0.0.1";
+    /**
+     * Name of the connections surviving {@link #reset()}
+     */
+    public static final String ADMIN_CLIENT_NAME = "embedded-redis-admin";
+
+    private static final ExecutorService EXIT_WATCHERS = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-exit-watcher-%d").build());
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRedisInstance.class);
+    /**
+     * The instances of this JVM started and not stopped, stopped by a shutdown hook if the JVM exits first
+     */
+    private static final Set<AbstractRedisInstance> LIVE_INSTANCES =
+            Collections.newSetFromMap(new ConcurrentHashMap<AbstractRedisInstance, Boolean>());
+    private static final AtomicBoolean TRACKING = new AtomicBoolean();
+
     List<String> args = Collections.emptyList();
+    private List<String> launchPrefix = Collections.emptyList();
     private volatile boolean active = false;
-    private Process redisProcess;
-    private final int port;
+    private volatile boolean paused = false;
+    private volatile long pid;
+    private volatile boolean stopRequested = false;
+    private volatile Integer exitCode;
+    private final List<ProcessExitListener> exitListeners = new CopyOnWriteArrayList<>();
+    private volatile Process redisProcess;
+    private volatile int port;
+    private PortProvider portProvider;
+    private long startupTimeout = DEFAULT_STARTUP_TIMEOUT;
+    private volatile StopPolicy stopPolicy = StopPolicy.DEFAULT;
+    private volatile PidFile pidFile;
 
     private LogsInputStream logsInput = new LogsInputStream();
 
@@ -20,6 +78,34 @@ abstract class AbstractRedisInstance implements Redis {
         this.port = port;
     }
 
+    /**
+     * When set, a port conflict at startup is recovered by restarting on the next port of this provider,
+     * until {@code startupTimeout} milliseconds have elapsed. A port reserved by a {@link ReservingPortProvider} is
+     * released once the instance is stopped, and is no longer reserved if it is started again.
+     */
+    void portConflictRecovery(PortProvider portProvider, long startupTimeout) {
+        this.portProvider = portProvider;
+        this.startupTimeout = startupTimeout;
+    }
+
+    /**
+     * @param launchPrefix command the redis command line is given to, e.g. to set the CPU affinity of the process
+     */
+    void launchPrefix(List<String> launchPrefix) {
+        this.launchPrefix = launchPrefix;
+    }
+
+    /**
+     * @param stopPolicy how {@link #stop()} stops this instance
+     */
+    public void stopPolicy(StopPolicy stopPolicy) {
+        this.stopPolicy = stopPolicy;
+    }
+
+    public StopPolicy stopPolicy() {
+        return stopPolicy;
+    }
+
     @Override
     public boolean isActive() {
         return active;
@@ -27,41 +113,98 @@ abstract class AbstractRedisInstance implements Redis {
 
     @Override
     public synchronized void start() throws EmbeddedRedisException {
+        start(true);
+    }
+
+    /**
+     * Start again on the port this instance last ran on, failing instead of moving to another port of its provider
+     * if that port is taken, for instances other processes know the port of, like a cluster node.
+     */
+    public synchronized void startOnSamePort() throws EmbeddedRedisException {
+        start(false);
+    }
+
+    private void start(boolean recoverPortConflict) {
         if (active) {
             throw new EmbeddedRedisException("This redis server instance is already running...");
         }
+        startTracking();
         try {
-            redisProcess = createRedisProcessBuilder().start();
-
-            awaitRedisServerReady();
+            final long deadline = System.currentTimeMillis() + startupTimeout;
+            while (!startProcess()) {
+                if (!recoverPortConflict || portProvider == null || System.currentTimeMillis() > deadline
+                        || !portProvider.hasNext()) {
+                    throw new EmbeddedRedisException("Can't start redis server. Port " + port + " is already in use.");
+                }
+                changePort(portProvider.next());
+            }
 
             active = true;
+            paused = false;
+            stopRequested = false;
+            exitCode = null;
+            pid = 0;
+            watchExit(redisProcess);
+            track();
         } catch (IOException | InterruptedException e) {
             throw new EmbeddedRedisException("Failed to start Redis instance", e);
         }
     }
 
+    /**
+     * @return false if redis could not bind its port, true once it is ready
+     */
+    private boolean startProcess() throws IOException, InterruptedException {
+        redisProcess = createRedisProcessBuilder().start();
+        if (awaitRedisServerReady()) {
+            return true;
+        }
+        redisProcess.destroy();
+        redisProcess.waitFor();
+        return false;
+    }
+
+    private void changePort(int newPort) {
+        releasePort();
+
+        List<String> newArgs = new ArrayList<>(args);
+        int portIndex = newArgs.indexOf(PORT_ARG) + 1;
+        if (portIndex == 0) {
+            throw new EmbeddedRedisException("Can't change the port of a redis instance started without " + PORT_ARG);
+        }
+        newArgs.set(portIndex, Integer.toString(newPort));
+
+        args = newArgs;
+        port = newPort;
+    }
+
     @Override
     public InputStream errors() {
         return logsInput;
     }
 
-    private void awaitRedisServerReady() throws IOException, InterruptedException {
+    private boolean awaitRedisServerReady() throws IOException, InterruptedException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(redisProcess.getInputStream()));
         try {
             // Wait 200ms to be sure redis have started (it can takes some time and that would cause
             // the exception below to throw.
             Thread.sleep(200);
 
+            boolean bindFailure = false;
             String outputLine;
             do {
                 outputLine = reader.readLine();
                 if (outputLine == null) {
+                    if (bindFailure) {
+                        return false;
+                    }
                     //Something goes wrong. Stream is ended before server was activated.
-                    throw new RuntimeException("Can't start redis server. Check logs for details.");
+                    throw new EmbeddedRedisException("Can't start redis server. Check logs for details.");
                 }
                 logsInput.appendLine(outputLine);
+                bindFailure |= outputLine.matches(BIND_FAILURE_PATTERN);
             } while (!outputLine.matches(redisReadyPattern()));
+            return true;
         } finally {
             closeQuietly(reader);
         }
@@ -71,17 +214,90 @@ abstract class AbstractRedisInstance implements Redis {
 
     private ProcessBuilder createRedisProcessBuilder() {
         File executable = new File(args.get(0));
-        ProcessBuilder pb = new ProcessBuilder(args);
+        List<String> command = new ArrayList<>(launchPrefix);
+        command.addAll(args);
+        ProcessBuilder pb = new ProcessBuilder(command);
         pb.directory(executable.getParentFile());
         return pb;
     }
 
+    /**
+     * Stop this instance following its {@link StopPolicy}, {@link StopPolicy#DEFAULT} unless set otherwise.
+     */
     @Override
-    public synchronized void stop() throws EmbeddedRedisException {
+    public void stop() throws EmbeddedRedisException {
+        stop(stopPolicy);
+    }
+
+    /**
+     * Stop this instance: ask the process to exit as the policy says, wait for it until the timeout of the policy,
+     * then kill it or fail.
+     *
+     * @throws EmbeddedRedisException if the process is still running after the timeout and the policy does not
+     *                                escalate, the instance being still active until the process exits, which is
+     *                                then not reported as a crash
+     */
+    public synchronized void stop(StopPolicy policy) throws EmbeddedRedisException {
         if (active) {
-            redisProcess.destroy();
-            tryWaitFor();
+            if (paused) {
+                // A stopped process would not handle the termination signal
+                resume();
+            }
+            stopRequested = true;
+            requestExit(policy.mode());
+
+            if (!awaitExit(System.currentTimeMillis() + policy.timeout(TimeUnit.MILLISECONDS))) {
+                if (!policy.escalates()) {
+                    throw new EmbeddedRedisException("Redis instance on port " + port + " did not stop within "
+                            + policy.timeout(TimeUnit.MILLISECONDS) + "ms");
+                }
+                signal("KILL");
+                tryWaitFor();
+            }
             active = false;
+            untrack();
+            releasePort();
+        }
+    }
+
+    private void releasePort() {
+        if (portProvider instanceof ReservingPortProvider) {
+            ((ReservingPortProvider) portProvider).release(port);
+        }
+    }
+
+    private void requestExit(StopPolicy.Mode mode) {
+        if (mode == StopPolicy.Mode.DESTROY) {
+            redisProcess.destroy();
+            return;
+        }
+        try (RawClient client = new RawClient(LOCAL_HOST, port)) {
+            // On success, redis exits without replying
+            client.send(Protocol.Command.SHUTDOWN, mode == StopPolicy.Mode.SHUTDOWN_SAVE ? "SAVE" : "NOSAVE");
+        } catch (JedisConnectionException e) {
+            redisProcess.destroy();
+        }
+    }
+
+    /**
+     * @return whether the process exited before the deadline
+     */
+    private boolean awaitExit(long deadline) {
+        while (true) {
+            try {
+                redisProcess.exitValue();
+                return true;
+            } catch (IllegalThreadStateException running) {
+                if (System.currentTimeMillis() > deadline) {
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(EXIT_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbeddedRedisException("Interrupted while stopping redis instance", e);
+            }
         }
     }
 
@@ -93,6 +309,242 @@ abstract class AbstractRedisInstance implements Redis {
         }
     }
 
+    /**
+     * @return the exit code of the redis process if it exited without {@link #stop()} being called, e.g. after a
+     * crash, or {@code null}
+     */
+    public Integer exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Be notified when the redis process exits without {@link #stop()} being called, the instance being no longer
+     * active. The listener is called from a watcher thread.
+     */
+    public void addExitListener(ProcessExitListener listener) {
+        exitListeners.add(listener);
+    }
+
+    public void removeExitListener(ProcessExitListener listener) {
+        exitListeners.remove(listener);
+    }
+
+    /**
+     * On the first start in this JVM, reap the processes orphaned by crashed JVMs and register the shutdown hook
+     * stopping the instances left running.
+     */
+    private static void startTracking() {
+        if (!TRACKING.compareAndSet(false, true)) {
+            return;
+        }
+        if (!Boolean.getBoolean(OrphanReaper.DISABLED_PROPERTY)) {
+            try {
+                new OrphanReaper().reap();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not reap orphaned redis processes", e);
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Instances.stopAll(new ArrayList<>(LIVE_INSTANCES), null);
+            }
+        }, "embedded-redis-shutdown"));
+    }
+
+    private void track() {
+        LIVE_INSTANCES.add(this);
+        try {
+            // Also known before a stop needs to kill an unresponsive process
+            pidFile = PidFile.write(OrphanReaper.defaultDirectory(), pid(), Affinity.jvmPid(), port,
+                    new File(args.get(0)).getName());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis instance on port " + port + " cannot be reaped if this JVM crashes: " + e.getMessage());
+        }
+    }
+
+    private void untrack() {
+        LIVE_INSTANCES.remove(this);
+        if (pidFile != null) {
+            pidFile.delete();
+            pidFile = null;
+        }
+    }
+
+    private void watchExit(final Process process) {
+        EXIT_WATCHERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    processExited(process, process.waitFor());
+                } catch (InterruptedException ignored) {
+                    // only happens when the JVM shuts down
+                }
+            }
+        });
+    }
+
+    private void processExited(Process process, int code) {
+        synchronized (this) {
+            if (process != redisProcess) {
+                return;
+            }
+            active = false;
+            paused = false;
+            untrack();
+            if (stopRequested) {
+                // Requested, even when the process only exits after the stop timed out
+                releasePort();
+                return;
+            }
+            exitCode = code;
+        }
+        for (ProcessExitListener listener : exitListeners) {
+            listener.exited(this, code);
+        }
+    }
+
+    /**
+     * @return the id of the redis process, as reported by {@code INFO server}
+     */
+    public synchronized long pid() {
+        if (pid == 0) {
+            try (Jedis jedis = adminConnection()) {
+                for (String line : jedis.info("server").split("\r?\n")) {
+                    if (line.startsWith(PROCESS_ID_FIELD)) {
+                        pid = Long.parseLong(line.substring(PROCESS_ID_FIELD.length()).trim());
+                    }
+                }
+            }
+            if (pid == 0) {
+                throw new EmbeddedRedisException("Could not find the process id of the redis instance on port " + port);
+            }
+        }
+        return pid;
+    }
+
+    /**
+     * @return the resource usage of the redis process as seen by the operating system. Only available on Linux.
+     * @see Proc#sampleAll(Redis)
+     */
+    public ProcessStats processStats() {
+        return Proc.sample(pid());
+    }
+
+    /**
+     * Freeze the redis process with {@code SIGSTOP}: connections are accepted by the kernel but never served,
+     * until {@link #resume()}. Only available on Unix-like systems.
+     */
+    public synchronized void pause() throws EmbeddedRedisException {
+        if (!paused) {
+            signal("STOP");
+            paused = true;
+        }
+    }
+
+    /**
+     * Resume a redis process frozen by {@link #pause()} with {@code SIGCONT}.
+     */
+    public synchronized void resume() throws EmbeddedRedisException {
+        if (paused) {
+            signal("CONT");
+            paused = false;
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Kill the redis process with {@code SIGKILL}, leaving it no chance to save or close its connections.
+     * The instance can be started again on the same port. Only available on Unix-like systems.
+     */
+    public synchronized void crash() throws EmbeddedRedisException {
+        if (active) {
+            signal("KILL");
+            tryWaitFor();
+            active = false;
+            paused = false;
+            untrack();
+        }
+    }
+
+    /**
+     * Stall the event loop of the redis process with {@code DEBUG SLEEP}. This method returns without waiting for
+     * the stall to be over.
+     */
+    public void debugSleep(long millis) throws EmbeddedRedisException {
+        try (RawClient client = new RawClient(LOCAL_HOST, port)) {
+            client.send(Protocol.Command.DEBUG, "SLEEP", String.format(Locale.ROOT, "%.3f", millis / 1000.0));
+        }
+    }
+
+    /**
+     * Suspend every normal and pub/sub client, replication included, with {@code CLIENT PAUSE}.
+     */
+    public void clientPause(long millis) throws EmbeddedRedisException {
+        try (RawClient client = new RawClient(LOCAL_HOST, port)) {
+            client.status(Protocol.Command.CLIENT, "PAUSE", Long.toString(millis));
+        }
+    }
+
+    private void signal(String signal) {
+        if (!active) {
+            throw new EmbeddedRedisException("This redis instance is not running.");
+        }
+        String processId = Long.toString(pid());
+        try {
+            Process kill = new ProcessBuilder("kill", "-" + signal, processId).redirectErrorStream(true).start();
+            if (kill.waitFor() != 0) {
+                throw new EmbeddedRedisException("Could not send SIG" + signal + " to redis process " + processId);
+            }
+        } catch (IOException e) {
+            throw new EmbeddedRedisException("Could not send SIG" + signal + " to redis process " + processId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException("Interrupted while sending SIG" + signal + " to redis process " + processId, e);
+        }
+    }
+
+    /**
+     * @return a new connection to this instance, named as an admin client so that it survives {@link #reset()}
+     */
+    Jedis adminConnection() {
+        if (!active) {
+            throw new EmbeddedRedisException("This redis instance is not running.");
+        }
+        Jedis jedis = new Jedis(LOCAL_HOST, port);
+        jedis.clientSetname(ADMIN_CLIENT_NAME);
+        return jedis;
+    }
+
+    /**
+     * Kill every normal and pub/sub client, replication links and admin connections being kept.
+     */
+    void killClients(Jedis jedis) {
+        for (String client : jedis.clientList().split("\n")) {
+            Map<String, String> fields = new HashMap<>();
+            for (String field : client.trim().split(" ")) {
+                int separator = field.indexOf('=');
+                if (separator > 0) {
+                    fields.put(field.substring(0, separator), field.substring(separator + 1));
+                }
+            }
+
+            String flags = fields.get("flags");
+            if (fields.get("addr") == null || ADMIN_CLIENT_NAME.equals(fields.get("name"))
+                    || flags == null || flags.contains("S") || flags.contains("M")) {
+                continue;
+            }
+            try {
+                jedis.clientKill(fields.get("addr"));
+            } catch (JedisDataException ignored) {
+                // the client disconnected in the meantime
+            }
+        }
+    }
+
     @Override
     public List<Integer> ports() {
         return Collections.singletonList(port);
@@ -0,0 +1,163 @@
+package redis.embedded;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.util.RawClient;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A copy of the dataset of a running redis server, taken with {@code DUMP} and put back with {@code RESTORE}.
+ * <p>
+ * The dataset is kept in the memory of the JVM, keys being dumped and restored in pipelined batches so that rolling
+ * back to a checkpoint is much faster than loading the data again from scratch. Keys keep the time to live they had
+ * when the checkpoint was captured.
+ */
+public class Checkpoint {
+    private static final int BATCH_SIZE = 1000;
+    private static final int BULK_TIMEOUT = 60000;
+    private static final String KEYSPACE_PREFIX = "db";
+
+    private final Map<Integer, List<Entry>> databases;
+
+    private Checkpoint(Map<Integer, List<Entry>> databases) {
+        this.databases = databases;
+    }
+
+    /**
+     * Capture the dataset of every database of the server.
+     */
+    public static Checkpoint capture(String host, int port) {
+        try (Jedis jedis = new Jedis(host, port, BULK_TIMEOUT)) {
+            Map<Integer, List<Entry>> databases = new TreeMap<>();
+            for (Integer database : nonEmptyDatabases(jedis)) {
+                jedis.select(database);
+                databases.put(database, dumpDatabase(jedis));
+            }
+            return new Checkpoint(databases);
+        }
+    }
+
+    /**
+     * Replace the dataset of the server with the one of this checkpoint. The server must be a master.
+     */
+    public void restore(String host, int port) {
+        try (RawClient client = new RawClient(host, port)) {
+            client.setSoTimeout(BULK_TIMEOUT);
+            client.status(Protocol.Command.FLUSHALL);
+            for (Map.Entry<Integer, List<Entry>> database : databases.entrySet()) {
+                client.status(Protocol.Command.SELECT, database.getKey().toString());
+                restoreDatabase(client, database.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys of this checkpoint
+     */
+    public int size() {
+        int size = 0;
+        for (List<Entry> entries : databases.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    private static List<Integer> nonEmptyDatabases(Jedis jedis) {
+        List<Integer> databases = new ArrayList<>();
+        for (String line : jedis.info("keyspace").split("\r\n")) {
+            if (line.startsWith(KEYSPACE_PREFIX)) {
+                databases.add(Integer.parseInt(line.substring(KEYSPACE_PREFIX.length(), line.indexOf(':'))));
+            }
+        }
+        return databases;
+    }
+
+    private static List<Entry> dumpDatabase(Jedis jedis) {
+        List<Entry> entries = new ArrayList<>();
+        Set<ByteBuffer> seen = new HashSet<>();
+        ScanParams params = new ScanParams().count(BATCH_SIZE);
+        byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+        do {
+            ScanResult<byte[]> scan = jedis.scan(cursor, params);
+            // SCAN may return a key more than once, which RESTORE would then reject
+            List<byte[]> keys = new ArrayList<>();
+            for (byte[] key : scan.getResult()) {
+                if (seen.add(ByteBuffer.wrap(key))) {
+                    keys.add(key);
+                }
+            }
+            entries.addAll(dumpKeys(jedis, keys));
+            cursor = scan.getCursorAsBytes();
+        } while (!Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY));
+        return entries;
+    }
+
+    private static List<Entry> dumpKeys(Jedis jedis, List<byte[]> keys) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<byte[]>> dumps = new ArrayList<>(keys.size());
+        List<Response<Long>> ttls = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            ttls.add(pipeline.pttl(key));
+            dumps.add(pipeline.dump(key));
+        }
+        pipeline.sync();
+
+        List<Entry> entries = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] dump = dumps.get(i).get();
+            // the key may have expired in the meantime
+            if (dump != null) {
+                entries.add(new Entry(keys.get(i), dump, ttls.get(i).get()));
+            }
+        }
+        return entries;
+    }
+
+    private static void restoreDatabase(RawClient client, List<Entry> entries) {
+        int pending = 0;
+        for (Entry entry : entries) {
+            // The time to live in milliseconds may not fit in the int taken by Jedis
+            client.append(Protocol.Command.RESTORE, entry.key, Protocol.toByteArray(entry.ttl > 0 ? entry.ttl : 0),
+                    entry.dump);
+            if (++pending == BATCH_SIZE) {
+                checkReplies(client.replies());
+                pending = 0;
+            }
+        }
+        checkReplies(client.replies());
+    }
+
+    private static void checkReplies(List<Object> replies) {
+        for (Object reply : replies) {
+            if (reply instanceof Exception) {
+                throw new EmbeddedRedisException("Failed to restore checkpoint", (Exception) reply);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final byte[] key;
+        private final byte[] dump;
+        private final long ttl;
+
+        private Entry(byte[] key, byte[] dump, long ttl) {
+            this.key = key;
+            this.dump = dump;
+            this.ttl = ttl;
+        }
+    }
+}
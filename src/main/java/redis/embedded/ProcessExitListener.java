@@ -0,0 +1,12 @@
+package redis.embedded;
+
+/**
+ * Notified when the process of a redis instance exits on its own or is killed, rather than stopped with
+ * {@link Redis#stop()}.
+ *
+ * @see AbstractRedisInstance#addExitListener(ProcessExitListener)
+ */
+public interface ProcessExitListener {
+
+    void exited(AbstractRedisInstance instance, int exitCode);
+}
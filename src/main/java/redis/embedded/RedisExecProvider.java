@@ -10,6 +10,7 @@ import redis.embedded.util.OsArchitecture;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class RedisExecProvider {
 
@@ -75,6 +76,18 @@ public class RedisExecProvider {
         return copy;
     }
 
+    /**
+     * @return the executables of every OS and architecture, in a stable order
+     */
+    @Override
+    public String toString() {
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<OsArchitecture, String> e : executables.entrySet()) {
+            sorted.put(e.getKey().toString(), e.getValue());
+        }
+        return "RedisExecProvider" + sorted;
+    }
+
     private boolean fileExists(String executablePath) {
         return new File(executablePath).exists();
     }
@@ -2,16 +2,30 @@ package redis.embedded;
 
 import com.google.common.base.Preconditions;
 import com.google.common.io.Files;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.util.SafeEncoder;
+import redis.embedded.affinity.Affinity;
+import redis.embedded.affinity.CpuProvider;
+import redis.embedded.exceptions.EmbeddedRedisException;
 import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.util.RawClient;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RedisSentinel extends AbstractRedisInstance {
     private static final String REDIS_READY_PATTERN = ".*Sentinel ID is.*";
+    private static final long DISCOVERY_TIMEOUT = 10000L;
+    private static final long POLL_INTERVAL = 100L;
+
+    private List<String> masterNames = new ArrayList<>();
+
     public RedisSentinel(List<String> args, int port) {
         super(port);
         this.args = new ArrayList<>(args);
@@ -27,6 +41,92 @@ public class RedisSentinel extends AbstractRedisInstance {
         return REDIS_READY_PATTERN;
     }
 
+    /**
+     * Kill clients and {@code SENTINEL RESET} each master this sentinel was configured with, which makes the
+     * sentinel forget its failover state and discover again replicas and other sentinels. Masters monitored by
+     * other means are left alone.
+     * <p>
+     * Waits until the sentinel knows again the replicas and sentinels it saw up before the reset: replicas are
+     * rediscovered from the next {@code INFO} of the master, sent right away, and sentinels from their hello
+     * messages, published every two seconds.
+     *
+     * @throws EmbeddedRedisException if they are not discovered again within ten seconds
+     */
+    @Override
+    public synchronized void reset() throws EmbeddedRedisException {
+        try (Jedis jedis = adminConnection()) {
+            killClients(jedis);
+            for (Map<String, String> master : jedis.sentinelMasters()) {
+                String masterName = master.get("name");
+                if (!masterNames.contains(masterName)) {
+                    continue;
+                }
+                int replicas = countUp(jedis.sentinelSlaves(masterName));
+                int sentinels = countUp(sentinels(masterName));
+                jedis.sentinelReset(masterName);
+                awaitDiscovery(jedis, masterName, replicas, sentinels);
+            }
+        }
+    }
+
+    /**
+     * @param masterNames the names of the masters monitored by the configuration of this sentinel
+     */
+    void masterNames(List<String> masterNames) {
+        this.masterNames = new ArrayList<>(masterNames);
+    }
+
+    private List<Map<String, String>> sentinels(String masterName) {
+        List<Map<String, String>> sentinels = new ArrayList<>();
+        try (RawClient client = new RawClient(LOCAL_HOST, ports().get(0))) {
+            for (Object reply : (List<?>) client.call(Protocol.Command.SENTINEL, "SENTINELS", masterName)) {
+                List<?> fields = (List<?>) reply;
+                Map<String, String> sentinel = new HashMap<>();
+                for (int i = 0; i + 1 < fields.size(); i += 2) {
+                    sentinel.put(SafeEncoder.encode((byte[]) fields.get(i)),
+                            SafeEncoder.encode((byte[]) fields.get(i + 1)));
+                }
+                sentinels.add(sentinel);
+            }
+        }
+        return sentinels;
+    }
+
+    private static int countUp(List<Map<String, String>> instances) {
+        int up = 0;
+        for (Map<String, String> instance : instances) {
+            String flags = instance.get("flags");
+            if (flags != null && !flags.contains("s_down") && !flags.contains("disconnected")) {
+                up++;
+            }
+        }
+        return up;
+    }
+
+    private void awaitDiscovery(Jedis jedis, String masterName, int replicas, int sentinels) {
+        long deadline = System.currentTimeMillis() + DISCOVERY_TIMEOUT;
+        while (true) {
+            for (Map<String, String> master : jedis.sentinelMasters()) {
+                if (masterName.equals(master.get("name"))
+                        && Integer.parseInt(master.get("num-slaves")) >= replicas
+                        && Integer.parseInt(master.get("num-other-sentinels")) >= sentinels) {
+                    return;
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new EmbeddedRedisException("Sentinel on port " + ports().get(0) + " did not discover again the "
+                        + replicas + " replicas and " + sentinels + " sentinels of master " + masterName
+                        + " after reset");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbeddedRedisException(e.getMessage(), e);
+            }
+        }
+    }
+
     @SuppressWarnings("unused")
     public static class Builder {
         private static final String LINE_SEPARATOR = System.getProperty("line.separator");
@@ -36,6 +136,8 @@ public class RedisSentinel extends AbstractRedisInstance {
         private static final String FAIL_OVER_LINE = "sentinel failover-timeout %s %d";
         private static final String PARALLEL_SYNCS_LINE = "sentinel parallel-syncs %s %d";
         private static final String PORT_LINE = "port %d";
+        private static final long FAST_DOWN_AFTER_MILLISECONDS = 1000L;
+        private static final long FAST_FAIL_OVER_TIMEOUT = 3000L;
 
         private File executable;
         private RedisExecProvider redisExecProvider = RedisExecProvider.defaultProvider();
@@ -47,6 +149,9 @@ public class RedisSentinel extends AbstractRedisInstance {
         private int parallelSyncs = 1;
         private int quorumSize = 1;
         private String sentinelConf;
+        private CpuProvider cpuProvider;
+        private Integer nice;
+        private StopPolicy stopPolicy = StopPolicy.DEFAULT;
 
         private StringBuilder redisConfigBuilder;
 
@@ -85,6 +190,16 @@ public class RedisSentinel extends AbstractRedisInstance {
             return this;
         }
 
+        /**
+         * Consider a master down after one second without reply, and retry a failover after three seconds,
+         * instead of the one and three minutes defaults.
+         */
+        public Builder fastFailover() {
+            this.downAfterMilliseconds = FAST_DOWN_AFTER_MILLISECONDS;
+            this.failOverTimeout = FAST_FAIL_OVER_TIMEOUT;
+            return this;
+        }
+
         public Builder parallelSyncs(int parallelSyncs) {
             this.parallelSyncs = parallelSyncs;
             return this;
@@ -113,10 +228,41 @@ public class RedisSentinel extends AbstractRedisInstance {
             return this;
         }
 
+        /**
+         * @see RedisServer.Builder#cpuAffinity(CpuProvider)
+         */
+        public Builder cpuAffinity(CpuProvider cpuProvider) {
+            this.cpuProvider = cpuProvider;
+            return this;
+        }
+
+        /**
+         * @see RedisServer.Builder#nice(int)
+         */
+        public Builder nice(int nice) {
+            if (nice < Affinity.MIN_NICE || nice > Affinity.MAX_NICE) {
+                throw new RedisBuildingException("Nice level " + nice + " is not in [" + Affinity.MIN_NICE + ", " + Affinity.MAX_NICE + "]");
+            }
+            this.nice = nice;
+            return this;
+        }
+
+        /**
+         * @see RedisServer.Builder#stopPolicy(StopPolicy)
+         */
+        public Builder stopPolicy(StopPolicy stopPolicy) {
+            this.stopPolicy = stopPolicy;
+            return this;
+        }
+
         public RedisSentinel build() {
             tryResolveConfAndExec();
             List<String> args = buildCommandArgs();
-            return new RedisSentinel(args, port);
+            RedisSentinel sentinel = new RedisSentinel(args, port);
+            sentinel.masterNames(monitoredMasters());
+            sentinel.launchPrefix(Affinity.launchPrefix(cpuProvider != null ? cpuProvider.next() : null, nice));
+            sentinel.stopPolicy(stopPolicy);
+            return sentinel;
         }
 
         private void tryResolveConfAndExec() {
@@ -130,11 +276,56 @@ public class RedisSentinel extends AbstractRedisInstance {
             }
         }
 
+        /**
+         * @return the names of the masters of the {@code sentinel monitor} lines of the configuration file
+         */
+        private List<String> monitoredMasters() {
+            List<String> masterNames = new ArrayList<>();
+            try {
+                for (String line : Files.readLines(new File(sentinelConf), Charset.forName("UTF-8"))) {
+                    String[] words = line.trim().split("\\s+");
+                    if (words.length > 2 && words[0].equalsIgnoreCase("sentinel")
+                            && words[1].equalsIgnoreCase("monitor")) {
+                        masterNames.add(words[2]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RedisBuildingException("Could not read sentinel configuration " + sentinelConf, e);
+            }
+            return masterNames;
+        }
+
         public void reset() {
             this.redisConfigBuilder = null;
             this.sentinelConf = null;
         }
 
+        public RedisSentinel.Builder copy() {
+            Builder newBuilder = new Builder();
+
+            newBuilder.executable = (executable != null)
+                    ? new File(executable.toURI())
+                    : null;
+            newBuilder.redisExecProvider = redisExecProvider.copy();
+            newBuilder.port = port;
+            newBuilder.masterPort = masterPort;
+            newBuilder.masterName = masterName;
+            newBuilder.downAfterMilliseconds = downAfterMilliseconds;
+            newBuilder.failOverTimeout = failOverTimeout;
+            newBuilder.parallelSyncs = parallelSyncs;
+            newBuilder.quorumSize = quorumSize;
+            newBuilder.sentinelConf = sentinelConf;
+            // The provider is shared so that copies spread their processes
+            newBuilder.cpuProvider = cpuProvider;
+            newBuilder.nice = nice;
+            newBuilder.stopPolicy = stopPolicy;
+            newBuilder.redisConfigBuilder = (redisConfigBuilder != null)
+                    ? new StringBuilder(redisConfigBuilder)
+                    : null;
+
+            return newBuilder;
+        }
+
         public void addDefaultReplicationGroup() {
             setting(String.format(MASTER_MONITOR_LINE, masterName, masterPort, quorumSize));
             setting(String.format(DOWN_AFTER_LINE, masterName, downAfterMilliseconds));
@@ -2,6 +2,14 @@ package redis.embedded;
 
 import com.google.common.base.Strings;
 import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.embedded.affinity.Affinity;
+import redis.embedded.affinity.CpuProvider;
+import redis.embedded.config.RedisConfig;
+import redis.embedded.exceptions.EmbeddedRedisException;
 import redis.embedded.exceptions.RedisBuildingException;
 
 import java.io.File;
@@ -10,11 +18,25 @@ import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RedisServer extends AbstractRedisInstance {
     private static final String REDIS_READY_PATTERN = ".*The server is now ready to accept connections on port.*";
     private static final int DEFAULT_REDIS_PORT = 6379;
+    private static final long DEFAULT_SYNC_TIMEOUT = 60000L;
+    private static final long SYNC_POLL_INTERVAL = 50L;
+
+    private final Logger logger = LoggerFactory.getLogger(RedisServer.class);
+
+    /**
+     * Configuration of the server once started, restored by {@link #reset()}, {@code null} if it could not be read
+     */
+    private Map<String, String> initialConfig = Collections.emptyMap();
+    private final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<>();
 
     public RedisServer() throws IOException {
         this(DEFAULT_REDIS_PORT);
@@ -57,6 +79,156 @@ public class RedisServer extends AbstractRedisInstance {
         return REDIS_READY_PATTERN;
     }
 
+    @Override
+    public synchronized void start() throws EmbeddedRedisException {
+        super.start();
+        try (Jedis jedis = adminConnection()) {
+            initialConfig = config(jedis);
+        } catch (JedisDataException e) {
+            // e.g. with requirepass or a renamed CONFIG command, which reset() cannot work with anyway
+            logger.debug("Could not read the configuration of redis server on port {}: {}", ports().get(0), e.getMessage());
+            initialConfig = null;
+        } catch (RuntimeException e) {
+            try {
+                stop();
+            } catch (EmbeddedRedisException ignored) {
+                // the start failure is the one to report
+            }
+            throw new EmbeddedRedisException("Redis server on port " + ports().get(0) + " started but could not be reached", e);
+        }
+    }
+
+    /**
+     * Flush all the data and scripts, reset statistics and slow log, kill clients and restore the configuration the
+     * server had when started. Data is only flushed on masters, replicas getting it through replication.
+     */
+    @Override
+    public synchronized void reset() throws EmbeddedRedisException {
+        try (Jedis jedis = adminConnection()) {
+            if (isMaster(jedis)) {
+                jedis.flushAll();
+            }
+            jedis.scriptFlush();
+            jedis.configResetStat();
+            jedis.slowlogReset();
+            killClients(jedis);
+            restoreConfig(jedis);
+        }
+    }
+
+    /**
+     * Capture the current dataset of this server under the given name, replacing any checkpoint of the same name.
+     *
+     * @see Checkpoint
+     */
+    public Checkpoint checkpoint(String name) {
+        Checkpoint checkpoint = Checkpoint.capture(LOCAL_HOST, ports().get(0));
+        checkpoints.put(name, checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Replace the dataset of this server with the one captured by {@link #checkpoint(String)}.
+     * The checkpoint is kept, so that the server can be rolled back to it again.
+     */
+    public void rollback(String name) {
+        Checkpoint checkpoint = checkpoints.get(name);
+        if (checkpoint == null) {
+            throw new EmbeddedRedisException("No checkpoint named " + name);
+        }
+        checkpoint.restore(LOCAL_HOST, ports().get(0));
+    }
+
+    public void dropCheckpoint(String name) {
+        checkpoints.remove(name);
+    }
+
+    /**
+     * Start a copy of the dataset of this running server, built and started from the given builder.
+     *
+     * @see #fork(Builder, long)
+     */
+    public RedisServer fork(RedisServer.Builder builder) {
+        return fork(builder, DEFAULT_SYNC_TIMEOUT);
+    }
+
+    /**
+     * Start a copy of the dataset of this running server: the new server is started from the given builder, made
+     * a replica of this one until the full synchronization completes, then promoted to an independent master.
+     * Replicating the dataset in memory is much faster than loading it again.
+     *
+     * @param builder builder of the copy, which must not be configured as a replica
+     * @param timeout maximum time in milliseconds to wait for the synchronization
+     * @return the started copy
+     * @throws EmbeddedRedisException if the synchronization did not complete in time
+     */
+    public RedisServer fork(RedisServer.Builder builder, long timeout) {
+        RedisServer copy = builder.build();
+        copy.start();
+        try (Jedis jedis = copy.adminConnection()) {
+            jedis.slaveof(LOCAL_HOST, ports().get(0));
+            awaitReplicationSync(jedis, System.currentTimeMillis() + timeout);
+            jedis.slaveofNoOne();
+        } catch (RuntimeException e) {
+            copy.stop();
+            throw e;
+        }
+        return copy;
+    }
+
+    /**
+     * Wait for the replica connected by {@code jedis} to complete its synchronization with its master.
+     */
+    static void awaitReplicationSync(Jedis jedis, long deadline) {
+        try {
+            while (true) {
+                String replication = jedis.info("replication");
+                if (replication.contains("master_link_status:up") && replication.contains("master_sync_in_progress:0")) {
+                    return;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new EmbeddedRedisException("Replica did not synchronize with its master in time:\n" + replication);
+                }
+                Thread.sleep(SYNC_POLL_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException("Interrupted while waiting for replication", e);
+        }
+    }
+
+    static boolean isMaster(Jedis jedis) {
+        return jedis.info("replication").contains("role:master");
+    }
+
+    private void restoreConfig(Jedis jedis) {
+        if (initialConfig == null) {
+            throw new EmbeddedRedisException("The configuration of redis server on port " + ports().get(0)
+                    + " could not be read when it started, so it cannot be restored");
+        }
+        Map<String, String> config = config(jedis);
+        for (Map.Entry<String, String> initial : initialConfig.entrySet()) {
+            if (initial.getValue().equals(config.get(initial.getKey()))) {
+                continue;
+            }
+            try {
+                jedis.configSet(initial.getKey(), initial.getValue());
+            } catch (JedisDataException e) {
+                // Not every parameter can be changed at runtime
+                logger.debug("Could not restore {} to '{}': {}", initial.getKey(), initial.getValue(), e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, String> config(Jedis jedis) {
+        List<String> keyValues = jedis.configGet("*");
+        Map<String, String> config = new HashMap<>();
+        for (int i = 0; i + 1 < keyValues.size(); i += 2) {
+            config.put(keyValues.get(i), keyValues.get(i + 1));
+        }
+        return config;
+    }
+
     @SuppressWarnings("unused")
     public static class Builder {
         private static final String LINE_SEPARATOR = System.getProperty("line.separator");
@@ -64,8 +236,13 @@ public class RedisServer extends AbstractRedisInstance {
 
         private File executable;
         private RedisExecProvider redisExecProvider = RedisExecProvider.build();
-        private int port = 6379;
+        private Integer port = 6379;
+        private PortProvider portProvider;
+        private long startupTimeout = DEFAULT_STARTUP_TIMEOUT;
         private InetSocketAddress slaveOf;
+        private CpuProvider cpuProvider;
+        private Integer nice;
+        private StopPolicy stopPolicy = StopPolicy.DEFAULT;
 
         private String redisConf;
         private StringBuilder redisConfigBuilder;
@@ -80,6 +257,28 @@ public class RedisServer extends AbstractRedisInstance {
             return this;
         }
 
+        /**
+         * Take the port from the given {@link PortProvider} when the server is built. If redis then fails to bind
+         * it, the server is restarted on the next port of this provider until it starts or the startup timeout
+         * elapses.
+         * <p>
+         * A port given afterward with {@link #port(int)} is used as the initial port instead, the provider still
+         * being used on conflicts.
+         */
+        public Builder port(PortProvider portProvider) {
+            this.portProvider = portProvider;
+            this.port = null;
+            return this;
+        }
+
+        /**
+         * @param startupTimeout maximum time in milliseconds spent recovering from port conflicts at startup
+         */
+        public Builder startupTimeout(long startupTimeout) {
+            this.startupTimeout = startupTimeout;
+            return this;
+        }
+
         public Builder slaveOf(String hostname, int port) {
             this.slaveOf = new InetSocketAddress(hostname, port);
             return this;
@@ -113,10 +312,68 @@ public class RedisServer extends AbstractRedisInstance {
             return this;
         }
 
+        /**
+         * Pin the process of each server built to CPUs of the given provider: always the same ones with a
+         * {@link redis.embedded.affinity.CpuSet}, or different ones with a {@link redis.embedded.affinity.CpuSpreader}.
+         * Only available on Linux, through {@code taskset}.
+         */
+        public Builder cpuAffinity(CpuProvider cpuProvider) {
+            this.cpuProvider = cpuProvider;
+            return this;
+        }
+
+        /**
+         * Start the process of each server built with the given nice level, from -20 (highest priority, requiring
+         * privileges) to 19 (lowest priority).
+         */
+        public Builder nice(int nice) {
+            if (nice < Affinity.MIN_NICE || nice > Affinity.MAX_NICE) {
+                throw new RedisBuildingException("Nice level " + nice + " is not in [" + Affinity.MIN_NICE + ", " + Affinity.MAX_NICE + "]");
+            }
+            this.nice = nice;
+            return this;
+        }
+
+        /**
+         * Stop each server built following the given policy, e.g. {@link StopPolicy#FAST} for tests that never
+         * read their data back.
+         */
+        public Builder stopPolicy(StopPolicy stopPolicy) {
+            this.stopPolicy = stopPolicy;
+            return this;
+        }
+
+        /**
+         * Add the parameters of the given configuration to the settings of each server built.
+         *
+         * @see RedisConfig#applyTo(Redis) to change them on running servers
+         */
+        public Builder config(RedisConfig config) {
+            for (String line : config.configLines()) {
+                setting(line);
+            }
+            return this;
+        }
+
+        /**
+         * Set the number of logical databases of the server, e.g. to lease them with a
+         * {@link redis.embedded.shared.DatabasePool}.
+         */
+        public Builder databases(int databases) {
+            return setting("databases " + databases);
+        }
+
         public RedisServer build() {
-            tryResolveConfAndExec();
-            List<String> args = buildCommandArgs();
-            return new RedisServer(args, port);
+            final int serverPort = (port != null) ? port : portProvider.next();
+            tryResolveConfAndExec(serverPort);
+            List<String> args = buildCommandArgs(serverPort);
+            RedisServer server = new RedisServer(args, serverPort);
+            server.launchPrefix(Affinity.launchPrefix(cpuProvider != null ? cpuProvider.next() : null, nice));
+            server.stopPolicy(stopPolicy);
+            if (portProvider != null) {
+                server.portConflictRecovery(portProvider, startupTimeout);
+            }
+            return server;
         }
 
         public void reset() {
@@ -134,6 +391,13 @@ public class RedisServer extends AbstractRedisInstance {
                     : null;
             newBuilder.redisExecProvider = redisExecProvider.copy();
             newBuilder.port = port;
+            // The provider is shared so that copies do not hand out the same ports
+            newBuilder.portProvider = portProvider;
+            newBuilder.startupTimeout = startupTimeout;
+            // The provider is shared so that copies spread their processes
+            newBuilder.cpuProvider = cpuProvider;
+            newBuilder.nice = nice;
+            newBuilder.stopPolicy = stopPolicy;
             newBuilder.slaveOf = (slaveOf != null)
                     ? new InetSocketAddress(slaveOf.getAddress(), slaveOf.getPort())
                     : null;
@@ -145,6 +409,24 @@ public class RedisServer extends AbstractRedisInstance {
             return newBuilder;
         }
 
+        /**
+         * Two builders with the same fingerprint build equivalent servers.
+         *
+         * @return a description of everything this builder configures
+         */
+        public String fingerprint() {
+            return "RedisServer{" +
+                    "redisExecProvider=" + redisExecProvider +
+                    ", port=" + (port != null ? port : portProvider) +
+                    ", slaveOf=" + slaveOf +
+                    ", cpuAffinity=" + cpuProvider +
+                    ", nice=" + nice +
+                    ", stopPolicy=" + stopPolicy +
+                    ", redisConf=" + redisConf +
+                    ", settings=" + redisConfigBuilder +
+                    '}';
+        }
+
         /**
          * @return the configuration built using {@code #setting(String)}.
          */
@@ -152,17 +434,17 @@ public class RedisServer extends AbstractRedisInstance {
             return redisConfigBuilder.toString();
         }
 
-        private void tryResolveConfAndExec() {
+        private void tryResolveConfAndExec(int port) {
             try {
-                resolveConfAndExec();
+                resolveConfAndExec(port);
             } catch (IOException e) {
                 throw new RedisBuildingException("Could not build server instance", e);
             }
         }
 
-        private void resolveConfAndExec() throws IOException {
+        private void resolveConfAndExec(int port) throws IOException {
             if (redisConf == null && redisConfigBuilder != null) {
-                File redisConfigFile = File.createTempFile(resolveConfigName(), ".conf");
+                File redisConfigFile = File.createTempFile(resolveConfigName(port), ".conf");
                 redisConfigFile.deleteOnExit();
                 Files.write(redisConfigBuilder.toString(), redisConfigFile, Charset.forName("UTF-8"));
                 redisConf = redisConfigFile.getAbsolutePath();
@@ -175,11 +457,11 @@ public class RedisServer extends AbstractRedisInstance {
             }
         }
 
-        private String resolveConfigName() {
+        private String resolveConfigName(int port) {
             return CONF_FILENAME + "_" + port;
         }
 
-        private List<String> buildCommandArgs() {
+        private List<String> buildCommandArgs(int port) {
             List<String> args = new ArrayList<>();
             args.add(executable.getAbsolutePath());
 
@@ -0,0 +1,18 @@
+package redis.embedded;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+/**
+ * A {@link Redis} implementation that can be restored to a clean state between two tests without being restarted.
+ * Servers, sentinels and every implementation made of them are resettable.
+ */
+public interface Resettable {
+
+    /**
+     * Restore a running Redis implementation to a clean state without restarting it: data, scripts, statistics and
+     * configuration are reset and the connected clients are killed.
+     *
+     * @throws EmbeddedRedisException
+     */
+    void reset() throws EmbeddedRedisException;
+}
@@ -1,24 +1,50 @@
 package redis.embedded;
 
 import com.google.common.collect.Lists;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.embedded.affinity.Affinity;
+import redis.embedded.affinity.CpuProvider;
+import redis.embedded.config.RedisConfig;
 import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
 import redis.embedded.ports.EphemeralPortProvider;
 import redis.embedded.ports.PredefinedPortProvider;
+import redis.embedded.ports.ReservingPortProvider;
 import redis.embedded.ports.SequencePortProvider;
+import redis.embedded.sentinel.FailoverReport;
+import redis.embedded.sentinel.FailoverTrigger;
+import redis.embedded.sentinel.SentinelEvent;
+import redis.embedded.sentinel.SentinelEventListener;
+import redis.embedded.sentinel.SentinelEventSubscription;
+import redis.embedded.util.Instances;
+import redis.embedded.util.RawClient;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unused")
-public class SentinelCluster implements Redis {
+public class SentinelCluster implements Redis, Resettable {
     private final List<Redis> sentinels = new LinkedList<>();
     private final List<Redis> servers = new LinkedList<>();
+    private final Set<PortProvider> portProviders = new HashSet<>();
+    private final List<String> masterNames = new ArrayList<>();
 
     SentinelCluster(List<Redis> sentinels, List<Redis> servers) {
         this.servers.addAll(servers);
         this.sentinels.addAll(sentinels);
     }
 
+    SentinelCluster(List<Redis> sentinels, List<Redis> servers, Collection<PortProvider> portProviders,
+                    List<String> masterNames) {
+        this(sentinels, servers);
+        this.portProviders.addAll(portProviders);
+        this.masterNames.addAll(masterNames);
+    }
+
     @Override
     public boolean isActive() {
         for (Redis redis : sentinels) {
@@ -44,13 +70,51 @@ public class SentinelCluster implements Redis {
         }
     }
 
+    /**
+     * Stop every sentinel at the same time, then every server, each following its own {@link StopPolicy}.
+     */
     @Override
     public void stop() throws EmbeddedRedisException {
-        for (Redis redis : sentinels) {
-            redis.stop();
+        stop(null);
+    }
+
+    /**
+     * Stop every sentinel at the same time, then every server, following the given policy. The sentinels go first
+     * so that they do not fail over the stopping masters.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each instance
+     */
+    public void stop(StopPolicy policy) throws EmbeddedRedisException {
+        try {
+            Instances.stopAll(sentinels, policy);
+        } finally {
+            try {
+                Instances.stopAll(servers, policy);
+            } finally {
+                releasePorts();
+            }
         }
+    }
+
+    private void releasePorts() {
+        List<Integer> ports = ports();
+        for (PortProvider provider : portProviders) {
+            if (provider instanceof ReservingPortProvider) {
+                ((ReservingPortProvider) provider).release(ports);
+            }
+        }
+    }
+
+    /**
+     * Reset every server, then every sentinel.
+     */
+    @Override
+    public void reset() throws EmbeddedRedisException {
         for (Redis redis : servers) {
-            redis.stop();
+            Instances.reset(redis);
+        }
+        for (Redis redis : sentinels) {
+            Instances.reset(redis);
         }
     }
 
@@ -99,11 +163,163 @@ public class SentinelCluster implements Redis {
         return ports;
     }
 
+    /**
+     * @return the names of the masters monitored by the sentinels, in the order of their replication groups
+     */
+    public List<String> masterNames() {
+        return new ArrayList<>(masterNames);
+    }
+
+    /**
+     * @return the port of the current master of the given name, as known by the sentinels
+     */
+    public int masterPort(String masterName) {
+        JedisConnectionException lastException = null;
+        for (Integer port : sentinelPorts()) {
+            try (Jedis jedis = new Jedis(AbstractRedisInstance.LOCAL_HOST, port)) {
+                List<String> address = jedis.sentinelGetMasterAddrByName(masterName);
+                if (address == null || address.size() < 2) {
+                    throw new EmbeddedRedisException("Unknown master " + masterName);
+                }
+                return Integer.parseInt(address.get(1));
+            } catch (JedisConnectionException e) {
+                // this sentinel may be stopped, ask the next one
+                lastException = e;
+            }
+        }
+        throw new EmbeddedRedisException("No sentinel could be reached", lastException);
+    }
+
+    /**
+     * Subscribe to every event published by the sentinels of this cluster. The subscription must be closed once done.
+     */
+    public SentinelEventSubscription subscribe(SentinelEventListener listener) {
+        return new SentinelEventSubscription(sentinelPorts(), listener);
+    }
+
+    /**
+     * Trigger a failover of the given master, and wait for the sentinels to announce its new master.
+     *
+     * @param masterName the name of the master, as monitored by the sentinels
+     * @param trigger    how the failover is triggered
+     * @param timeout    the maximum time in milliseconds to wait for the new master, which is also the duration of the
+     *                   pause of the master with {@link FailoverTrigger#PAUSE}
+     * @return the durations of the phases of the failover
+     * @throws EmbeddedRedisException if the failover did not complete in time
+     */
+    public FailoverReport failover(String masterName, FailoverTrigger trigger, long timeout) throws EmbeddedRedisException {
+        final int oldMasterPort = masterPort(masterName);
+        final FailoverWatch watch = new FailoverWatch(masterName);
+        final SentinelEventSubscription subscription = subscribe(watch);
+        try {
+            final long start = System.nanoTime();
+            trigger(masterName, oldMasterPort, trigger, timeout);
+            return watch.await(start, oldMasterPort, trigger, timeout);
+        } finally {
+            subscription.close();
+        }
+    }
+
+    private void trigger(String masterName, int masterPort, FailoverTrigger trigger, long timeout) {
+        switch (trigger) {
+            case KILL:
+                Redis master = server(masterPort);
+                if (master instanceof AbstractRedisInstance) {
+                    ((AbstractRedisInstance) master).crash();
+                } else {
+                    master.stop();
+                }
+                break;
+            case PAUSE:
+                try (RawClient client = new RawClient(AbstractRedisInstance.LOCAL_HOST, masterPort)) {
+                    client.status(Protocol.Command.CLIENT, "PAUSE", Long.toString(timeout));
+                }
+                break;
+            case COMMAND:
+                try (Jedis jedis = new Jedis(AbstractRedisInstance.LOCAL_HOST, sentinelPorts().get(0))) {
+                    jedis.sentinelFailover(masterName);
+                }
+                break;
+        }
+    }
+
+    private Redis server(int port) {
+        for (Redis redis : servers) {
+            if (redis.ports().contains(port)) {
+                return redis;
+            }
+        }
+        throw new EmbeddedRedisException("No server of this cluster is listening on port " + port);
+    }
+
     @Deprecated
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Records the first occurrence of the sentinel events marking the phases of a failover.
+     */
+    private static class FailoverWatch implements SentinelEventListener {
+        private final String masterName;
+        private final CountDownLatch switched = new CountDownLatch(1);
+        private final Map<String, Long> firstEvents = Collections.synchronizedMap(new HashMap<String, Long>());
+        private volatile int newMasterPort;
+
+        private FailoverWatch(String masterName) {
+            this.masterName = masterName;
+        }
+
+        @Override
+        public void onEvent(SentinelEvent event) {
+            if (!event.concerns(masterName)) {
+                return;
+            }
+            synchronized (firstEvents) {
+                if (!firstEvents.containsKey(event.type())) {
+                    firstEvents.put(event.type(), event.nanoTime());
+                }
+            }
+            if ("+switch-master".equals(event.type())) {
+                // <master name> <old ip> <old port> <new ip> <new port>
+                String[] words = event.message().split(" ");
+                newMasterPort = Integer.parseInt(words[words.length - 1]);
+                switched.countDown();
+            }
+        }
+
+        private FailoverReport await(long start, int oldMasterPort, FailoverTrigger trigger, long timeout) {
+            try {
+                if (!switched.await(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new EmbeddedRedisException("No new master for " + masterName + " after " + timeout +
+                            "ms, seen events " + firstEvents.keySet());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbeddedRedisException("Interrupted while waiting for the failover of " + masterName, e);
+            }
+
+            long switchedAt = firstEvents.get("+switch-master");
+            long detectedAt = trigger == FailoverTrigger.COMMAND
+                    ? first(switchedAt, "+try-failover")
+                    : first(switchedAt, "+odown", "+try-failover");
+            long electedAt = Math.max(detectedAt, first(switchedAt, "+failover-state-select-slave", "+selected-slave"));
+
+            return new FailoverReport(masterName, oldMasterPort, newMasterPort,
+                    Math.max(0, detectedAt - start), electedAt - detectedAt, Math.max(0, switchedAt - electedAt));
+        }
+
+        private long first(long fallback, String... types) {
+            for (String type : types) {
+                Long nanoTime = firstEvents.get(type);
+                if (nanoTime != null) {
+                    return nanoTime;
+                }
+            }
+            return fallback;
+        }
+    }
+
     @SuppressWarnings("unused")
     public static class Builder {
         private RedisSentinel.Builder sentinelBuilder = new RedisSentinel.Builder();
@@ -113,6 +329,12 @@ public class SentinelCluster implements Redis {
         private PortProvider sentinelPortProvider = new SequencePortProvider(26379);
         private PortProvider replicationGroupPortProvider = new SequencePortProvider(6379);
         private final List<ReplicationGroup> groups = new LinkedList<>();
+        private final Set<PortProvider> usedPortProviders = new HashSet<>();
+        private CpuProvider cpuProvider;
+        private Integer nice;
+        private boolean fastFailover;
+        private StopPolicy stopPolicy;
+        private RedisConfig config;
 
         public Builder withSentinelBuilder(RedisSentinel.Builder sentinelBuilder) {
             this.sentinelBuilder = sentinelBuilder;
@@ -152,6 +374,75 @@ public class SentinelCluster implements Redis {
             return this;
         }
 
+        /**
+         * Use ports reserved across all the JVMs of the host, released when the cluster is stopped.
+         *
+         * @see ReservingPortProvider
+         */
+        public Builder reserving() {
+            this.sentinelPortProvider = new ReservingPortProvider();
+            this.replicationGroupPortProvider = new ReservingPortProvider();
+            return this;
+        }
+
+        /**
+         * Use short sentinel timeouts, for the failovers to complete in seconds.
+         *
+         * @see RedisSentinel.Builder#fastFailover()
+         */
+        public Builder fastFailover() {
+            this.fastFailover = true;
+            return this;
+        }
+
+        /**
+         * Pin the servers and the sentinels to CPUs of the given provider, e.g. a
+         * {@link redis.embedded.affinity.CpuSpreader} to put them on distinct cores, instead of the CPUs of the server
+         * and sentinel builders.
+         *
+         * @see RedisServer.Builder#cpuAffinity(CpuProvider)
+         */
+        public Builder cpuAffinity(CpuProvider cpuProvider) {
+            this.cpuProvider = cpuProvider;
+            return this;
+        }
+
+        /**
+         * Add the parameters of the given configuration to the settings of the servers, those of a later call
+         * overriding those of an earlier one.
+         *
+         * @see RedisServer.Builder#config(RedisConfig)
+         */
+        public Builder config(RedisConfig config) {
+            this.config = (this.config != null) ? this.config.with(config) : config;
+            return this;
+        }
+
+        /**
+         * Stop the servers and the sentinels following the given policy, instead of the one of the server and
+         * sentinel builders.
+         *
+         * @see RedisServer.Builder#stopPolicy(StopPolicy)
+         */
+        public Builder stopPolicy(StopPolicy stopPolicy) {
+            this.stopPolicy = stopPolicy;
+            return this;
+        }
+
+        /**
+         * Start the servers and the sentinels with the given nice level, instead of the one of the server and
+         * sentinel builders.
+         *
+         * @see RedisServer.Builder#nice(int)
+         */
+        public Builder nice(int nice) {
+            if (nice < Affinity.MIN_NICE || nice > Affinity.MAX_NICE) {
+                throw new RedisBuildingException("Nice level " + nice + " is not in [" + Affinity.MIN_NICE + ", " + Affinity.MAX_NICE + "]");
+            }
+            this.nice = nice;
+            return this;
+        }
+
         public Builder sentinelCount(int sentinelCount) {
             this.sentinelCount = sentinelCount;
             return this;
@@ -167,15 +458,41 @@ public class SentinelCluster implements Redis {
             return this;
         }
 
+        /**
+         * Add a master with the given number of slaves, whose ports are taken from the current server port provider
+         * when the cluster is built.
+         */
         public Builder replicationGroup(String masterName, int slaveCount) {
             this.groups.add(new ReplicationGroup(masterName, slaveCount, this.replicationGroupPortProvider));
+            this.usedPortProviders.add(this.replicationGroupPortProvider);
             return this;
         }
 
+        /**
+         * Build the cluster, taking the ports of its servers and sentinels from their port providers. The ports
+         * reserved by a {@link ReservingPortProvider} are released if the build fails.
+         */
         public SentinelCluster build() {
-            final List<Redis> sentinels = buildSentinels();
-            final List<Redis> servers = buildServers();
-            return new SentinelCluster(sentinels, servers);
+            final List<Integer> takenPorts = new ArrayList<>();
+            try {
+                for (ReplicationGroup g : groups) {
+                    g.takePorts(takenPorts);
+                }
+                final List<Redis> sentinels = buildSentinels(takenPorts);
+                final List<Redis> servers = buildServers();
+                final List<String> masterNames = new ArrayList<>();
+                for (ReplicationGroup g : groups) {
+                    masterNames.add(g.masterName);
+                }
+                return new SentinelCluster(sentinels, servers, usedPortProviders, masterNames);
+            } catch (RuntimeException e) {
+                for (PortProvider provider : usedPortProviders) {
+                    if (provider instanceof ReservingPortProvider) {
+                        ((ReservingPortProvider) provider).release(takenPorts);
+                    }
+                }
+                throw e;
+            }
         }
 
         private List<Redis> buildServers() {
@@ -189,55 +506,113 @@ public class SentinelCluster implements Redis {
 
         private void buildSlaves(List<Redis> servers, ReplicationGroup g) {
             for (Integer slavePort : g.slavePorts) {
-                serverBuilder.reset();
-                serverBuilder.port(slavePort);
-                serverBuilder.slaveOf("localhost", g.masterPort);
-                final RedisServer slave = serverBuilder.build();
+                RedisServer.Builder builder = serverBuilder();
+                builder.port(slavePort);
+                builder.slaveOf("localhost", g.masterPort);
+                final RedisServer slave = builder.build();
                 servers.add(slave);
             }
         }
 
         private Redis buildMaster(ReplicationGroup g) {
-            serverBuilder.reset();
-            return serverBuilder.port(g.masterPort).build();
+            return serverBuilder().port(g.masterPort).build();
         }
 
-        private List<Redis> buildSentinels() {
+        /**
+         * @return a reset copy of the server builder with the settings of this builder, the given one being left
+         * unchanged
+         */
+        private RedisServer.Builder serverBuilder() {
+            RedisServer.Builder builder = serverBuilder.copy();
+            builder.reset();
+            if (cpuProvider != null) {
+                builder.cpuAffinity(cpuProvider);
+            }
+            if (nice != null) {
+                builder.nice(nice);
+            }
+            if (stopPolicy != null) {
+                builder.stopPolicy(stopPolicy);
+            }
+            if (config != null) {
+                // Applied after the reset, which drops the settings
+                builder.config(config);
+            }
+            return builder;
+        }
+
+        private List<Redis> buildSentinels(List<Integer> takenPorts) {
             int toBuild = this.sentinelCount;
             final List<Redis> sentinels = new LinkedList<>();
             while (toBuild-- > 0) {
-                sentinels.add(buildSentinel());
+                sentinels.add(buildSentinel(takenPorts));
             }
             return sentinels;
         }
 
-        private Redis buildSentinel() {
-            sentinelBuilder.reset();
-            sentinelBuilder.port(nextSentinelPort());
+        private Redis buildSentinel(List<Integer> takenPorts) {
+            RedisSentinel.Builder builder = sentinelBuilder.copy();
+            builder.reset();
+            if (fastFailover) {
+                builder.fastFailover();
+            }
+            if (cpuProvider != null) {
+                builder.cpuAffinity(cpuProvider);
+            }
+            if (nice != null) {
+                builder.nice(nice);
+            }
+            if (stopPolicy != null) {
+                builder.stopPolicy(stopPolicy);
+            }
+            builder.port(nextSentinelPort(takenPorts));
             for (ReplicationGroup g : groups) {
-                sentinelBuilder.masterName(g.masterName);
-                sentinelBuilder.masterPort(g.masterPort);
-                sentinelBuilder.quorumSize(quorumSize);
-                sentinelBuilder.addDefaultReplicationGroup();
+                builder.masterName(g.masterName);
+                builder.masterPort(g.masterPort);
+                builder.quorumSize(quorumSize);
+                builder.addDefaultReplicationGroup();
             }
-            return sentinelBuilder.build();
+            return builder.build();
         }
 
-        private int nextSentinelPort() {
-            return sentinelPortProvider.next();
+        private int nextSentinelPort(List<Integer> takenPorts) {
+            usedPortProviders.add(sentinelPortProvider);
+            int port = sentinelPortProvider.next();
+            takenPorts.add(port);
+            return port;
         }
 
         private static class ReplicationGroup {
             private final String masterName;
-            private final int masterPort;
+            private final int slaveCount;
+            private final PortProvider portProvider;
+            private int masterPort;
             private final List<Integer> slavePorts = new LinkedList<>();
 
             private ReplicationGroup(String masterName, int slaveCount, PortProvider portProvider) {
                 this.masterName = masterName;
-                masterPort = portProvider.next();
-                while (slaveCount-- > 0) {
-                    slavePorts.add(portProvider.next());
+                this.slaveCount = slaveCount;
+                this.portProvider = portProvider;
+            }
+
+            /**
+             * Take the ports of the master and of its slaves, adding them to the given ones.
+             */
+            private void takePorts(List<Integer> takenPorts) {
+                List<Integer> ports;
+                if (portProvider instanceof ReservingPortProvider) {
+                    // Reserve the ports of the whole group in a single contiguous block
+                    ports = ((ReservingPortProvider) portProvider).next(slaveCount + 1);
+                } else {
+                    ports = new ArrayList<>();
+                    for (int i = 0; i <= slaveCount; i++) {
+                        ports.add(portProvider.next());
+                    }
                 }
+                takenPorts.addAll(ports);
+                masterPort = ports.get(0);
+                slavePorts.clear();
+                slavePorts.addAll(ports.subList(1, ports.size()));
             }
         }
     }
@@ -0,0 +1,106 @@
+package redis.embedded;
+
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a redis instance is stopped: how it is asked to exit, how long it is given to do so, and whether it is then
+ * killed with {@code SIGKILL}.
+ */
+public class StopPolicy {
+
+    public enum Mode {
+        /**
+         * Send {@code SIGTERM}: redis saves its dataset if it has save points, as on any shutdown.
+         */
+        DESTROY,
+        /**
+         * Send {@code SHUTDOWN NOSAVE}: redis exits without saving, the fastest teardown.
+         */
+        SHUTDOWN_NOSAVE,
+        /**
+         * Send {@code SHUTDOWN SAVE}: redis saves its dataset even without save points before exiting.
+         */
+        SHUTDOWN_SAVE
+    }
+
+    private static final long DEFAULT_TIMEOUT = 30000L;
+    private static final long FAST_TIMEOUT = 5000L;
+
+    /**
+     * {@code SIGTERM}, killed after 30 seconds.
+     */
+    public static final StopPolicy DEFAULT = new StopPolicy(Mode.DESTROY, DEFAULT_TIMEOUT, true);
+
+    /**
+     * {@code SHUTDOWN NOSAVE}, killed after 5 seconds.
+     */
+    public static final StopPolicy FAST = new StopPolicy(Mode.SHUTDOWN_NOSAVE, FAST_TIMEOUT, true);
+
+    private final Mode mode;
+    private final long timeoutMillis;
+    private final boolean escalate;
+
+    private StopPolicy(Mode mode, long timeoutMillis, boolean escalate) {
+        this.mode = mode;
+        this.timeoutMillis = timeoutMillis;
+        this.escalate = escalate;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return the time given to the process to exit
+     */
+    public long timeout(TimeUnit unit) {
+        return unit.convert(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether a process still running after the timeout is killed with {@code SIGKILL}, rather than the stop
+     * failing
+     */
+    public boolean escalates() {
+        return escalate;
+    }
+
+    @Override
+    public String toString() {
+        return "StopPolicy{" + mode + " within " + timeoutMillis + "ms" + (escalate ? " or SIGKILL" : "") + '}';
+    }
+
+    public static class Builder {
+        private Mode mode = Mode.DESTROY;
+        private long timeoutMillis = DEFAULT_TIMEOUT;
+        private boolean escalate = true;
+
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param escalate whether to kill with {@code SIGKILL} a process still running after the timeout. When a
+         *                 dataset must be saved, not escalating makes a slow save fail the stop instead of losing it.
+         */
+        public Builder escalate(boolean escalate) {
+            this.escalate = escalate;
+            return this;
+        }
+
+        public StopPolicy build() {
+            if (timeoutMillis < 0) {
+                throw new RedisBuildingException("The stop timeout must be positive");
+            }
+            return new StopPolicy(mode, timeoutMillis, escalate);
+        }
+    }
+}
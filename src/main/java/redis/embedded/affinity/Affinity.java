@@ -0,0 +1,90 @@
+package redis.embedded.affinity;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pins processes to CPUs with {@code taskset} and changes their priority with {@code nice} and {@code renice}, both
+ * from util-linux. Lowering the nice level below 0 requires privileges.
+ */
+public final class Affinity {
+    public static final int MIN_NICE = -20;
+    public static final int MAX_NICE = 19;
+
+    private Affinity() {
+    }
+
+    /**
+     * @return the command to prepend to the command line of a process to launch it on the given CPUs with the given
+     * nice level, each being optional
+     */
+    public static List<String> launchPrefix(CpuSet cpus, Integer nice) {
+        List<String> prefix = new ArrayList<>();
+        if (cpus != null) {
+            prefix.addAll(Arrays.asList("taskset", "-c", cpus.toString()));
+        }
+        if (nice != null) {
+            checkNice(nice);
+            prefix.addAll(Arrays.asList("nice", "-n", Integer.toString(nice)));
+        }
+        return prefix;
+    }
+
+    /**
+     * Pin every thread of a running process to the given CPUs.
+     */
+    public static void pin(long pid, CpuSet cpus) {
+        run("taskset", "-a", "-p", "-c", cpus.toString(), Long.toString(pid));
+    }
+
+    public static void renice(long pid, int nice) {
+        checkNice(nice);
+        run("renice", "-n", Integer.toString(nice), "-p", Long.toString(pid));
+    }
+
+    /**
+     * Pin this JVM, typically running the benchmark client, to the given CPUs. Threads started afterwards inherit
+     * the affinity of the thread starting them.
+     */
+    public static void pinJvm(CpuSet cpus) {
+        pin(jvmPid(), cpus);
+    }
+
+    /**
+     * @return the process id of this JVM
+     */
+    public static long jvmPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('@')));
+        } catch (RuntimeException e) {
+            throw new EmbeddedRedisException("Cannot find the process id of this JVM in " + name, e);
+        }
+    }
+
+    private static void checkNice(int nice) {
+        if (nice < MIN_NICE || nice > MAX_NICE) {
+            throw new RedisBuildingException("Nice level " + nice + " is not in [" + MIN_NICE + ", " + MAX_NICE + "]");
+        }
+    }
+
+    private static void run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            if (process.waitFor() != 0) {
+                throw new EmbeddedRedisException("Command failed: " + Arrays.toString(command));
+            }
+        } catch (IOException e) {
+            throw new EmbeddedRedisException("Could not run " + Arrays.toString(command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException("Interrupted while running " + Arrays.toString(command), e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package redis.embedded.affinity;
+
+/**
+ * Provides the CPUs each redis process built by a builder is pinned to, like a {@link redis.embedded.PortProvider}
+ * provides their ports.
+ */
+public interface CpuProvider {
+
+    /**
+     * @return the CPUs of the next process
+     */
+    CpuSet next();
+}
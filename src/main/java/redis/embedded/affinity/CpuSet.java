@@ -0,0 +1,165 @@
+package redis.embedded.affinity;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A set of CPUs, written in the list format of {@code taskset -c}, e.g. {@code 0-3,6}. As a {@link CpuProvider}, it
+ * pins every process to the same CPUs.
+ */
+public class CpuSet implements CpuProvider {
+    private static final String CPUS_ALLOWED_FIELD = "Cpus_allowed_list:";
+
+    private final SortedSet<Integer> cpus;
+
+    private CpuSet(Collection<Integer> cpus) {
+        if (cpus.isEmpty()) {
+            throw new RedisBuildingException("A CPU set must contain at least one CPU");
+        }
+        for (Integer cpu : cpus) {
+            if (cpu < 0) {
+                throw new RedisBuildingException("Invalid CPU " + cpu);
+            }
+        }
+        this.cpus = Collections.unmodifiableSortedSet(new TreeSet<>(cpus));
+    }
+
+    public static CpuSet of(int... cpus) {
+        List<Integer> list = new ArrayList<>();
+        for (int cpu : cpus) {
+            list.add(cpu);
+        }
+        return new CpuSet(list);
+    }
+
+    public static CpuSet of(Collection<Integer> cpus) {
+        return new CpuSet(cpus);
+    }
+
+    /**
+     * @return the CPUs from {@code first} to {@code last}, inclusive
+     */
+    public static CpuSet range(int first, int last) {
+        List<Integer> list = new ArrayList<>();
+        for (int cpu = first; cpu <= last; cpu++) {
+            list.add(cpu);
+        }
+        return new CpuSet(list);
+    }
+
+    /**
+     * @param list CPUs in the list format, e.g. {@code 0-3,6}
+     */
+    public static CpuSet parse(String list) {
+        List<Integer> cpus = new ArrayList<>();
+        try {
+            for (String part : list.trim().split(",")) {
+                int dash = part.indexOf('-');
+                if (dash < 0) {
+                    cpus.add(Integer.parseInt(part.trim()));
+                } else {
+                    int first = Integer.parseInt(part.substring(0, dash).trim());
+                    int last = Integer.parseInt(part.substring(dash + 1).trim());
+                    for (int cpu = first; cpu <= last; cpu++) {
+                        cpus.add(cpu);
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new RedisBuildingException("Invalid CPU list '" + list + "'", e);
+        }
+        return new CpuSet(cpus);
+    }
+
+    /**
+     * @return the CPUs this JVM may run on: its {@code Cpus_allowed_list} on Linux, which honors the restrictions of
+     * containers, else as many CPUs as available processors
+     */
+    public static CpuSet available() {
+        File status = new File("/proc/self/status");
+        if (status.canRead()) {
+            try {
+                for (String line : Files.readLines(status, Charset.forName("UTF-8"))) {
+                    if (line.startsWith(CPUS_ALLOWED_FIELD)) {
+                        return parse(line.substring(CPUS_ALLOWED_FIELD.length()));
+                    }
+                }
+            } catch (IOException ignored) {
+                // fall back on the number of processors
+            }
+        }
+        return range(0, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * @return the CPUs of this set which are not in the other one
+     */
+    public CpuSet without(CpuSet other) {
+        List<Integer> remaining = new ArrayList<>(cpus);
+        remaining.removeAll(other.cpus);
+        if (remaining.isEmpty()) {
+            throw new RedisBuildingException("No CPU of " + this + " is left without " + other);
+        }
+        return new CpuSet(remaining);
+    }
+
+    /**
+     * @return the CPUs in ascending order
+     */
+    public List<Integer> cpus() {
+        return new ArrayList<>(cpus);
+    }
+
+    public int size() {
+        return cpus.size();
+    }
+
+    @Override
+    public CpuSet next() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CpuSet && cpus.equals(((CpuSet) o).cpus);
+    }
+
+    @Override
+    public int hashCode() {
+        return cpus.hashCode();
+    }
+
+    /**
+     * @return the CPUs in the list format, ranges collapsed
+     */
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        Integer first = null;
+        Integer previous = null;
+        for (Integer cpu : cpus) {
+            if (previous != null && cpu == previous + 1) {
+                previous = cpu;
+                continue;
+            }
+            if (first != null) {
+                parts.add(first.equals(previous) ? first.toString() : first + "-" + previous);
+            }
+            first = cpu;
+            previous = cpu;
+        }
+        parts.add(first.equals(previous) ? first.toString() : first + "-" + previous);
+        return Joiner.on(',').join(parts);
+    }
+}
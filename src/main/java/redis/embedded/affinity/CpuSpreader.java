@@ -0,0 +1,51 @@
+package redis.embedded.affinity;
+
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads processes across CPUs: each process gets the next {@code cpusPerProcess} CPUs of the set, wrapping around
+ * once every CPU has been handed out. Give it to the server builder of a cluster to put its nodes on distinct cores,
+ * and leave out the cores of the benchmark client, e.g.
+ * <pre>
+ * {@code
+ * CpuSet client = CpuSet.range(0, 1);
+ * Affinity.pinJvm(client);
+ * new RedisCluster.Builder().cpuAffinity(new CpuSpreader(CpuSet.available().without(client)))...
+ * }
+ * </pre>
+ */
+public class CpuSpreader implements CpuProvider {
+    private final List<Integer> cpus;
+    private final int cpusPerProcess;
+    private int cursor = 0;
+
+    public CpuSpreader(CpuSet cpus) {
+        this(cpus, 1);
+    }
+
+    public CpuSpreader(CpuSet cpus, int cpusPerProcess) {
+        if (cpusPerProcess < 1 || cpusPerProcess > cpus.size()) {
+            throw new RedisBuildingException("Cannot give " + cpusPerProcess + " CPUs of " + cpus + " to each process");
+        }
+        this.cpus = cpus.cpus();
+        this.cpusPerProcess = cpusPerProcess;
+    }
+
+    @Override
+    public synchronized CpuSet next() {
+        List<Integer> next = new ArrayList<>(cpusPerProcess);
+        for (int i = 0; i < cpusPerProcess; i++) {
+            next.add(cpus.get(cursor));
+            cursor = (cursor + 1) % cpus.size();
+        }
+        return CpuSet.of(next);
+    }
+
+    @Override
+    public String toString() {
+        return "CpuSpreader[" + CpuSet.of(cpus) + " by " + cpusPerProcess + "]";
+    }
+}
@@ -3,6 +3,7 @@ package redis.embedded.cluster;
 import redis.clients.jedis.*;
 
 import java.io.*;
+import java.util.List;
 
 /**
  * A minimal client implementation to pass some commands to a single redis server.
@@ -44,4 +45,28 @@ class Client implements Closeable {
     public String clusterInfo() {
         return jedis.clusterInfo();
     }
+
+    public String clusterSetSlotImporting(final int slot, final String nodeId) {
+        return jedis.clusterSetSlotImporting(slot, nodeId);
+    }
+
+    public String clusterSetSlotMigrating(final int slot, final String nodeId) {
+        return jedis.clusterSetSlotMigrating(slot, nodeId);
+    }
+
+    public String clusterSetSlotNode(final int slot, final String nodeId) {
+        return jedis.clusterSetSlotNode(slot, nodeId);
+    }
+
+    public List<String> clusterGetKeysInSlot(final int slot, final int count) {
+        return jedis.clusterGetKeysInSlot(slot, count);
+    }
+
+    public String clusterForget(final String nodeId) {
+        return jedis.clusterForget(nodeId);
+    }
+
+    public boolean isMaster() {
+        return jedis.info("replication").contains("role:master");
+    }
 }
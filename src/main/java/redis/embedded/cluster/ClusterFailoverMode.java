@@ -0,0 +1,21 @@
+package redis.embedded.cluster;
+
+/**
+ * The options of {@code CLUSTER FAILOVER}.
+ *
+ * @see <a href="http://redis.io/commands/cluster-failover">CLUSTER FAILOVER</a>
+ */
+public enum ClusterFailoverMode {
+    /**
+     * A coordinated failover: the master stops accepting writes until its replica has caught up.
+     */
+    DEFAULT,
+    /**
+     * Fail over without the agreement of the master, but with the agreement of the other masters.
+     */
+    FORCE,
+    /**
+     * Fail over without any agreement, bumping the configuration epoch of the replica.
+     */
+    TAKEOVER
+}
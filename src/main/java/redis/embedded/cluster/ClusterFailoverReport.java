@@ -0,0 +1,60 @@
+package redis.embedded.cluster;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of a cluster failover:
+ * <ul>
+ * <li>detection: from the kill of a master to a node flagging it as failed, zero for a {@code CLUSTER FAILOVER}</li>
+ * <li>promotion: from detection to a replica of the master reporting itself as master</li>
+ * <li>convergence: from promotion to every running node agreeing that the new master owns the slots</li>
+ * </ul>
+ */
+public class ClusterFailoverReport {
+    private final int oldMasterPort;
+    private final int newMasterPort;
+    private final long detectionNanos;
+    private final long promotionNanos;
+    private final long convergenceNanos;
+
+    public ClusterFailoverReport(int oldMasterPort, int newMasterPort,
+                                 long detectionNanos, long promotionNanos, long convergenceNanos) {
+        this.oldMasterPort = oldMasterPort;
+        this.newMasterPort = newMasterPort;
+        this.detectionNanos = detectionNanos;
+        this.promotionNanos = promotionNanos;
+        this.convergenceNanos = convergenceNanos;
+    }
+
+    public int oldMasterPort() {
+        return oldMasterPort;
+    }
+
+    public int newMasterPort() {
+        return newMasterPort;
+    }
+
+    public long detection(TimeUnit unit) {
+        return unit.convert(detectionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long promotion(TimeUnit unit) {
+        return unit.convert(promotionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long convergence(TimeUnit unit) {
+        return unit.convert(convergenceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long total(TimeUnit unit) {
+        return unit.convert(detectionNanos + promotionNanos + convergenceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "Failover from port " + oldMasterPort + " to port " + newMasterPort +
+                ": detection=" + detection(TimeUnit.MILLISECONDS) + "ms" +
+                ", promotion=" + promotion(TimeUnit.MILLISECONDS) + "ms" +
+                ", convergence=" + convergence(TimeUnit.MILLISECONDS) + "ms";
+    }
+}
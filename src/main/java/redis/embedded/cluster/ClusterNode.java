@@ -0,0 +1,175 @@
+package redis.embedded.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A node of a redis cluster, as seen by another node in its {@code CLUSTER NODES} reply.
+ *
+ * @see <a href="http://redis.io/commands/cluster-nodes">CLUSTER NODES</a>
+ */
+public class ClusterNode {
+    private static final String NO_MASTER = "-";
+
+    private final String id;
+    private final String host;
+    private final int port;
+    private final Set<String> flags;
+    private final String masterId;
+    private final long configEpoch;
+    private final boolean connected;
+    private final List<SlotRange> slots;
+
+    ClusterNode(String id, String host, int port, Set<String> flags, String masterId, long configEpoch,
+                boolean connected, List<SlotRange> slots) {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+        this.flags = flags;
+        this.masterId = masterId;
+        this.configEpoch = configEpoch;
+        this.connected = connected;
+        this.slots = slots;
+    }
+
+    /**
+     * Parse a {@code CLUSTER NODES} reply.
+     */
+    public static List<ClusterNode> parse(String clusterNodes) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String line : clusterNodes.split("\r?\n")) {
+            if (!line.trim().isEmpty()) {
+                nodes.add(parseLine(line.trim()));
+            }
+        }
+        return nodes;
+    }
+
+    // <id> <ip:port[@cport]> <flags> <master> <ping-sent> <pong-recv> <config-epoch> <link-state> <slot> <slot> ...
+    private static ClusterNode parseLine(String line) {
+        String[] fields = line.split(" ");
+        if (fields.length < 8) {
+            throw new IllegalArgumentException("illegal cluster node: " + line);
+        }
+
+        String address = fields[1];
+        if (address.contains("@")) {
+            address = address.substring(0, address.indexOf('@'));
+        }
+        int separator = address.lastIndexOf(':');
+
+        List<SlotRange> slots = new ArrayList<>();
+        for (int i = 8; i < fields.length; i++) {
+            // Slots being imported or migrated are listed between brackets
+            if (!fields[i].startsWith("[")) {
+                slots.add(parseSlots(fields[i]));
+            }
+        }
+
+        return new ClusterNode(
+                fields[0],
+                address.substring(0, separator),
+                Integer.parseInt(address.substring(separator + 1)),
+                new HashSet<>(Arrays.asList(fields[2].split(","))),
+                NO_MASTER.equals(fields[3]) ? null : fields[3],
+                Long.parseLong(fields[6]),
+                "connected".equals(fields[7]),
+                slots);
+    }
+
+    private static SlotRange parseSlots(String slots) {
+        int separator = slots.indexOf('-');
+        if (separator < 0) {
+            int slot = Integer.parseInt(slots);
+            return new SlotRange(slot, slot);
+        }
+        return new SlotRange(Integer.parseInt(slots.substring(0, separator)), Integer.parseInt(slots.substring(separator + 1)));
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public Set<String> flags() {
+        return Collections.unmodifiableSet(flags);
+    }
+
+    /**
+     * @return the id of the master of this node, or {@code null} if this node is a master
+     */
+    public String masterId() {
+        return masterId;
+    }
+
+    public long configEpoch() {
+        return configEpoch;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return whether this node is the one which replied to {@code CLUSTER NODES}
+     */
+    public boolean isMyself() {
+        return flags.contains("myself");
+    }
+
+    public boolean isMaster() {
+        return flags.contains("master");
+    }
+
+    public boolean isReplica() {
+        return flags.contains("slave");
+    }
+
+    /**
+     * @return whether this node is considered failing, by the replying node ({@code fail?}) or by the cluster
+     * ({@code fail})
+     */
+    public boolean isFailing() {
+        return flags.contains("fail") || flags.contains("fail?");
+    }
+
+    public int slotCount() {
+        int count = 0;
+        for (SlotRange range : slots) {
+            count += range.size();
+        }
+        return count;
+    }
+
+    public boolean servesSlot(int slot) {
+        for (SlotRange range : slots) {
+            if (range.contains(slot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the ranges of slots served by this node, without the ones being imported or migrated
+     */
+    public List<SlotRange> slotRanges() {
+        return Collections.unmodifiableList(slots);
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + host + ":" + port + " " + flags + " " + slots;
+    }
+}
@@ -0,0 +1,40 @@
+package redis.embedded.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits the slots in contiguous ranges of the same size, the default of a {@link RedisCluster}.
+ */
+public class EvenSlotAllocator implements SlotAllocator {
+
+    @Override
+    public List<List<SlotRange>> allocate(int mastersCount) {
+        List<List<SlotRange>> ranges = new ArrayList<>(mastersCount);
+
+        int slotPerNode = CLUSTER_HASH_SLOTS_NUMBER / mastersCount;
+        int first = 0;
+        double cursor = 0.0;
+        for (int i = 0; i < mastersCount; i++) {
+            int last = (int) Math.round(cursor + slotPerNode - 1);
+            if (last > CLUSTER_HASH_SLOTS_NUMBER || i == mastersCount - 1) {
+                last = CLUSTER_HASH_SLOTS_NUMBER - 1;
+            }
+
+            //Min step is 1.
+            if (last < first)
+                last = first;
+
+            ranges.add(Collections.singletonList(new SlotRange(first, last)));
+            first = last + 1;
+            cursor += slotPerNode;
+        }
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "EvenSlotAllocator";
+    }
+}
@@ -0,0 +1,35 @@
+package redis.embedded.cluster;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives each master the given ranges of slots.
+ */
+public class ExplicitSlotAllocator implements SlotAllocator {
+    private final List<List<SlotRange>> ranges = new ArrayList<>();
+
+    /**
+     * @param rangesPerMaster for each master, the ranges of slots it serves
+     */
+    public ExplicitSlotAllocator(List<List<SlotRange>> rangesPerMaster) {
+        for (List<SlotRange> masterRanges : rangesPerMaster) {
+            ranges.add(new ArrayList<>(masterRanges));
+        }
+    }
+
+    @Override
+    public List<List<SlotRange>> allocate(int mastersCount) {
+        if (mastersCount != ranges.size()) {
+            throw new EmbeddedRedisException("Expected " + ranges.size() + " masters for slots " + ranges + ", got " + mastersCount);
+        }
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "ExplicitSlotAllocator" + ranges;
+    }
+}
@@ -0,0 +1,75 @@
+package redis.embedded.cluster;
+
+import redis.clients.util.JedisClusterCRC16;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Concentrates hot slots on one master: the slots are split as by another allocator, {@link EvenSlotAllocator} by
+ * default, then the hot slots are all moved to the hot master.
+ */
+public class HotSlotsAllocator implements SlotAllocator {
+    private final int hotMaster;
+    private final TreeSet<Integer> hotSlots;
+    private final SlotAllocator base;
+
+    /**
+     * @param hotMaster the index of the master serving the hot slots
+     * @param hotSlots  the hot slots
+     */
+    public HotSlotsAllocator(int hotMaster, Collection<Integer> hotSlots) {
+        this(hotMaster, hotSlots, new EvenSlotAllocator());
+    }
+
+    public HotSlotsAllocator(int hotMaster, Collection<Integer> hotSlots, SlotAllocator base) {
+        for (Integer slot : hotSlots) {
+            if (slot < 0 || slot >= CLUSTER_HASH_SLOTS_NUMBER) {
+                throw new EmbeddedRedisException("Invalid hot slot " + slot);
+            }
+        }
+        this.hotMaster = hotMaster;
+        this.hotSlots = new TreeSet<>(hotSlots);
+        this.base = base;
+    }
+
+    /**
+     * Concentrate the slots of the given keys on the hot master.
+     */
+    public static HotSlotsAllocator forKeys(int hotMaster, String... keys) {
+        List<Integer> slots = new ArrayList<>();
+        for (String key : keys) {
+            slots.add(JedisClusterCRC16.getSlot(key));
+        }
+        return new HotSlotsAllocator(hotMaster, slots);
+    }
+
+    @Override
+    public List<List<SlotRange>> allocate(int mastersCount) {
+        if (hotMaster < 0 || hotMaster >= mastersCount) {
+            throw new EmbeddedRedisException("Invalid hot master " + hotMaster + " for " + mastersCount + " masters");
+        }
+
+        int[] owners = new int[CLUSTER_HASH_SLOTS_NUMBER];
+        List<List<SlotRange>> baseRanges = base.allocate(mastersCount);
+        for (int master = 0; master < baseRanges.size(); master++) {
+            for (SlotRange range : baseRanges.get(master)) {
+                for (int slot = range.first(); slot <= range.last(); slot++) {
+                    owners[slot] = master;
+                }
+            }
+        }
+        for (Integer slot : hotSlots) {
+            owners[slot] = hotMaster;
+        }
+        return SlotRange.fromOwners(owners, mastersCount);
+    }
+
+    @Override
+    public String toString() {
+        return "HotSlotsAllocator{hotMaster=" + hotMaster + ", hotSlots=" + hotSlots + ", base=" + base + '}';
+    }
+}
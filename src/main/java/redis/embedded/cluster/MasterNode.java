@@ -7,12 +7,12 @@ import java.util.*;
 class MasterNode {
     final Redis master;
     String nodeId;
-    final SlotRange slotRange;
+    final List<SlotRange> slotRanges;
     final Set<Redis> slaves;
 
-    public MasterNode(Redis master, SlotRange slotRange) {
+    public MasterNode(Redis master, List<SlotRange> slotRanges) {
         this.master = master;
-        this.slotRange = slotRange;
+        this.slotRanges = slotRanges;
         slaves = new HashSet<>();
     }
 
@@ -28,8 +28,8 @@ class MasterNode {
         return master;
     }
 
-    public SlotRange getSlotRange() {
-        return slotRange;
+    public List<SlotRange> getSlotRanges() {
+        return slotRanges;
     }
 
     public String getNodeId() {
@@ -1,25 +1,62 @@
 package redis.embedded.cluster;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Protocol;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.Checkpoint;
 import redis.embedded.PortProvider;
 import redis.embedded.Redis;
 import redis.embedded.RedisServer;
+import redis.embedded.Resettable;
+import redis.embedded.StopPolicy;
+import redis.embedded.affinity.Affinity;
+import redis.embedded.affinity.CpuProvider;
+import redis.embedded.config.RedisConfig;
 import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.ports.EphemeralPortProvider;
+import redis.embedded.ports.ReservingPortProvider;
+import redis.embedded.util.Instances;
+import redis.embedded.util.RawClient;
 
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class RedisCluster implements Redis {
+public class RedisCluster implements Redis, Resettable {
     private final Logger logger = LoggerFactory.getLogger(RedisCluster.class);
 
-    private static final int CLUSTER_HASH_SLOTS_NUMBER = 16384;
+    static final int CLUSTER_HASH_SLOTS_NUMBER = SlotAllocator.CLUSTER_HASH_SLOTS_NUMBER;
     private static final String LOCAL_HOST = "127.0.0.1";
+    private static final long POLL_INTERVAL = 50L;
+    /**
+     * Numbers the nodes started by this JVM, to name their files
+     */
+    private static final AtomicLong NODE_SEQUENCE = new AtomicLong();
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-cluster-%d").build();
 
-    private final List<Redis> servers = new LinkedList<>();
+    private final List<Redis> servers = new CopyOnWriteArrayList<>();
     private final int numOfReplicates;
     private final int maxNumOfRetries;
+    private PortProvider portProvider;
+    private RedisServer.Builder serverTemplate;
+    private volatile RedisConfig liveConfig;
+    private SlotAllocator slotAllocator = new EvenSlotAllocator();
+    private int parallelism;
+    private final Map<String, Map<Integer, Checkpoint>> checkpoints = new ConcurrentHashMap<>();
 
     public RedisCluster(List<Redis> servers, int numOfReplicates, int maxNumOfRetries) {
         this.numOfReplicates = numOfReplicates;
@@ -45,6 +82,11 @@ public class RedisCluster implements Redis {
 
     @Override
     public void start() throws EmbeddedRedisException {
+        if (parallelism > 0) {
+            startInParallel();
+            return;
+        }
+
         for (Redis redis : servers) {
             redis.start();
         }
@@ -70,6 +112,121 @@ public class RedisCluster implements Redis {
         setReplicates(masters);
     }
 
+    /**
+     * Start the nodes, assign the slots, meet and replicate in parallel, polling the state of the cluster instead of
+     * checking it every second.
+     */
+    private void startInParallel() {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxNumOfRetries);
+
+        inParallel(servers, new NodeTask<Redis>() {
+            @Override
+            public void run(Redis redis) {
+                redis.start();
+            }
+        });
+
+        List<MasterNode> masters = planMasters();
+        inParallel(masters, new NodeTask<MasterNode>() {
+            @Override
+            public void run(MasterNode master) {
+                assignSlots(master);
+            }
+        });
+
+        final int portFirstServer = servers.get(0).ports().get(0);
+        inParallel(servers.subList(1, servers.size()), new NodeTask<Redis>() {
+            @Override
+            public void run(Redis redis) {
+                try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                    client.clusterMeet(LOCAL_HOST, portFirstServer);
+                }
+            }
+        });
+
+        logger.debug("Starting redis cluster (waiting for the {} nodes to know each other)", servers.size());
+        while (!allNodesInfo("cluster_known_nodes:" + servers.size())) {
+            pause(deadline, "the " + servers.size() + " nodes of the redis cluster to know each other");
+        }
+
+        List<Replication> replications = new ArrayList<>();
+        for (MasterNode master : masters) {
+            for (Redis slave : master.getSlaves()) {
+                replications.add(new Replication(slave, master.getNodeId()));
+            }
+        }
+        inParallel(replications, new NodeTask<Replication>() {
+            @Override
+            public void run(Replication replication) {
+                try (Client client = new Client(LOCAL_HOST, replication.slave.ports().get(0))) {
+                    client.clusterReplicate(replication.masterId);
+                }
+            }
+        });
+
+        while (!allNodesInfo("cluster_state:ok")) {
+            pause(deadline, "every node of the redis cluster to be ok");
+        }
+        logger.debug("Redis cluster started");
+    }
+
+    private boolean allNodesInfo(String expected) {
+        for (Redis redis : servers) {
+            try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                if (!client.clusterInfo().contains(expected)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private <T> void inParallel(List<T> items, final NodeTask<T> task) {
+        if (items.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()), THREAD_FACTORY);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final T item : items) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        task.run(item);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EmbeddedRedisException) {
+                throw (EmbeddedRedisException) e.getCause();
+            }
+            throw new EmbeddedRedisException("Could not start redis cluster", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface NodeTask<T> {
+        void run(T item);
+    }
+
+    private static class Replication {
+        private final Redis slave;
+        private final String masterId;
+
+        private Replication(Redis slave, String masterId) {
+            this.slave = slave;
+            this.masterId = masterId;
+        }
+    }
+
     @Override
     public boolean isActive() {
         for (Redis redis : servers) {
@@ -81,10 +238,622 @@ public class RedisCluster implements Redis {
         return isClusterActive();
     }
 
+    /**
+     * Set the given parameters with {@code CONFIG SET} on every running node, and on the nodes added afterward.
+     *
+     * @see RedisConfig#applyTo(Redis)
+     */
+    public void configure(RedisConfig config) throws EmbeddedRedisException {
+        config.applyTo(this);
+        liveConfig = liveConfig != null ? liveConfig.with(config) : config;
+    }
+
+    /**
+     * Stop every node at the same time, each following its own {@link StopPolicy}.
+     */
     @Override
     public void stop() throws EmbeddedRedisException {
+        stop(null);
+    }
+
+    /**
+     * Stop every node at the same time following the given policy, e.g. {@link StopPolicy#FAST} when the data is
+     * not needed anymore.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each node
+     */
+    public void stop(StopPolicy policy) throws EmbeddedRedisException {
+        try {
+            Instances.stopAll(servers, policy);
+        } finally {
+            releasePorts();
+        }
+    }
+
+    private void releasePorts() {
+        if (portProvider instanceof ReservingPortProvider) {
+            ((ReservingPortProvider) portProvider).release(ports());
+        }
+    }
+
+    /**
+     * Reset every node, then check that all the slots are still assigned and served.
+     */
+    @Override
+    public void reset() throws EmbeddedRedisException {
+        for (Redis redis : servers) {
+            Instances.reset(redis);
+        }
+
+        for (Redis redis : servers) {
+            try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                String info = client.clusterInfo();
+                if (!info.contains("cluster_state:ok") || !info.contains("cluster_slots_ok:" + CLUSTER_HASH_SLOTS_NUMBER)) {
+                    throw new EmbeddedRedisException("Redis cluster node on port " + redis.ports().get(0)
+                            + " is not serving all the slots after reset:\n" + info);
+                }
+            }
+        }
+    }
+
+    /**
+     * Capture the dataset of every master under the given name, replacing any checkpoint of the same name.
+     *
+     * @see Checkpoint
+     */
+    public void checkpoint(String name) {
+        Map<Integer, Checkpoint> checkpoint = new HashMap<>();
+        for (Redis redis : servers) {
+            int port = redis.ports().get(0);
+            if (isMaster(port)) {
+                checkpoint.put(port, Checkpoint.capture(LOCAL_HOST, port));
+            }
+        }
+        checkpoints.put(name, checkpoint);
+    }
+
+    /**
+     * Replace the dataset of every master with the one captured by {@link #checkpoint(String)}.
+     * The masters must be the same as when the checkpoint was captured.
+     */
+    public void rollback(String name) {
+        Map<Integer, Checkpoint> checkpoint = checkpoints.get(name);
+        if (checkpoint == null) {
+            throw new EmbeddedRedisException("No checkpoint named " + name);
+        }
+        for (Integer port : checkpoint.keySet()) {
+            if (!isMaster(port)) {
+                throw new EmbeddedRedisException("Redis cluster node on port " + port + " is not a master anymore, cannot roll back to " + name);
+            }
+        }
+        for (Map.Entry<Integer, Checkpoint> node : checkpoint.entrySet()) {
+            node.getValue().restore(LOCAL_HOST, node.getKey());
+        }
+    }
+
+    public void dropCheckpoint(String name) {
+        checkpoints.remove(name);
+    }
+
+    /**
+     * @return every node of the cluster, running or not
+     */
+    public List<Redis> servers() {
+        return new ArrayList<>(servers);
+    }
+
+    /**
+     * @return the nodes of the cluster, as seen by its first running node
+     */
+    public List<ClusterNode> nodes() {
+        for (Redis redis : servers) {
+            if (redis.isActive()) {
+                return nodes(redis.ports().get(0));
+            }
+        }
+        throw new EmbeddedRedisException("No node of the redis cluster is running");
+    }
+
+    /**
+     * @return the running masters of the cluster
+     */
+    public List<Redis> masters() {
+        List<Redis> masters = new ArrayList<>();
+        for (ClusterNode node : nodes()) {
+            if (node.isMaster() && !node.isFailing()) {
+                masters.add(server(node.port()));
+            }
+        }
+        return masters;
+    }
+
+    /**
+     * @return the replicas of the given master
+     */
+    public List<Redis> replicas(Redis master) {
+        String masterId = myself(master.ports().get(0)).id();
+        List<Redis> replicas = new ArrayList<>();
+        for (ClusterNode node : nodes()) {
+            if (masterId.equals(node.masterId())) {
+                replicas.add(server(node.port()));
+            }
+        }
+        return replicas;
+    }
+
+    /**
+     * Start a new master, without any slot, and add it to the cluster.
+     *
+     * @see #addMaster(boolean)
+     */
+    public RedisServer addMaster() throws EmbeddedRedisException {
+        return addMaster(false);
+    }
+
+    /**
+     * Start a new master from the server builder of the cluster, on a port of its port provider (or an ephemeral
+     * port when built with a ports collection), and add it to the cluster.
+     *
+     * @param rebalance whether to migrate slots to the new master until every master serves as many slots
+     * @return the new master
+     */
+    public RedisServer addMaster(boolean rebalance) throws EmbeddedRedisException {
+        RedisServer master = addNode();
+        if (rebalance) {
+            rebalanceTo(master);
+        }
+        return master;
+    }
+
+    /**
+     * Start a new node from the server builder of the cluster and add it to the cluster as a replica of the given
+     * master.
+     *
+     * @return the new replica
+     */
+    public RedisServer addReplica(Redis master) throws EmbeddedRedisException {
+        String masterId = myself(master.ports().get(0)).id();
+        RedisServer replica = addNode();
+        int replicaPort = replica.ports().get(0);
+        try (Client client = new Client(LOCAL_HOST, replicaPort)) {
+            client.clusterReplicate(masterId);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxNumOfRetries);
+        while (!masterId.equals(myself(replicaPort).masterId())) {
+            pause(deadline, "node on port " + replicaPort + " to replicate " + masterId);
+        }
+        return replica;
+    }
+
+    /**
+     * Remove a node from the cluster: the slots of a master are first migrated to the other masters and its replicas
+     * attached to another master, then the node is stopped and forgotten by every other node.
+     */
+    public void removeNode(Redis node) throws EmbeddedRedisException {
+        int port = node.ports().get(0);
+        ClusterNode removed = myself(port);
+
+        if (removed.isMaster()) {
+            List<Redis> otherMasters = masters();
+            otherMasters.remove(node);
+            if (otherMasters.isEmpty()) {
+                throw new EmbeddedRedisException("Cannot remove the last master of the redis cluster");
+            }
+            drain(node, removed.slotCount(), otherMasters);
+            for (Redis replica : replicas(node)) {
+                try (Client client = new Client(LOCAL_HOST, replica.ports().get(0))) {
+                    client.clusterReplicate(myself(leastReplicated(otherMasters).ports().get(0)).id());
+                }
+            }
+        }
+
+        node.stop();
+        servers.remove(node);
+        for (Redis redis : servers) {
+            if (redis.isActive()) {
+                try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                    client.clusterForget(removed.id());
+                }
+            }
+        }
+        if (portProvider instanceof ReservingPortProvider) {
+            ((ReservingPortProvider) portProvider).release(port);
+        }
+    }
+
+    /**
+     * Bring a restarted node back into the cluster with the role the other nodes knew it with.
+     * <p>
+     * A node restarted with its cluster configuration file knows its id, role and peers, and rejoins on its own. A
+     * node which lost it comes back as a new empty master: its former entry is forgotten, then it replicates the
+     * master it replicated, or takes back the slots it served if no replica took them over, or else becomes a
+     * replica of the least replicated master.
+     *
+     * @param node    a node of this cluster, running again
+     * @param timeout the maximum time in milliseconds to wait for every node to be ok
+     */
+    public void rejoin(Redis node, long timeout) throws EmbeddedRedisException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        int port = node.ports().get(0);
+        String nodeId = myself(port).id();
+
+        Redis peer = null;
+        for (Redis redis : servers) {
+            if (redis != node && redis.isActive()) {
+                peer = redis;
+                break;
+            }
+        }
+        if (peer == null) {
+            throw new EmbeddedRedisException("No other node of the redis cluster is running");
+        }
+        List<ClusterNode> view = nodes(peer.ports().get(0));
+        ClusterNode previous = previousEntry(view, nodeId, port);
+
+        try (Client client = new Client(LOCAL_HOST, port)) {
+            client.clusterMeet(LOCAL_HOST, peer.ports().get(0));
+        }
+
+        String masterId = null;
+        if (previous != null && !previous.id().equals(nodeId)) {
+            logger.debug("Node on port {} came back as {} instead of {}", port, nodeId, previous.id());
+            for (Redis redis : servers) {
+                if (redis != node && redis.isActive()) {
+                    try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                        client.clusterForget(previous.id());
+                    }
+                }
+            }
+            while (!isKnownByAll(nodeId)) {
+                pause(deadline, "every node to know node " + nodeId);
+            }
+
+            if (previous.isReplica()) {
+                masterId = currentMaster(view, previous.masterId());
+            } else if (previous.slotCount() > 0) {
+                try (Client client = new Client(LOCAL_HOST, port)) {
+                    for (SlotRange range : previous.slotRanges()) {
+                        client.clusterAddSlots(range.getRange());
+                    }
+                }
+            } else {
+                List<Redis> masters = masters();
+                masters.remove(node);
+                masterId = myself(leastReplicated(masters).ports().get(0)).id();
+            }
+        }
+
+        if (masterId != null) {
+            try (Client client = new Client(LOCAL_HOST, port)) {
+                client.clusterReplicate(masterId);
+            }
+            while (!masterId.equals(myself(port).masterId())) {
+                pause(deadline, "node on port " + port + " to replicate " + masterId);
+            }
+        }
+
+        while (!isKnownByAll(nodeId) || !allActiveNodesInfo("cluster_state:ok")) {
+            pause(deadline, "node on port " + port + " to rejoin the redis cluster");
+        }
+    }
+
+    /**
+     * @return the entry of a restarted node in the view of another node: the one with the same id if the node kept
+     * its configuration, else the one with its port
+     */
+    private static ClusterNode previousEntry(List<ClusterNode> view, String nodeId, int port) {
+        ClusterNode samePort = null;
+        for (ClusterNode entry : view) {
+            if (entry.id().equals(nodeId)) {
+                return entry;
+            }
+            if (entry.port() == port && !entry.flags().contains("handshake")) {
+                samePort = entry;
+            }
+        }
+        return samePort;
+    }
+
+    /**
+     * @return the id of the given master, or of the master it now replicates if one of its replicas took over
+     */
+    private static String currentMaster(List<ClusterNode> view, String masterId) {
+        ClusterNode master = node(view, masterId);
+        return master.isReplica() ? master.masterId() : masterId;
+    }
+
+    private boolean allActiveNodesInfo(String expected) {
         for (Redis redis : servers) {
-            redis.stop();
+            if (!redis.isActive()) {
+                continue;
+            }
+            try (Client client = new Client(LOCAL_HOST, redis.ports().get(0))) {
+                if (!client.clusterInfo().contains(expected)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private RedisServer addNode() {
+        if (serverTemplate == null) {
+            throw new EmbeddedRedisException("Only a redis cluster built with a RedisCluster.Builder can grow");
+        }
+        PortProvider provider = portProvider != null ? portProvider : new EphemeralPortProvider();
+        RedisServer node = newNode(serverTemplate, portProvider, provider.next());
+        node.start();
+        if (liveConfig != null) {
+            liveConfig.applyTo(node);
+        }
+        servers.add(node);
+
+        int port = node.ports().get(0);
+        try (Client client = new Client(LOCAL_HOST, port)) {
+            for (Redis redis : servers) {
+                if (redis != node && redis.isActive()) {
+                    client.clusterMeet(LOCAL_HOST, redis.ports().get(0));
+                    break;
+                }
+            }
+        }
+
+        String nodeId = myself(port).id();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxNumOfRetries);
+        while (!isKnownByAll(nodeId)) {
+            pause(deadline, "every node to know node " + nodeId);
+        }
+        return node;
+    }
+
+    private boolean isKnownByAll(String nodeId) {
+        for (Redis redis : servers) {
+            if (!redis.isActive()) {
+                continue;
+            }
+            boolean known = false;
+            for (ClusterNode node : nodes(redis.ports().get(0))) {
+                if (node.id().equals(nodeId) && !node.flags().contains("handshake")) {
+                    known = true;
+                }
+            }
+            if (!known) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebalanceTo(Redis newMaster) {
+        List<Redis> masters = masters();
+        int target = CLUSTER_HASH_SLOTS_NUMBER / masters.size();
+        for (Redis master : masters) {
+            if (master == newMaster) {
+                continue;
+            }
+            int excess = myself(master.ports().get(0)).slotCount() - target;
+            if (excess > 0) {
+                reshard(master, newMaster).slotCount(excess).run();
+            }
+        }
+    }
+
+    private void drain(Redis master, int slotCount, List<Redis> targets) {
+        int share = (slotCount + targets.size() - 1) / targets.size();
+        int remaining = slotCount;
+        for (Redis target : targets) {
+            int count = Math.min(share, remaining);
+            if (count > 0) {
+                reshard(master, target).slotCount(count).run();
+                remaining -= count;
+            }
+        }
+    }
+
+    private Redis leastReplicated(List<Redis> masters) {
+        Redis least = null;
+        int leastCount = Integer.MAX_VALUE;
+        for (Redis master : masters) {
+            int count = replicas(master).size();
+            if (count < leastCount) {
+                least = master;
+                leastCount = count;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * Prepare the migration of slots from a master to another, to be configured then run.
+     *
+     * @see Resharding
+     */
+    public Resharding reshard(Redis source, Redis target) {
+        return new Resharding(this, source, target);
+    }
+
+    /**
+     * Promote a replica with {@code CLUSTER FAILOVER}, then wait for every running node to agree that it owns
+     * the slots of its former master.
+     *
+     * @param replica the replica to promote
+     * @param mode    the option of {@code CLUSTER FAILOVER}
+     * @param timeout the maximum time in milliseconds to wait for the failover to complete
+     * @return the durations of the phases of the failover
+     * @throws EmbeddedRedisException if the node is not a replica, or if the failover did not complete in time
+     */
+    public ClusterFailoverReport failover(Redis replica, ClusterFailoverMode mode, long timeout) throws EmbeddedRedisException {
+        int replicaPort = replica.ports().get(0);
+        ClusterNode self = myself(replicaPort);
+        if (!self.isReplica()) {
+            throw new EmbeddedRedisException("Redis cluster node on port " + replicaPort + " is not a replica");
+        }
+        ClusterNode oldMaster = node(nodes(replicaPort), self.masterId());
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        try (RawClient client = new RawClient(LOCAL_HOST, replicaPort)) {
+            if (mode == ClusterFailoverMode.DEFAULT) {
+                client.status(Protocol.Command.CLUSTER, "FAILOVER");
+            } else {
+                client.status(Protocol.Command.CLUSTER, "FAILOVER", mode.name());
+            }
+        }
+
+        awaitPromotion(Collections.singletonList(replicaPort), deadline);
+        long promotedAt = System.nanoTime();
+        awaitConvergence(self.id(), oldMaster.slotRanges(), deadline);
+        long convergedAt = System.nanoTime();
+
+        return new ClusterFailoverReport(oldMaster.port(), replicaPort, 0, promotedAt - start, convergedAt - promotedAt);
+    }
+
+    /**
+     * Kill a master with {@code SIGKILL}, as a crash would, then wait for one of its replicas to be promoted and for
+     * every running node to agree that it owns the slots of the killed master. The killed master is not restarted.
+     *
+     * @param master  the master to kill
+     * @param timeout the maximum time in milliseconds to wait for the failover to complete
+     * @return the durations of the phases of the failover
+     * @throws EmbeddedRedisException if the node is not a master, or if the failover did not complete in time
+     */
+    public ClusterFailoverReport killMaster(Redis master, long timeout) throws EmbeddedRedisException {
+        int masterPort = master.ports().get(0);
+        List<ClusterNode> view = nodes(masterPort);
+        ClusterNode oldMaster = myself(view);
+        if (!oldMaster.isMaster()) {
+            throw new EmbeddedRedisException("Redis cluster node on port " + masterPort + " is not a master");
+        }
+        List<Integer> replicaPorts = new ArrayList<>();
+        for (ClusterNode node : view) {
+            if (oldMaster.id().equals(node.masterId())) {
+                replicaPorts.add(node.port());
+            }
+        }
+        if (replicaPorts.isEmpty()) {
+            throw new EmbeddedRedisException("Redis cluster node on port " + masterPort + " has no replica to fail over to");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        if (master instanceof AbstractRedisInstance) {
+            ((AbstractRedisInstance) master).crash();
+        } else {
+            master.stop();
+        }
+
+        awaitFailure(oldMaster.id(), deadline);
+        long detectedAt = System.nanoTime();
+        int newMasterPort = awaitPromotion(replicaPorts, deadline);
+        long promotedAt = System.nanoTime();
+        awaitConvergence(myself(newMasterPort).id(), oldMaster.slotRanges(), deadline);
+        long convergedAt = System.nanoTime();
+
+        return new ClusterFailoverReport(masterPort, newMasterPort,
+                detectedAt - start, promotedAt - detectedAt, convergedAt - promotedAt);
+    }
+
+    private void awaitFailure(String nodeId, long deadline) {
+        while (true) {
+            for (Redis redis : servers) {
+                if (redis.isActive() && node(nodes(redis.ports().get(0)), nodeId).flags().contains("fail")) {
+                    return;
+                }
+            }
+            pause(deadline, "node " + nodeId + " to be flagged as failed");
+        }
+    }
+
+    private int awaitPromotion(List<Integer> candidatePorts, long deadline) {
+        while (true) {
+            for (Integer port : candidatePorts) {
+                if (server(port).isActive() && myself(port).isMaster()) {
+                    return port;
+                }
+            }
+            pause(deadline, "one of the nodes on ports " + candidatePorts + " to be promoted");
+        }
+    }
+
+    private void awaitConvergence(String masterId, List<SlotRange> slots, long deadline) {
+        while (!isConverged(masterId, slots)) {
+            pause(deadline, "all the nodes to agree on master " + masterId + " owning slots " + slots);
+        }
+    }
+
+    private boolean isConverged(String masterId, List<SlotRange> slots) {
+        for (Redis redis : servers) {
+            if (!redis.isActive()) {
+                continue;
+            }
+            ClusterNode master = node(nodes(redis.ports().get(0)), masterId);
+            if (!master.isMaster()) {
+                return false;
+            }
+            for (SlotRange range : slots) {
+                for (int slot : range.getRange()) {
+                    if (!master.servesSlot(slot)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void pause(long deadline, String awaited) {
+        if (System.nanoTime() > deadline) {
+            throw new EmbeddedRedisException("Timed out waiting for " + awaited);
+        }
+        try {
+            Thread.sleep(POLL_INTERVAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException(e.getMessage(), e);
+        }
+    }
+
+    List<ClusterNode> nodes(int port) {
+        try (Client client = new Client(LOCAL_HOST, port)) {
+            return ClusterNode.parse(client.clusterNodes());
+        }
+    }
+
+    ClusterNode myself(int port) {
+        return myself(nodes(port));
+    }
+
+    private static ClusterNode myself(List<ClusterNode> nodes) {
+        for (ClusterNode node : nodes) {
+            if (node.isMyself()) {
+                return node;
+            }
+        }
+        throw new EmbeddedRedisException("No node flagged as myself in " + nodes);
+    }
+
+    static ClusterNode node(List<ClusterNode> nodes, String id) {
+        for (ClusterNode node : nodes) {
+            if (node.id().equals(id)) {
+                return node;
+            }
+        }
+        throw new EmbeddedRedisException("Unknown redis cluster node " + id);
+    }
+
+    Redis server(int port) {
+        for (Redis redis : servers) {
+            if (redis.ports().contains(port)) {
+                return redis;
+            }
+        }
+        throw new EmbeddedRedisException("No node of the redis cluster is listening on port " + port);
+    }
+
+    private boolean isMaster(int port) {
+        try (Client client = new Client(LOCAL_HOST, port)) {
+            return client.isMaster();
         }
     }
 
@@ -131,28 +900,24 @@ public class RedisCluster implements Redis {
     }
 
     private List<MasterNode> allocSlots() {
+        List<MasterNode> masters = planMasters();
+        for (MasterNode master : masters) {
+            assignSlots(master);
+        }
+        return masters;
+    }
+
+    private List<MasterNode> planMasters() {
         int nodesCount = servers.size();
         int mastersCount = nodesCount / (numOfReplicates + 1);
 
         List<MasterNode> masters = new ArrayList<>(mastersCount);
 
         // alloc slots on masters
-        int slotPerNode = CLUSTER_HASH_SLOTS_NUMBER / mastersCount;
-        int first = 0;
-        double cursor = 0.0;
+        List<List<SlotRange>> allocation = slotAllocator.allocate(mastersCount);
+        validateAllocation(allocation, mastersCount);
         for (int i = 0; i < mastersCount; i++) {
-            int last = (int) Math.round(cursor + slotPerNode - 1);
-            if (last > CLUSTER_HASH_SLOTS_NUMBER || i == mastersCount - 1) {
-                last = CLUSTER_HASH_SLOTS_NUMBER - 1;
-            }
-
-            //Min step is 1.
-            if (last < first)
-                last = first;
-
-            masters.add(new MasterNode(servers.get(i), new SlotRange(first, last)));
-            first = last + 1;
-            cursor += slotPerNode;
+            masters.add(new MasterNode(servers.get(i), allocation.get(i)));
         }
 
         int iter = 0;
@@ -166,21 +931,49 @@ public class RedisCluster implements Redis {
             }
         }
 
+        return masters;
+    }
 
-        for (MasterNode master : masters) {
-            try (Client jedis = new Client(LOCAL_HOST, master.getMaster().ports().get(0))) {
-                // Add slots
-                jedis.clusterAddSlots(master.getSlotRange().getRange());
+    private void assignSlots(MasterNode master) {
+        try (Client jedis = new Client(LOCAL_HOST, master.getMaster().ports().get(0))) {
+            // Add slots
+            for (SlotRange range : master.getSlotRanges()) {
+                jedis.clusterAddSlots(range.getRange());
+            }
 
-                // Get node id
-                String curNodeId = jedis.getNodeId();
+            // Get node id
+            String curNodeId = jedis.getNodeId();
 
-                logger.debug("Master node: {} with slots {}", curNodeId, master.getSlotRange());
+            logger.debug("Master node: {} with slots {}", curNodeId, master.getSlotRanges());
 
-                master.setNodeId(curNodeId);
+            master.setNodeId(curNodeId);
+        }
+    }
+
+    private void validateAllocation(List<List<SlotRange>> allocation, int mastersCount) {
+        if (allocation.size() != mastersCount) {
+            throw new EmbeddedRedisException("The slot allocator " + slotAllocator + " allocated slots to "
+                    + allocation.size() + " masters instead of " + mastersCount);
+        }
+        boolean[] allocated = new boolean[CLUSTER_HASH_SLOTS_NUMBER];
+        for (List<SlotRange> ranges : allocation) {
+            for (SlotRange range : ranges) {
+                if (range.first() < 0 || range.last() >= CLUSTER_HASH_SLOTS_NUMBER || range.first() > range.last()) {
+                    throw new EmbeddedRedisException("The slot allocator " + slotAllocator + " allocated invalid slots " + range);
+                }
+                for (int slot = range.first(); slot <= range.last(); slot++) {
+                    if (allocated[slot]) {
+                        throw new EmbeddedRedisException("The slot allocator " + slotAllocator + " allocated slot " + slot + " twice");
+                    }
+                    allocated[slot] = true;
+                }
+            }
+        }
+        for (int slot = 0; slot < CLUSTER_HASH_SLOTS_NUMBER; slot++) {
+            if (!allocated[slot]) {
+                throw new EmbeddedRedisException("The slot allocator " + slotAllocator + " did not allocate slot " + slot);
             }
         }
-        return masters;
     }
 
     private void setReplicates(List<MasterNode> masters) {
@@ -197,10 +990,31 @@ public class RedisCluster implements Redis {
         }
     }
 
+    private static RedisServer newNode(RedisServer.Builder serverBuilder, PortProvider portProvider, int port) {
+        RedisServer.Builder builder = serverBuilder.copy();
+        if (portProvider != null) {
+            // Nodes recover from port conflicts with ports of the cluster provider
+            builder.port(portProvider);
+        }
+
+        // Named after the node rather than its port, which changes on a port conflict at startup and may then be
+        // taken by another node
+        String node = Affinity.jvmPid() + "-" + NODE_SEQUENCE.incrementAndGet();
+        builder.setting("cluster-enabled yes");
+        builder.setting("cluster-config-file nodes-" + node + ".conf");
+        builder.setting("cluster-node-timeout 2000");
+        builder.setting("appendonly yes");
+        builder.setting("appendfilename appendonly-" + node + ".aof");
+        builder.setting("dbfilename dump-" + node + ".rdb");
+
+        return builder.port(port).build();
+    }
+
     @SuppressWarnings("unused")
     public static class Builder {
         private static final int DEFAULT_REPLICATES = 1;
         private static final int DEFAULT_NUMBER_RETRIES = 5;
+        private static final int DEFAULT_SCALE_PARALLELISM = 32;
 
         private Collection<Integer> ports;
         private PortProvider portProvider;
@@ -210,6 +1024,12 @@ public class RedisCluster implements Redis {
         private int numOfRetries;
 
         private RedisServer.Builder serverBuilder = new RedisServer.Builder();
+        private SlotAllocator slotAllocator = new EvenSlotAllocator();
+        private int parallelism;
+        private CpuProvider cpuProvider;
+        private Integer nice;
+        private StopPolicy stopPolicy;
+        private RedisConfig config;
 
         public Builder withServerBuilder(RedisServer.Builder serverBuilder) {
             this.serverBuilder = serverBuilder;
@@ -241,18 +1061,157 @@ public class RedisCluster implements Redis {
             return this;
         }
 
+        /**
+         * Build and bootstrap large clusters quickly: the number of nodes is {@code numOfMasters * (numOfReplicates + 1)}
+         * with a port provider too, ports are reserved in one batch, and nodes are started, assigned their slots, met and
+         * replicated in parallel with up to {@value #DEFAULT_SCALE_PARALLELISM} threads. {@code numOfRetries} is then the
+         * number of seconds to wait for the whole bootstrap.
+         */
+        public Builder scaleMode() {
+            return scaleMode(DEFAULT_SCALE_PARALLELISM);
+        }
+
+        /**
+         * @param parallelism the maximum number of nodes bootstrapped at the same time
+         * @see #scaleMode()
+         */
+        public Builder scaleMode(int parallelism) {
+            if (parallelism < 1) {
+                throw new EmbeddedRedisException("RedisCluster.Builder requires a parallelism of at least one.");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Pin the nodes to CPUs of the given provider, e.g. a {@link redis.embedded.affinity.CpuSpreader} to put them
+         * on distinct cores, instead of the CPUs of the server builder.
+         *
+         * @see RedisServer.Builder#cpuAffinity(CpuProvider)
+         */
+        public Builder cpuAffinity(CpuProvider cpuProvider) {
+            this.cpuProvider = cpuProvider;
+            return this;
+        }
+
+        /**
+         * Add the parameters of the given configuration to the settings of the nodes, those of a later call
+         * overriding those of an earlier one.
+         *
+         * @see RedisServer.Builder#config(RedisConfig)
+         */
+        public Builder config(RedisConfig config) {
+            this.config = (this.config != null) ? this.config.with(config) : config;
+            return this;
+        }
+
+        /**
+         * Stop the nodes following the given policy, instead of the one of the server builder.
+         *
+         * @see RedisServer.Builder#stopPolicy(StopPolicy)
+         */
+        public Builder stopPolicy(StopPolicy stopPolicy) {
+            this.stopPolicy = stopPolicy;
+            return this;
+        }
+
+        /**
+         * Start the nodes with the given nice level, instead of the one of the server builder.
+         *
+         * @see RedisServer.Builder#nice(int)
+         */
+        public Builder nice(int nice) {
+            if (nice < Affinity.MIN_NICE || nice > Affinity.MAX_NICE) {
+                throw new RedisBuildingException("Nice level " + nice + " is not in [" + Affinity.MIN_NICE + ", " + Affinity.MAX_NICE + "]");
+            }
+            this.nice = nice;
+            return this;
+        }
+
+        /**
+         * How the slots are split between the masters at startup, evenly by default.
+         */
+        public Builder slotAllocator(SlotAllocator slotAllocator) {
+            this.slotAllocator = slotAllocator;
+            return this;
+        }
+
+        /**
+         * Two builders with the same fingerprint build clusters of the same shape and configuration.
+         *
+         * @return a description of everything this builder configures
+         */
+        public String fingerprint() {
+            return "RedisCluster{" +
+                    "ports=" + (ports != null ? ports : portProvider) +
+                    ", numOfMasters=" + numOfMasters +
+                    ", numOfReplicates=" + numOfReplicates +
+                    ", numOfRetries=" + numOfRetries +
+                    ", slotAllocator=" + slotAllocator +
+                    ", parallelism=" + parallelism +
+                    ", server=" + serverTemplate().fingerprint() +
+                    '}';
+        }
+
+        public RedisCluster.Builder copy() {
+            Builder newBuilder = new Builder();
+            newBuilder.ports = (ports != null) ? new ArrayList<>(ports) : null;
+            // The provider is shared so that copies do not hand out the same ports
+            newBuilder.portProvider = portProvider;
+            newBuilder.numOfMasters = numOfMasters;
+            newBuilder.numOfReplicates = numOfReplicates;
+            newBuilder.numOfRetries = numOfRetries;
+            newBuilder.serverBuilder = serverBuilder.copy();
+            newBuilder.slotAllocator = slotAllocator;
+            newBuilder.parallelism = parallelism;
+            // The provider is shared so that copies spread their processes
+            newBuilder.cpuProvider = cpuProvider;
+            newBuilder.nice = nice;
+            newBuilder.stopPolicy = stopPolicy;
+            newBuilder.config = config;
+            return newBuilder;
+        }
+
         public RedisCluster build() {
-            final List<Redis> servers = buildServers();
+            final RedisServer.Builder serverTemplate = serverTemplate();
+            final List<Redis> servers = buildServers(serverTemplate);
             if (numOfReplicates == 0) {
                 numOfReplicates = DEFAULT_REPLICATES;
             }
             if (numOfRetries == 0) {
                 numOfRetries = DEFAULT_NUMBER_RETRIES;
             }
-            return new RedisCluster(servers, numOfReplicates, numOfRetries);
+            RedisCluster cluster = new RedisCluster(servers, numOfReplicates, numOfRetries);
+            if (ports == null) {
+                cluster.portProvider = portProvider;
+            }
+            cluster.serverTemplate = serverTemplate;
+            cluster.slotAllocator = slotAllocator;
+            cluster.parallelism = parallelism;
+            return cluster;
         }
 
-        private List<Redis> buildServers() {
+        /**
+         * @return a copy of the server builder with the settings of this builder, the given one being left unchanged
+         */
+        private RedisServer.Builder serverTemplate() {
+            RedisServer.Builder template = serverBuilder.copy();
+            if (cpuProvider != null) {
+                template.cpuAffinity(cpuProvider);
+            }
+            if (nice != null) {
+                template.nice(nice);
+            }
+            if (stopPolicy != null) {
+                template.stopPolicy(stopPolicy);
+            }
+            if (config != null) {
+                template.config(config);
+            }
+            return template;
+        }
+
+        private List<Redis> buildServers(RedisServer.Builder serverTemplate) {
             List<Redis> servers = new ArrayList<>();
 
             if (ports == null) {
@@ -261,30 +1220,39 @@ public class RedisCluster implements Redis {
                     throw new EmbeddedRedisException("RedisCluster.Builder requires a port provider or a ports collection.");
                 } else if (numOfMasters == 0) {
                     throw new EmbeddedRedisException("RedisCluster.Builder requires the number of master with a port provider.");
+                } else if (portProvider instanceof ReservingPortProvider) {
+                    // Reserve the ports of all the nodes in a single contiguous block
+                    for (Integer port : ((ReservingPortProvider) portProvider).next(numOfNodes())) {
+                        servers.add(buildNode(serverTemplate, port));
+                    }
+                } else if (parallelism > 0) {
+                    for (int i = numOfNodes(); i > 0; i--) {
+                        if (!portProvider.hasNext()) {
+                            throw new EmbeddedRedisException("RedisCluster.Builder port provider has not enough ports for " + numOfNodes() + " nodes.");
+                        }
+                        servers.add(buildNode(serverTemplate, portProvider.next()));
+                    }
                 } else {
                     while (portProvider.hasNext()) {
-                        servers.add(buildNode(portProvider.next()));
+                        servers.add(buildNode(serverTemplate, portProvider.next()));
                     }
                 }
             } else {
                 for (Integer port : ports) {
-                    servers.add(buildNode(port));
+                    servers.add(buildNode(serverTemplate, port));
                 }
             }
 
             return servers;
         }
 
-        private RedisServer buildNode(Integer port) {
-            RedisServer.Builder builder = serverBuilder.copy();
-
-            builder.setting("cluster-enabled yes");
-            builder.setting("cluster-config-file nodes-" + port + ".conf");
-            builder.setting("cluster-node-timeout 2000");
-            builder.setting("appendonly yes");
-            builder.setting("dbfilename dump-" + port + ".rdb");
+        private int numOfNodes() {
+            int replicates = numOfReplicates == 0 ? DEFAULT_REPLICATES : numOfReplicates;
+            return numOfMasters * (replicates + 1);
+        }
 
-            return builder.port(port).build();
+        private RedisServer buildNode(RedisServer.Builder serverTemplate, Integer port) {
+            return newNode(serverTemplate, ports == null ? portProvider : null, port);
         }
     }
 
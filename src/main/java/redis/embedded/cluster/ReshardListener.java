@@ -0,0 +1,8 @@
+package redis.embedded.cluster;
+
+/**
+ * Notified by a {@link Resharding} once each slot has been migrated, on the resharding thread.
+ */
+public interface ReshardListener {
+    void onSlotMigrated(ReshardProgress progress);
+}
@@ -0,0 +1,63 @@
+package redis.embedded.cluster;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The progress of a {@link Resharding}, after the migration of a slot.
+ */
+public class ReshardProgress {
+    private final int slot;
+    private final int slotKeys;
+    private final int slotsDone;
+    private final int slotsTotal;
+    private final long keysMoved;
+    private final long elapsedNanos;
+
+    ReshardProgress(int slot, int slotKeys, int slotsDone, int slotsTotal, long keysMoved, long elapsedNanos) {
+        this.slot = slot;
+        this.slotKeys = slotKeys;
+        this.slotsDone = slotsDone;
+        this.slotsTotal = slotsTotal;
+        this.keysMoved = keysMoved;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the slot just migrated
+     */
+    public int slot() {
+        return slot;
+    }
+
+    /**
+     * @return the number of keys of the slot just migrated
+     */
+    public int slotKeys() {
+        return slotKeys;
+    }
+
+    public int slotsDone() {
+        return slotsDone;
+    }
+
+    public int slotsTotal() {
+        return slotsTotal;
+    }
+
+    /**
+     * @return the number of keys migrated since the start of the resharding
+     */
+    public long keysMoved() {
+        return keysMoved;
+    }
+
+    public long elapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "Slot " + slot + " migrated (" + slotsDone + "/" + slotsTotal + " slots, " + keysMoved + " keys in " +
+                elapsed(TimeUnit.MILLISECONDS) + "ms)";
+    }
+}
@@ -0,0 +1,225 @@
+package redis.embedded.cluster;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.embedded.Redis;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.util.RawClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The migration of slots from a master of a running {@link RedisCluster} to another, the way {@code redis-trib}
+ * reshards: for each slot, the target is set {@code IMPORTING} and the source {@code MIGRATING}, the keys of the slot
+ * are moved by batches with {@code MIGRATE ... KEYS}, then every master is told the new owner with
+ * {@code CLUSTER SETSLOT NODE}. Clients see {@code ASK} redirections during the migration of a slot and {@code MOVED}
+ * redirections afterwards.
+ * <p>
+ * Created by {@link RedisCluster#reshard(Redis, Redis)}, configured then {@link #run() run}.
+ */
+public class Resharding {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_MIGRATE_TIMEOUT = 60000;
+
+    private final RedisCluster cluster;
+    private final Redis source;
+    private final Redis target;
+    private final List<Integer> slots = new ArrayList<>();
+    private int slotCount;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long keysPerSecond;
+    private int migrateTimeout = DEFAULT_MIGRATE_TIMEOUT;
+    private boolean replace;
+    private ReshardListener listener;
+
+    Resharding(RedisCluster cluster, Redis source, Redis target) {
+        this.cluster = cluster;
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Migrate the slots between {@code first} and {@code last}, inclusive, all owned by the source.
+     */
+    public Resharding slots(int first, int last) {
+        if (first < 0 || last >= RedisCluster.CLUSTER_HASH_SLOTS_NUMBER || first > last) {
+            throw new EmbeddedRedisException("Invalid slot range [" + first + ", " + last + "]");
+        }
+        for (int slot = first; slot <= last; slot++) {
+            slots.add(slot);
+        }
+        return this;
+    }
+
+    /**
+     * Migrate the given number of slots, the first ones owned by the source.
+     */
+    public Resharding slotCount(int count) {
+        this.slotCount = count;
+        return this;
+    }
+
+    /**
+     * The number of keys moved by each {@code MIGRATE}, 100 by default.
+     */
+    public Resharding batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Cap the throughput of the migration to the given number of keys per second, zero for no cap.
+     */
+    public Resharding keysPerSecond(long keysPerSecond) {
+        this.keysPerSecond = keysPerSecond;
+        return this;
+    }
+
+    /**
+     * The timeout in milliseconds of each {@code MIGRATE}, one minute by default.
+     */
+    public Resharding migrateTimeout(int millis) {
+        this.migrateTimeout = millis;
+        return this;
+    }
+
+    /**
+     * Overwrite the keys already existing on the target, which otherwise fail the migration with {@code BUSYKEY}.
+     */
+    public Resharding replace(boolean replace) {
+        this.replace = replace;
+        return this;
+    }
+
+    public Resharding listener(ReshardListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Migrate the slots, blocking until done.
+     *
+     * @return the number of keys moved
+     * @throws EmbeddedRedisException if a slot is not owned by the source, or if a migration failed
+     */
+    public long run() throws EmbeddedRedisException {
+        int sourcePort = source.ports().get(0);
+        int targetPort = target.ports().get(0);
+        ClusterNode sourceNode = cluster.myself(sourcePort);
+        ClusterNode targetNode = cluster.myself(targetPort);
+        if (!sourceNode.isMaster() || !targetNode.isMaster()) {
+            throw new EmbeddedRedisException("Slots can only be migrated between masters, not from port " + sourcePort + " to port " + targetPort);
+        }
+        List<Integer> toMigrate = slotsToMigrate(sourceNode);
+        List<Integer> masterPorts = new ArrayList<>();
+        for (ClusterNode node : cluster.nodes(sourcePort)) {
+            if (node.isMaster() && !node.isFailing()) {
+                masterPorts.add(node.port());
+            }
+        }
+
+        long start = System.nanoTime();
+        long keysMoved = 0;
+        int slotsDone = 0;
+        try (Client sourceClient = new Client(LOCAL_HOST, sourcePort);
+             Client targetClient = new Client(LOCAL_HOST, targetPort);
+             RawClient migrateClient = new RawClient(LOCAL_HOST, sourcePort)) {
+            for (Integer slot : toMigrate) {
+                targetClient.clusterSetSlotImporting(slot, sourceNode.id());
+                sourceClient.clusterSetSlotMigrating(slot, targetNode.id());
+
+                int slotKeys = 0;
+                List<String> keys;
+                while (!(keys = sourceClient.clusterGetKeysInSlot(slot, batchSize)).isEmpty()) {
+                    migrate(migrateClient, targetPort, keys);
+                    slotKeys += keys.size();
+                    keysMoved += keys.size();
+                    throttle(start, keysMoved);
+                }
+
+                assignSlot(slot, targetNode.id(), targetPort, sourcePort, masterPorts);
+
+                slotsDone++;
+                if (listener != null) {
+                    listener.onSlotMigrated(new ReshardProgress(slot, slotKeys, slotsDone, toMigrate.size(),
+                            keysMoved, System.nanoTime() - start));
+                }
+            }
+        } catch (JedisDataException e) {
+            throw new EmbeddedRedisException("Resharding from port " + sourcePort + " to port " + targetPort + " failed", e);
+        }
+        return keysMoved;
+    }
+
+    private List<Integer> slotsToMigrate(ClusterNode sourceNode) {
+        List<Integer> toMigrate = new ArrayList<>(slots);
+        if (slotCount > 0) {
+            for (int slot = 0; slot < RedisCluster.CLUSTER_HASH_SLOTS_NUMBER && toMigrate.size() < slots.size() + slotCount; slot++) {
+                if (sourceNode.servesSlot(slot) && !slots.contains(slot)) {
+                    toMigrate.add(slot);
+                }
+            }
+        }
+        if (toMigrate.isEmpty()) {
+            throw new EmbeddedRedisException("No slot to migrate");
+        }
+        for (Integer slot : toMigrate) {
+            if (!sourceNode.servesSlot(slot)) {
+                throw new EmbeddedRedisException("Slot " + slot + " is not owned by the node on port " + sourceNode.port());
+            }
+        }
+        return toMigrate;
+    }
+
+    private void migrate(RawClient client, int targetPort, List<String> keys) {
+        List<String> args = new ArrayList<>();
+        args.add(LOCAL_HOST);
+        args.add(Integer.toString(targetPort));
+        // an empty key, as the keys are given after KEYS
+        args.add("");
+        args.add("0");
+        args.add(Integer.toString(migrateTimeout));
+        if (replace) {
+            args.add("REPLACE");
+        }
+        args.add("KEYS");
+        args.addAll(keys);
+        client.status(Protocol.Command.MIGRATE, args.toArray(new String[args.size()]));
+    }
+
+    private void assignSlot(int slot, String targetId, int targetPort, int sourcePort, List<Integer> masterPorts) {
+        // The target first, so that the slot is never left without an owner knowing it
+        List<Integer> ports = new ArrayList<>();
+        ports.add(targetPort);
+        ports.add(sourcePort);
+        for (Integer port : masterPorts) {
+            if (!ports.contains(port)) {
+                ports.add(port);
+            }
+        }
+        for (Integer port : ports) {
+            try (Client client = new Client(LOCAL_HOST, port)) {
+                client.clusterSetSlotNode(slot, targetId);
+            }
+        }
+    }
+
+    private void throttle(long start, long keysMoved) {
+        if (keysPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = TimeUnit.SECONDS.toNanos(keysMoved) / keysPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - start);
+        if (aheadNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbeddedRedisException("Interrupted while resharding", e);
+            }
+        }
+    }
+}
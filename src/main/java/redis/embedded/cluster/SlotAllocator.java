@@ -0,0 +1,22 @@
+package redis.embedded.cluster;
+
+import java.util.List;
+
+/**
+ * Decides which hash slots each master of a {@link RedisCluster} serves when it starts.
+ * Masters are the first nodes of the cluster, in order.
+ *
+ * @see EvenSlotAllocator
+ * @see WeightedSlotAllocator
+ * @see ExplicitSlotAllocator
+ * @see HotSlotsAllocator
+ */
+public interface SlotAllocator {
+    int CLUSTER_HASH_SLOTS_NUMBER = 16384;
+
+    /**
+     * @param mastersCount the number of masters
+     * @return for each master, the ranges of slots it serves; every slot must be served by exactly one master
+     */
+    List<List<SlotRange>> allocate(int mastersCount);
+}
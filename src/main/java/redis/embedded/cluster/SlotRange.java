@@ -1,14 +1,28 @@
 package redis.embedded.cluster;
 
-class SlotRange {
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of hash slots, between {@code first} and {@code last} inclusive.
+ */
+public class SlotRange {
     private final int first;
     private final int last;
 
-    SlotRange(int first, int last) {
+    public SlotRange(int first, int last) {
         this.first = first;
         this.last = last;
     }
 
+    public int first() {
+        return first;
+    }
+
+    public int last() {
+        return last;
+    }
+
     int[] getRange() {
         int[] range = new int[last - first + 1];
         for (int i = 0; i <= last - first; i++) {
@@ -17,6 +31,50 @@ class SlotRange {
         return range;
     }
 
+    public int size() {
+        return last - first + 1;
+    }
+
+    public boolean contains(int slot) {
+        return slot >= first && slot <= last;
+    }
+
+    /**
+     * @param owners the index of the master owning each slot
+     * @return for each master, the ranges of the slots it owns
+     */
+    static List<List<SlotRange>> fromOwners(int[] owners, int mastersCount) {
+        List<List<SlotRange>> ranges = new ArrayList<>(mastersCount);
+        for (int i = 0; i < mastersCount; i++) {
+            ranges.add(new ArrayList<SlotRange>());
+        }
+        int first = 0;
+        for (int slot = 1; slot <= owners.length; slot++) {
+            if (slot == owners.length || owners[slot] != owners[first]) {
+                ranges.get(owners[first]).add(new SlotRange(first, slot - 1));
+                first = slot;
+            }
+        }
+        return ranges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SlotRange slotRange = (SlotRange) o;
+        return first == slotRange.first && last == slotRange.last;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * first + last;
+    }
+
     @Override
     public String toString() {
         return "[" + first + ", " + last + "]";
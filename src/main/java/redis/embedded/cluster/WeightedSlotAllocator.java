@@ -0,0 +1,60 @@
+package redis.embedded.cluster;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits the slots in contiguous ranges proportional to a weight per master: with weights {@code 2, 1, 1} the first
+ * master serves half of the slots.
+ */
+public class WeightedSlotAllocator implements SlotAllocator {
+    private final double[] weights;
+
+    public WeightedSlotAllocator(double... weights) {
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0) {
+                throw new EmbeddedRedisException("Slot weights must be positive: " + Arrays.toString(weights));
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new EmbeddedRedisException("At least one slot weight must be positive: " + Arrays.toString(weights));
+        }
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public List<List<SlotRange>> allocate(int mastersCount) {
+        if (mastersCount != weights.length) {
+            throw new EmbeddedRedisException("Expected " + weights.length + " masters for weights " +
+                    Arrays.toString(weights) + ", got " + mastersCount);
+        }
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        List<List<SlotRange>> ranges = new ArrayList<>(mastersCount);
+        double cumulated = 0;
+        int first = 0;
+        for (double weight : weights) {
+            cumulated += weight;
+            int end = (int) Math.round(CLUSTER_HASH_SLOTS_NUMBER * cumulated / total);
+            ranges.add(end > first
+                    ? Collections.singletonList(new SlotRange(first, end - 1))
+                    : Collections.<SlotRange>emptyList());
+            first = Math.max(first, end);
+        }
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "WeightedSlotAllocator" + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,23 @@
+package redis.embedded.config;
+
+/**
+ * The classes of clients given their own output buffer limits.
+ */
+public enum ClientClass {
+    NORMAL("normal"),
+    SLAVE("slave"),
+    PUBSUB("pubsub");
+
+    private final String value;
+
+    ClientClass(String value) {
+        this.value = value;
+    }
+
+    /**
+     * @return the name of the class in the redis configuration
+     */
+    public String value() {
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package redis.embedded.config;
+
+/**
+ * How redis evicts keys once {@code maxmemory} is reached.
+ */
+public enum MaxMemoryPolicy {
+    VOLATILE_LRU("volatile-lru"),
+    ALLKEYS_LRU("allkeys-lru"),
+    VOLATILE_RANDOM("volatile-random"),
+    ALLKEYS_RANDOM("allkeys-random"),
+    VOLATILE_TTL("volatile-ttl"),
+    NOEVICTION("noeviction");
+
+    private final String value;
+
+    MaxMemoryPolicy(String value) {
+        this.value = value;
+    }
+
+    /**
+     * @return the name of the policy in the redis configuration
+     */
+    public String value() {
+        return value;
+    }
+}
@@ -0,0 +1,237 @@
+package redis.embedded.config;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.Redis;
+import redis.embedded.RedisSentinel;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.util.Instances;
+import redis.embedded.util.RawClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typed redis configuration parameters, given to the server builders with
+ * {@link redis.embedded.RedisServer.Builder#config(RedisConfig)} or applied to running servers with
+ * {@link #applyTo(Redis)}, so that a parameter can be changed between two runs without restarting redis.
+ * <p>
+ * Parameters applied to running servers are lost when they restart.
+ */
+public final class RedisConfig {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final String CLIENT_OUTPUT_BUFFER_LIMIT = "client-output-buffer-limit";
+
+    private final Map<String, String> parameters;
+    private final Map<ClientClass, String> outputBufferLimits;
+
+    private RedisConfig(Map<String, String> parameters, Map<ClientClass, String> outputBufferLimits) {
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.outputBufferLimits = Collections.unmodifiableMap(new EnumMap<>(outputBufferLimits));
+    }
+
+    /**
+     * @return the parameters and their values as given to {@code CONFIG SET}, in the order they were set
+     */
+    public Map<String, String> parameters() {
+        Map<String, String> all = new LinkedHashMap<>(parameters);
+        if (!outputBufferLimits.isEmpty()) {
+            StringBuilder limits = new StringBuilder();
+            for (String limit : outputBufferLimits.values()) {
+                limits.append(limits.length() > 0 ? " " : "").append(limit);
+            }
+            all.put(CLIENT_OUTPUT_BUFFER_LIMIT, limits.toString());
+        }
+        return all;
+    }
+
+    /**
+     * @return the lines of a configuration file setting these parameters
+     */
+    public List<String> configLines() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            lines.add(parameter.getKey() + " " + parameter.getValue());
+        }
+        // One class per line in a configuration file
+        for (String limit : outputBufferLimits.values()) {
+            lines.add(CLIENT_OUTPUT_BUFFER_LIMIT + " " + limit);
+        }
+        return lines;
+    }
+
+    /**
+     * Set these parameters with {@code CONFIG SET} on a running server, or on every running server of a cluster,
+     * sentinel cluster or topology. Sentinels are left alone.
+     *
+     * @throws EmbeddedRedisException if a server rejects a parameter, the parameters before it being set
+     */
+    public void applyTo(Redis redis) throws EmbeddedRedisException {
+        for (AbstractRedisInstance instance : Instances.processesOf(redis)) {
+            if (instance instanceof RedisSentinel || !instance.isActive()) {
+                continue;
+            }
+            int port = instance.ports().get(0);
+            try (RawClient client = new RawClient(LOCAL_HOST, port)) {
+                for (Map.Entry<String, String> parameter : parameters().entrySet()) {
+                    try {
+                        client.status(Protocol.Command.CONFIG, "SET", parameter.getKey(), parameter.getValue());
+                    } catch (JedisDataException e) {
+                        throw new EmbeddedRedisException("Redis instance on port " + port + " rejected "
+                                + parameter.getKey() + " " + parameter.getValue() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a configuration with the parameters of this one, overridden by those of the given one
+     */
+    public RedisConfig with(RedisConfig other) {
+        Map<String, String> merged = new LinkedHashMap<>(parameters);
+        merged.putAll(other.parameters);
+        Map<ClientClass, String> limits = new EnumMap<>(ClientClass.class);
+        limits.putAll(outputBufferLimits);
+        limits.putAll(other.outputBufferLimits);
+        return new RedisConfig(merged, limits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RedisConfig that = (RedisConfig) o;
+        return parameters.equals(that.parameters) && outputBufferLimits.equals(that.outputBufferLimits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * parameters.hashCode() + outputBufferLimits.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RedisConfig" + parameters();
+    }
+
+    public static class Builder {
+        private final Map<String, String> parameters = new LinkedHashMap<>();
+        private final Map<ClientClass, String> outputBufferLimits = new EnumMap<>(ClientClass.class);
+
+        /**
+         * @param bytes the memory redis may use for its data before evicting keys, {@code 0} for no limit
+         */
+        public Builder maxmemory(long bytes) {
+            return set("maxmemory", Long.toString(checkNotNegative("maxmemory", bytes)));
+        }
+
+        public Builder maxmemoryPolicy(MaxMemoryPolicy policy) {
+            return set("maxmemory-policy", policy.value());
+        }
+
+        /**
+         * @param samples the number of keys sampled to pick each key to evict
+         */
+        public Builder maxmemorySamples(int samples) {
+            return set("maxmemory-samples", Integer.toString(checkPositive("maxmemory-samples", samples)));
+        }
+
+        /**
+         * @param hz how many times per second redis runs its background tasks, from 1 to 500
+         */
+        public Builder hz(int hz) {
+            if (hz < 1 || hz > 500) {
+                throw new RedisBuildingException("hz " + hz + " is not in [1, 500]");
+            }
+            return set("hz", Integer.toString(hz));
+        }
+
+        /**
+         * @param seconds the idle time after which a client is disconnected, {@code 0} to never disconnect
+         */
+        public Builder timeout(int seconds) {
+            return set("timeout", Integer.toString(checkNotNegative("timeout", seconds)));
+        }
+
+        /**
+         * @param seconds the period of the TCP keepalive probes sent to clients, {@code 0} to send none
+         */
+        public Builder tcpKeepalive(int seconds) {
+            return set("tcp-keepalive", Integer.toString(checkNotNegative("tcp-keepalive", seconds)));
+        }
+
+        /**
+         * @param micros the execution time above which a command is logged in the slow log, negative to log none
+         */
+        public Builder slowlogLogSlowerThan(long micros) {
+            return set("slowlog-log-slower-than", Long.toString(micros));
+        }
+
+        /**
+         * @param millis the latency above which an event is recorded by the latency monitor, {@code 0} to record none
+         */
+        public Builder latencyMonitorThreshold(long millis) {
+            return set("latency-monitor-threshold", Long.toString(checkNotNegative("latency-monitor-threshold", millis)));
+        }
+
+        /**
+         * Limit the output buffer of the clients of a class: a client is disconnected once its buffer exceeds the
+         * hard limit, or has exceeded the soft limit for {@code softSeconds}. A limit of {@code 0} disables it.
+         */
+        public Builder clientOutputBufferLimit(ClientClass clientClass, long hardBytes, long softBytes, int softSeconds) {
+            checkNotNegative(CLIENT_OUTPUT_BUFFER_LIMIT, hardBytes);
+            checkNotNegative(CLIENT_OUTPUT_BUFFER_LIMIT, softBytes);
+            checkNotNegative(CLIENT_OUTPUT_BUFFER_LIMIT, softSeconds);
+            outputBufferLimits.put(clientClass, clientClass.value() + " " + hardBytes + " " + softBytes + " " + softSeconds);
+            return this;
+        }
+
+        /**
+         * Set a parameter without a typed method, e.g. {@code set("lua-time-limit", "1000")}.
+         */
+        public Builder set(String parameter, String value) {
+            if (parameter.trim().isEmpty() || parameter.contains(" ")) {
+                throw new RedisBuildingException("Invalid parameter name '" + parameter + "'");
+            }
+            if (CLIENT_OUTPUT_BUFFER_LIMIT.equalsIgnoreCase(parameter)) {
+                throw new RedisBuildingException("Use clientOutputBufferLimit for " + CLIENT_OUTPUT_BUFFER_LIMIT);
+            }
+            parameters.put(parameter.toLowerCase(Locale.ROOT), value);
+            return this;
+        }
+
+        public RedisConfig build() {
+            return new RedisConfig(parameters, outputBufferLimits);
+        }
+
+        private static long checkNotNegative(String parameter, long value) {
+            if (value < 0) {
+                throw new RedisBuildingException(parameter + " must not be negative, got " + value);
+            }
+            return value;
+        }
+
+        private static int checkNotNegative(String parameter, int value) {
+            return (int) checkNotNegative(parameter, (long) value);
+        }
+
+        private static int checkPositive(String parameter, int value) {
+            if (value < 1) {
+                throw new RedisBuildingException(parameter + " must be positive, got " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package redis.embedded.fault;
+
+import redis.embedded.AbstractRedisInstance;
+
+/**
+ * The faults a {@link FaultInjector} can inject into a redis instance, each lasting for a given duration.
+ */
+public enum Fault {
+    /**
+     * Freeze the process with {@code SIGSTOP}, then resume it with {@code SIGCONT}.
+     */
+    PAUSE {
+        @Override
+        void inject(AbstractRedisInstance target, long millis) {
+            target.pause();
+        }
+
+        @Override
+        void heal(AbstractRedisInstance target) {
+            target.resume();
+        }
+    },
+    /**
+     * Kill the process with {@code SIGKILL}, then start it again on the same port.
+     */
+    CRASH {
+        @Override
+        void inject(AbstractRedisInstance target, long millis) {
+            target.crash();
+        }
+
+        @Override
+        void heal(AbstractRedisInstance target) {
+            if (!target.isActive()) {
+                target.start();
+            }
+        }
+    },
+    /**
+     * Stall the event loop with {@code DEBUG SLEEP}, which ends by itself.
+     */
+    DEBUG_SLEEP {
+        @Override
+        void inject(AbstractRedisInstance target, long millis) {
+            target.debugSleep(millis);
+        }
+    },
+    /**
+     * Suspend the clients with {@code CLIENT PAUSE}, which ends by itself.
+     */
+    CLIENT_PAUSE {
+        @Override
+        void inject(AbstractRedisInstance target, long millis) {
+            target.clientPause(millis);
+        }
+    };
+
+    abstract void inject(AbstractRedisInstance target, long millis);
+
+    void heal(AbstractRedisInstance target) {
+        // the fault is over once its duration has elapsed
+    }
+}
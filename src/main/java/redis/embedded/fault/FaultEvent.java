@@ -0,0 +1,49 @@
+package redis.embedded.fault;
+
+/**
+ * The injection or the healing of a {@link Fault}, as recorded by a {@link FaultInjector}.
+ */
+public class FaultEvent {
+    public enum Phase {
+        INJECTED, HEALED, FAILED
+    }
+
+    private final long timestamp;
+    private final Fault fault;
+    private final int port;
+    private final Phase phase;
+
+    FaultEvent(long timestamp, Fault fault, int port, Phase phase) {
+        this.timestamp = timestamp;
+        this.fault = fault;
+        this.port = port;
+        this.phase = phase;
+    }
+
+    /**
+     * @return the {@link System#currentTimeMillis()} of the event
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public Fault fault() {
+        return fault;
+    }
+
+    /**
+     * @return the port of the instance the fault was injected into
+     */
+    public int port() {
+        return port;
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + " " + fault + " " + phase + " on port " + port;
+    }
+}
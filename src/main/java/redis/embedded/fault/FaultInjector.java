@@ -0,0 +1,266 @@
+package redis.embedded.fault;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.Redis;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injects {@link Fault}s into redis instances, immediately, at a scheduled time or as a random sequence, and records
+ * their {@link #history()}. Closing the injector cancels the faults to come and heals the ongoing ones.
+ * <p>
+ * Faults can be injected into a {@link redis.embedded.RedisServer} or a {@link redis.embedded.RedisSentinel}, so into
+ * every node of a {@link redis.embedded.cluster.RedisCluster} or a {@link redis.embedded.SentinelCluster} through their
+ * {@code servers()} and {@code sentinels()}.
+ */
+public class FaultInjector implements Closeable {
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-faults-%d").build();
+    private static final long CLOSE_TIMEOUT = 5000L;
+
+    private final Logger logger = LoggerFactory.getLogger(FaultInjector.class);
+
+    private final long seed;
+    private final Random random;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+    private final List<FaultEvent> history = Collections.synchronizedList(new ArrayList<FaultEvent>());
+    private final List<Injection> ongoing = Collections.synchronizedList(new ArrayList<Injection>());
+    private volatile boolean closed = false;
+
+    public FaultInjector() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * @param seed the seed of the random sequences, to replay them
+     */
+    public FaultInjector(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Inject a fault now, healed after the given duration.
+     */
+    public Future<?> inject(Fault fault, Redis target, long duration, TimeUnit unit) {
+        return schedule(fault, target, 0, duration, unit);
+    }
+
+    /**
+     * Inject a fault after the given delay, healed after the given duration.
+     */
+    public Future<?> schedule(Fault fault, Redis target, long delay, long duration, TimeUnit unit) {
+        final Injection injection = new Injection(fault, instance(target), unit.toMillis(duration));
+        return submit(new Runnable() {
+            @Override
+            public void run() {
+                injection.inject();
+            }
+        }, unit.toMillis(delay));
+    }
+
+    /**
+     * Inject a random sequence of faults, one at a time, until this injector is closed. Each fault is injected into
+     * a random target after a random delay following the healing of the previous one, and lasts for a random
+     * duration.
+     *
+     * @param targets   the instances to inject faults into
+     * @param faults    the faults to pick from
+     * @param minDelay  the minimum delay between two faults
+     * @param maxDelay  the maximum delay between two faults
+     * @param minDuration the minimum duration of a fault
+     * @param maxDuration the maximum duration of a fault
+     * @param unit      the unit of the delays and durations
+     */
+    public void randomly(Collection<? extends Redis> targets, Collection<Fault> faults,
+                         long minDelay, long maxDelay, long minDuration, long maxDuration, TimeUnit unit) {
+        if (closed) {
+            throw new EmbeddedRedisException("This fault injector is closed");
+        }
+        if (targets.isEmpty() || faults.isEmpty()) {
+            throw new EmbeddedRedisException("Random faults require at least one target and one fault");
+        }
+        if (minDelay > maxDelay || minDuration > maxDuration) {
+            throw new EmbeddedRedisException("Random faults require minimums lower than maximums");
+        }
+        List<AbstractRedisInstance> instances = new ArrayList<>();
+        for (Redis target : targets) {
+            instances.add(instance(target));
+        }
+        new RandomSequence(instances, new ArrayList<>(EnumSet.copyOf(faults)),
+                unit.toMillis(minDelay), unit.toMillis(maxDelay),
+                unit.toMillis(minDuration), unit.toMillis(maxDuration)).next();
+    }
+
+    /**
+     * @return the injections and healings so far, in order
+     */
+    public List<FaultEvent> history() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * Cancel the faults to come and heal the ongoing ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Injection> toHeal;
+        synchronized (ongoing) {
+            toHeal = new ArrayList<>(ongoing);
+        }
+        for (Injection injection : toHeal) {
+            injection.heal();
+        }
+    }
+
+    private Future<?> submit(Runnable task, long delayMillis) {
+        if (closed) {
+            throw new EmbeddedRedisException("This fault injector is closed");
+        }
+        return executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static AbstractRedisInstance instance(Redis target) {
+        if (!(target instanceof AbstractRedisInstance)) {
+            throw new EmbeddedRedisException("Faults can only be injected into a single redis instance, not " + target);
+        }
+        return (AbstractRedisInstance) target;
+    }
+
+    private void record(Injection injection, FaultEvent.Phase phase) {
+        history.add(new FaultEvent(System.currentTimeMillis(), injection.fault, injection.target.ports().get(0), phase));
+    }
+
+    private long between(long min, long max) {
+        return min + (long) (random.nextDouble() * (max - min + 1));
+    }
+
+    private class Injection {
+        private final Fault fault;
+        private final AbstractRedisInstance target;
+        private final long durationMillis;
+        private Runnable afterHealing;
+
+        private Injection(Fault fault, AbstractRedisInstance target, long durationMillis) {
+            this.fault = fault;
+            this.target = target;
+            this.durationMillis = durationMillis;
+        }
+
+        private void inject() {
+            try {
+                fault.inject(target, durationMillis);
+            } catch (RuntimeException e) {
+                logger.warn("Could not inject " + fault + " into redis instance on port " + target.ports().get(0), e);
+                record(this, FaultEvent.Phase.FAILED);
+                then();
+                return;
+            }
+            ongoing.add(this);
+            record(this, FaultEvent.Phase.INJECTED);
+
+            try {
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        heal();
+                        then();
+                    }
+                }, durationMillis);
+            } catch (RejectedExecutionException | EmbeddedRedisException e) {
+                // closed in the meantime, the injection is healed by close()
+            }
+        }
+
+        private void heal() {
+            if (!ongoing.remove(this)) {
+                return;
+            }
+            try {
+                fault.heal(target);
+                record(this, FaultEvent.Phase.HEALED);
+            } catch (RuntimeException e) {
+                logger.warn("Could not heal " + fault + " of redis instance on port " + target.ports().get(0), e);
+                record(this, FaultEvent.Phase.FAILED);
+            }
+        }
+
+        private void then() {
+            if (afterHealing != null && !closed) {
+                afterHealing.run();
+            }
+        }
+    }
+
+    private class RandomSequence implements Runnable {
+        private final List<AbstractRedisInstance> targets;
+        private final List<Fault> faults;
+        private final long minDelay;
+        private final long maxDelay;
+        private final long minDuration;
+        private final long maxDuration;
+
+        private RandomSequence(List<AbstractRedisInstance> targets, List<Fault> faults,
+                               long minDelay, long maxDelay, long minDuration, long maxDuration) {
+            this.targets = targets;
+            this.faults = faults;
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            this.minDuration = minDuration;
+            this.maxDuration = maxDuration;
+        }
+
+        private void next() {
+            try {
+                submit(this, between(minDelay, maxDelay));
+            } catch (RejectedExecutionException | EmbeddedRedisException e) {
+                // closed in the meantime
+            }
+        }
+
+        @Override
+        public void run() {
+            Injection injection = new Injection(
+                    faults.get(random.nextInt(faults.size())),
+                    targets.get(random.nextInt(targets.size())),
+                    between(minDuration, maxDuration));
+            injection.afterHealing = new Runnable() {
+                @Override
+                public void run() {
+                    next();
+                }
+            };
+            injection.inject();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package redis.embedded.health;
+
+import redis.embedded.Redis;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A change of the {@link HealthState} of a watched instance.
+ */
+public class HealthEvent {
+    private final Redis instance;
+    private final int port;
+    private final HealthState previous;
+    private final HealthState state;
+    private final long latencyNanos;
+    private final Integer exitCode;
+    private final long timestamp;
+
+    HealthEvent(Redis instance, int port, HealthState previous, HealthState state, long latencyNanos,
+                Integer exitCode) {
+        this.instance = instance;
+        this.port = port;
+        this.previous = previous;
+        this.state = state;
+        this.latencyNanos = latencyNanos;
+        this.exitCode = exitCode;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Redis instance() {
+        return instance;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    /**
+     * @return the state before this change, {@code null} for the first state of an instance
+     */
+    public HealthState previous() {
+        return previous;
+    }
+
+    public HealthState state() {
+        return state;
+    }
+
+    /**
+     * @return the round trip time of the {@code PING} which led to this state, or -1 when there was none
+     */
+    public long latency(TimeUnit unit) {
+        return latencyNanos < 0 ? -1 : unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the exit code of the process for {@link HealthState#EXITED}, {@code null} otherwise
+     */
+    public Integer exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return the time of the change, in milliseconds since the epoch
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "HealthEvent{" +
+                "port=" + port +
+                ", " + previous + " -> " + state +
+                (latencyNanos >= 0 ? ", latency=" + latency(TimeUnit.MICROSECONDS) + "us" : "") +
+                (exitCode != null ? ", exitCode=" + exitCode : "") +
+                '}';
+    }
+}
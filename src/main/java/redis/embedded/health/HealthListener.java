@@ -0,0 +1,9 @@
+package redis.embedded.health;
+
+/**
+ * Notified of the state changes of the instances watched by a {@link HealthMonitor}, one event at a time.
+ */
+public interface HealthListener {
+
+    void onStateChange(HealthEvent event);
+}
@@ -0,0 +1,396 @@
+package redis.embedded.health;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.ProcessExitListener;
+import redis.embedded.Redis;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.util.Instances;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Watches redis instances in background and notifies {@link HealthListener}s of their {@link HealthState} changes.
+ * <p>
+ * The exit of the process of a {@link redis.embedded.RedisServer} or a {@link redis.embedded.RedisSentinel} is
+ * detected as soon as it happens, and every instance is sent a {@code PING} at a fixed interval, its round trip time
+ * telling whether it is up, slow or unresponsive. Clusters, sentinel clusters, topologies and proxies are watched
+ * through every instance they are made of.
+ * <p>
+ * The port of an instance is read again at every probe, so an instance restarted on another port keeps being watched.
+ * The instances a cluster or a topology is made of are looked up again at every interval too: nodes added with
+ * {@link redis.embedded.cluster.RedisCluster#addMaster()} or
+ * {@link redis.embedded.cluster.RedisCluster#addReplica(Redis)} start being watched, and removed nodes stop being.
+ */
+public class HealthMonitor implements Closeable {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final int MAX_THREADS = 32;
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-health-%d").build();
+
+    private final Logger logger = LoggerFactory.getLogger(HealthMonitor.class);
+
+    private final List<Redis> watched;
+    private final List<Target> targets = new CopyOnWriteArrayList<>();
+    private final List<HealthListener> listeners;
+    private final long intervalMillis;
+    private final long slowThresholdNanos;
+    private final int timeoutMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile boolean started = false;
+    private volatile boolean closed = false;
+
+    private HealthMonitor(List<Redis> watched, List<HealthListener> listeners, long intervalMillis,
+                          long slowThresholdNanos, int timeoutMillis) {
+        this.watched = watched;
+        this.listeners = new CopyOnWriteArrayList<>(listeners);
+        this.intervalMillis = intervalMillis;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
+        refresh();
+    }
+
+    /**
+     * Start watching, the first state of every instance being published once it is probed.
+     *
+     * @return this monitor
+     */
+    public synchronized HealthMonitor start() {
+        if (closed) {
+            throw new EmbeddedRedisException("This health monitor is closed");
+        }
+        if (started) {
+            return this;
+        }
+        started = true;
+        for (Target target : targets) {
+            schedule(target);
+        }
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    // a failing lookup must not cancel the following ones
+                    logger.warn("Could not look up the watched redis instances", e);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public void addListener(HealthListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(HealthListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the last known state of the instance on the given port, {@code null} until it is first probed
+     */
+    public HealthState state(int port) {
+        for (Target target : targets) {
+            if (target.port() == port) {
+                return target.state;
+            }
+        }
+        throw new EmbeddedRedisException("No watched instance on port " + port);
+    }
+
+    /**
+     * @return the last known state of every watched instance, by port
+     */
+    public Map<Integer, HealthState> states() {
+        Map<Integer, HealthState> states = new LinkedHashMap<>();
+        for (Target target : targets) {
+            states.put(target.port(), target.state);
+        }
+        return states;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        executor.shutdownNow();
+        for (Target target : targets) {
+            unschedule(target);
+        }
+    }
+
+    /**
+     * Look up the instances of the watched implementations again, watching the new ones and forgetting the ones
+     * that are gone.
+     */
+    private synchronized void refresh() {
+        if (closed) {
+            return;
+        }
+        List<Target> current = new ArrayList<>();
+        for (Redis redis : watched) {
+            current.addAll(targets(redis));
+        }
+
+        List<Target> gone = new ArrayList<>(targets);
+        for (Target target : current) {
+            Target known = find(gone, target);
+            if (known != null) {
+                gone.remove(known);
+            } else {
+                target.monitor = this;
+                targets.add(target);
+                if (started) {
+                    schedule(target);
+                }
+            }
+        }
+        for (Target target : gone) {
+            targets.remove(target);
+            unschedule(target);
+        }
+        executor.setCorePoolSize(Math.min(MAX_THREADS, targets.size() + 1));
+    }
+
+    private static Target find(List<Target> targets, Target target) {
+        for (Target candidate : targets) {
+            if (candidate.instance == target.instance && candidate.fixedPort == target.fixedPort) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void schedule(final Target target) {
+        if (target.process != null) {
+            target.process.addExitListener(target);
+        }
+        target.probing = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe(target);
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void unschedule(Target target) {
+        if (target.probing != null) {
+            target.probing.cancel(false);
+        }
+        if (target.process != null) {
+            target.process.removeExitListener(target);
+        }
+        target.disconnect();
+    }
+
+    private void probe(Target target) {
+        try {
+            if (!target.instance.isActive()) {
+                target.disconnect();
+                Integer exitCode = target.process != null ? target.process.exitCode() : null;
+                change(target, exitCode != null ? HealthState.EXITED : HealthState.STOPPED, -1, exitCode);
+                return;
+            }
+
+            long latency = target.ping();
+            if (latency < 0) {
+                change(target, HealthState.UNRESPONSIVE, -1, null);
+            } else {
+                change(target, latency > slowThresholdNanos ? HealthState.SLOW : HealthState.UP, latency, null);
+            }
+        } catch (RuntimeException e) {
+            // a failing probe must not cancel the following ones
+            logger.warn("Could not probe redis instance on port {}", target.port(), e);
+        }
+    }
+
+    private void change(Target target, HealthState state, long latency, Integer exitCode) {
+        HealthEvent event;
+        synchronized (target) {
+            boolean alive = state != HealthState.EXITED && state != HealthState.STOPPED;
+            if (target.state == state || closed || (alive && !target.instance.isActive())) {
+                // the process exited while it was being pinged
+                return;
+            }
+            event = new HealthEvent(target.instance, target.port(), target.state, state, latency, exitCode);
+            target.state = state;
+        }
+
+        synchronized (this) {
+            for (HealthListener listener : listeners) {
+                try {
+                    listener.onStateChange(event);
+                } catch (RuntimeException e) {
+                    logger.warn("Health listener failed on {}", event, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the instances an implementation is made of, with their ports
+     */
+    static List<Target> targets(Redis redis) {
+        List<Target> targets = new ArrayList<>();
+        for (Redis instance : Instances.of(redis)) {
+            if (instance instanceof AbstractRedisInstance) {
+                // Probed on its current port
+                targets.add(new Target(instance, -1));
+            } else {
+                // Pinged on every port, without exit detection
+                for (Integer port : instance.ports()) {
+                    targets.add(new Target(instance, port));
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static class Target implements ProcessExitListener {
+        private final Redis instance;
+        private final AbstractRedisInstance process;
+        private final int fixedPort;
+        private HealthMonitor monitor;
+        private ScheduledFuture<?> probing;
+        private volatile HealthState state;
+        private Jedis connection;
+        private int connectionPort;
+
+        private Target(Redis instance, int fixedPort) {
+            this.instance = instance;
+            this.process = instance instanceof AbstractRedisInstance ? (AbstractRedisInstance) instance : null;
+            this.fixedPort = fixedPort;
+        }
+
+        private int port() {
+            return process != null ? process.ports().get(0) : fixedPort;
+        }
+
+        @Override
+        public void exited(AbstractRedisInstance instance, int exitCode) {
+            monitor.change(this, HealthState.EXITED, -1, exitCode);
+        }
+
+        /**
+         * @return the round trip time of a {@code PING} in nanoseconds, or -1 if it failed or timed out
+         */
+        private synchronized long ping() {
+            boolean reused = connection != null;
+            try {
+                return timedPing();
+            } catch (JedisException e) {
+                disconnect();
+                if (!reused) {
+                    return -1;
+                }
+            }
+            // The connection may have been killed, e.g. by a reset of the instance
+            try {
+                return timedPing();
+            } catch (JedisException e) {
+                disconnect();
+                return -1;
+            }
+        }
+
+        private long timedPing() {
+            int port = port();
+            if (connection != null && connectionPort != port) {
+                // restarted on another port
+                disconnect();
+            }
+            if (connection == null) {
+                connection = new Jedis(LOCAL_HOST, port, monitor.timeoutMillis);
+                connectionPort = port;
+                connection.clientSetname(AbstractRedisInstance.ADMIN_CLIENT_NAME);
+            }
+            long start = System.nanoTime();
+            connection.ping();
+            return System.nanoTime() - start;
+        }
+
+        private synchronized void disconnect() {
+            closeQuietly(connection);
+            connection = null;
+        }
+    }
+
+    public static class Builder {
+        private static final long DEFAULT_INTERVAL = 1000L;
+        private static final long DEFAULT_SLOW_THRESHOLD = 100L;
+        private static final int DEFAULT_TIMEOUT = 1000;
+
+        private final List<Redis> watched = new ArrayList<>();
+        private final List<HealthListener> listeners = new ArrayList<>();
+        private long intervalMillis = DEFAULT_INTERVAL;
+        private long slowThresholdMillis = DEFAULT_SLOW_THRESHOLD;
+        private int timeoutMillis = DEFAULT_TIMEOUT;
+
+        /**
+         * Watch an instance, or every instance a cluster, sentinel cluster, topology or proxy is made of.
+         */
+        public Builder watch(Redis... redis) {
+            Collections.addAll(watched, redis);
+            return this;
+        }
+
+        public Builder listener(HealthListener listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * @param interval time between the end of a {@code PING} and the next one to the same instance
+         */
+        public Builder interval(long interval, TimeUnit unit) {
+            this.intervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * @param slowThreshold round trip time above which an instance is {@link HealthState#SLOW}
+         */
+        public Builder slowThreshold(long slowThreshold, TimeUnit unit) {
+            this.slowThresholdMillis = unit.toMillis(slowThreshold);
+            return this;
+        }
+
+        /**
+         * @param timeout time without reply after which an instance is {@link HealthState#UNRESPONSIVE}
+         */
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = (int) unit.toMillis(timeout);
+            return this;
+        }
+
+        public HealthMonitor build() {
+            if (intervalMillis <= 0 || timeoutMillis <= 0 || slowThresholdMillis < 0) {
+                throw new RedisBuildingException("The interval and timeout of a health monitor must be positive");
+            }
+            if (slowThresholdMillis >= timeoutMillis) {
+                throw new RedisBuildingException("The slow threshold must be lower than the timeout");
+            }
+            return new HealthMonitor(new ArrayList<>(watched), listeners, intervalMillis,
+                    TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis), timeoutMillis);
+        }
+    }
+}
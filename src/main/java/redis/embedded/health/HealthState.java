@@ -0,0 +1,27 @@
+package redis.embedded.health;
+
+/**
+ * State of a redis instance watched by a {@link HealthMonitor}.
+ */
+public enum HealthState {
+    /**
+     * Answering {@code PING} within the slow threshold.
+     */
+    UP,
+    /**
+     * Answering {@code PING}, but slower than the slow threshold.
+     */
+    SLOW,
+    /**
+     * Not answering {@code PING} within the timeout, e.g. paused, stalled or unreachable.
+     */
+    UNRESPONSIVE,
+    /**
+     * Its process exited without being stopped, with the exit code of the event.
+     */
+    EXITED,
+    /**
+     * Stopped with {@link redis.embedded.Redis#stop()}.
+     */
+    STOPPED
+}
@@ -35,4 +35,9 @@ public class EphemeralPortProvider implements PortProvider {
     public EphemeralPortProvider copy() {
         return new EphemeralPortProvider();
     }
+
+    @Override
+    public String toString() {
+        return "EphemeralPortProvider";
+    }
 }
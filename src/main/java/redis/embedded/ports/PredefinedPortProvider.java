@@ -38,4 +38,9 @@ public class PredefinedPortProvider implements PortProvider {
     public PredefinedPortProvider copy() {
         return new PredefinedPortProvider(givenPorts);
     }
+
+    @Override
+    public String toString() {
+        return "PredefinedPortProvider" + givenPorts;
+    }
 }
@@ -0,0 +1,251 @@
+package redis.embedded.ports;
+
+import redis.embedded.PortProvider;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * A {@link PortProvider} reserving ports for every JVM running on the same host.
+ * <p>
+ * Each reservation is an exclusive lock on a {@code <port>.lock} file of a registry directory shared by all JVMs
+ * (by default {@code ${java.io.tmpdir}/embedded-redis-ports}). A port is only handed out once its lock has been
+ * acquired and it has been checked bindable, and it stays reserved until {@link #release(int)} or {@link #close()}
+ * is called. Locks are owned by the process, so the operating system frees them when the JVM exits, even on a crash.
+ * <p>
+ * Ports are searched between a given {@code startPort} (default at {@code 20000}) and {@code maxPort} (inclusive,
+ * default at {@code 29999}). Single ports are searched from a random offset so that concurrent JVMs do not all contend
+ * on the same ports, and blocks of ports from {@code startPort} so that they do not fragment the range.
+ */
+public class ReservingPortProvider implements PortProvider, Closeable {
+    public static final int DEFAULT_START_PORT = 20000;
+    public static final int DEFAULT_MAX_PORT = 29999;
+
+    private static final String DEFAULT_REGISTRY_NAME = "embedded-redis-ports";
+    private static final Random RANDOM = new Random();
+
+    private final File registry;
+    private final int startPort;
+    private final int maxPort;
+    private final Map<Integer, Reservation> reservations = new LinkedHashMap<>();
+    private int cursor;
+
+    public ReservingPortProvider() {
+        this(DEFAULT_START_PORT, DEFAULT_MAX_PORT);
+    }
+
+    public ReservingPortProvider(int startPort, int maxPort) {
+        this(defaultRegistry(), startPort, maxPort);
+    }
+
+    public ReservingPortProvider(File registry, int startPort, int maxPort) {
+        if (startPort < 1 || maxPort > TCP_MAX_PORT_NUMBER || startPort > maxPort) {
+            throw new RedisBuildingException("Invalid port range [" + startPort + ", " + maxPort + "]");
+        }
+        this.registry = registry;
+        this.startPort = startPort;
+        this.maxPort = maxPort;
+        this.cursor = startPort + RANDOM.nextInt(maxPort - startPort + 1);
+    }
+
+    public static File defaultRegistry() {
+        return new File(System.getProperty("java.io.tmpdir"), DEFAULT_REGISTRY_NAME);
+    }
+
+    @Override
+    public int next() {
+        return next(1).get(0);
+    }
+
+    /**
+     * Reserve a block of {@code count} contiguous ports, typically for the nodes of a cluster.
+     *
+     * @param count the number of ports to reserve
+     * @return the reserved ports, in ascending order
+     * @throws RedisBuildingException if no such block is available in the range
+     */
+    public synchronized List<Integer> next(int count) {
+        if (count < 1 || count > rangeSize()) {
+            throw new RedisBuildingException("Cannot reserve " + count + " ports in [" + startPort + ", " + maxPort + "]");
+        }
+        ensureRegistry();
+
+        if (count > 1) {
+            // First fit, so that blocks do not split the range into pieces too short for the next ones
+            for (int first = startPort; first + count - 1 <= maxPort; first++) {
+                List<Integer> block = tryReserveBlock(first, count);
+                if (block != null) {
+                    return block;
+                }
+            }
+            throw new RedisBuildingException("Run out of Redis ports!");
+        }
+
+        // Every port is tried at most once
+        for (int attempt = 0; attempt < rangeSize(); attempt++) {
+            int port = cursor;
+            cursor = port + 1 > maxPort ? startPort : port + 1;
+
+            List<Integer> block = tryReserveBlock(port, 1);
+            if (block != null) {
+                return block;
+            }
+        }
+
+        throw new RedisBuildingException("Run out of Redis ports!");
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return reservations.size() < rangeSize();
+    }
+
+    /**
+     * Give back a port reserved by this provider. Ports not reserved by this provider are ignored.
+     */
+    public synchronized void release(int port) {
+        Reservation reservation = reservations.remove(port);
+        if (reservation != null) {
+            reservation.release();
+        }
+    }
+
+    public synchronized void release(Collection<Integer> ports) {
+        for (Integer port : ports) {
+            release(port);
+        }
+    }
+
+    /**
+     * @return the ports currently reserved by this provider
+     */
+    public synchronized List<Integer> reservedPorts() {
+        return Collections.unmodifiableList(new ArrayList<>(reservations.keySet()));
+    }
+
+    /**
+     * Release every port reserved by this provider.
+     */
+    @Override
+    public synchronized void close() {
+        release(new ArrayList<>(reservations.keySet()));
+    }
+
+    @Override
+    public ReservingPortProvider copy() {
+        return new ReservingPortProvider(registry, startPort, maxPort);
+    }
+
+    @Override
+    public String toString() {
+        return "ReservingPortProvider[" + startPort + ", " + maxPort + "] in " + registry;
+    }
+
+    private List<Integer> tryReserveBlock(int first, int count) {
+        List<Integer> block = new ArrayList<>(count);
+        for (int port = first; port < first + count; port++) {
+            Reservation reservation = tryReserve(port);
+            if (reservation == null) {
+                for (Integer reserved : block) {
+                    release(reserved);
+                }
+                return null;
+            }
+            reservations.put(port, reservation);
+            block.add(port);
+        }
+        return block;
+    }
+
+    private Reservation tryReserve(int port) {
+        if (reservations.containsKey(port)) {
+            return null;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(new File(registry, port + ".lock"), "rw");
+            FileLock lock = file.getChannel().tryLock();
+            if (lock == null) {
+                // Reserved by another JVM
+                closeQuietly(file);
+                return null;
+            }
+
+            Reservation reservation = new Reservation(file, lock);
+            if (!isBindable(port)) {
+                // Used by a process not taking part in the registry
+                reservation.release();
+                return null;
+            }
+            return reservation;
+        } catch (OverlappingFileLockException e) {
+            // Reserved by another provider of this JVM
+            closeQuietly(file);
+            return null;
+        } catch (IOException e) {
+            closeQuietly(file);
+            throw new RedisBuildingException("Could not reserve port " + port + " in " + registry, e);
+        }
+    }
+
+    private static boolean isBindable(int port) {
+        ServerSocket socket = null;
+        try {
+            socket = new ServerSocket();
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void ensureRegistry() {
+        if (!registry.isDirectory() && !registry.mkdirs() && !registry.isDirectory()) {
+            throw new RedisBuildingException("Cannot create port registry " + registry);
+        }
+    }
+
+    private int rangeSize() {
+        return maxPort - startPort + 1;
+    }
+
+    private static class Reservation {
+        private final RandomAccessFile file;
+        private final FileLock lock;
+
+        private Reservation(RandomAccessFile file, FileLock lock) {
+            this.file = file;
+            this.lock = lock;
+        }
+
+        private void release() {
+            try {
+                lock.release();
+            } catch (IOException ignored) {
+                // the lock is freed anyway when its channel is closed
+            } finally {
+                closeQuietly(file);
+            }
+        }
+    }
+}
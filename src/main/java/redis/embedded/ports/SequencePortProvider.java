@@ -48,4 +48,9 @@ public class SequencePortProvider implements PortProvider {
     public SequencePortProvider copy() {
         return new SequencePortProvider(startPort, maxPort);
     }
+
+    @Override
+    public String toString() {
+        return "SequencePortProvider[" + startPort + ", " + maxPort + "]";
+    }
 }
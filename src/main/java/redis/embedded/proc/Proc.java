@@ -0,0 +1,199 @@
+package redis.embedded.proc;
+
+import com.google.common.io.Files;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.Redis;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.util.Instances;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Samples the {@link ProcessStats} of processes from the {@code /proc} file system. Only available on Linux.
+ */
+public final class Proc {
+    private static final File PROC = new File("/proc");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long DEFAULT_TICKS_PER_SECOND = 100L;
+    private static final long KILOBYTE = 1024L;
+
+    private static volatile long ticksPerSecond = 0;
+
+    private Proc() {
+    }
+
+    /**
+     * @return the current usage of a process and of the processes it forked
+     * @throws EmbeddedRedisException if the process does not exist or {@code /proc} is not available
+     */
+    public static ProcessStats sample(long pid) {
+        File dir = new File(PROC, Long.toString(pid));
+        try {
+            String stat = read(new File(dir, "stat"));
+            String status = read(new File(dir, "status"));
+            File ioFile = new File(dir, "io");
+            String io = ioFile.canRead() ? readQuietly(ioFile) : null;
+
+            List<ProcessStats> children = new ArrayList<>();
+            for (Long child : children(pid)) {
+                try {
+                    children.add(sample(child));
+                } catch (EmbeddedRedisException ignored) {
+                    // exited in the meantime
+                }
+            }
+            return parse(stat, status, io, ticksPerSecond(), children);
+        } catch (IOException e) {
+            throw new EmbeddedRedisException("Could not read the usage of process " + pid + " from " + dir, e);
+        }
+    }
+
+    /**
+     * @return the usage of every server and sentinel of a {@link Redis} implementation, by port
+     * @see ProcessStats#aggregate(java.util.Collection)
+     */
+    public static Map<Integer, ProcessStats> sampleAll(Redis redis) {
+        Map<Integer, ProcessStats> stats = new LinkedHashMap<>();
+        for (AbstractRedisInstance instance : Instances.processesOf(redis)) {
+            if (instance.isActive()) {
+                stats.put(instance.ports().get(0), instance.processStats());
+            }
+        }
+        return stats;
+    }
+
+    static ProcessStats parse(String stat, String status, String io, long ticksPerSecond,
+                              List<ProcessStats> children) {
+        // The command name may contain spaces and parentheses, the fields follow the last one
+        int nameEnd = stat.lastIndexOf(')');
+        long pid = Long.parseLong(stat.substring(0, stat.indexOf(' ')).trim());
+        String[] fields = stat.substring(nameEnd + 2).trim().split(" ");
+        char state = fields[0].charAt(0);
+        long majorFaults = Long.parseLong(fields[9]);
+        long userCpuMillis = Long.parseLong(fields[11]) * 1000 / ticksPerSecond;
+        long systemCpuMillis = Long.parseLong(fields[12]) * 1000 / ticksPerSecond;
+
+        Map<String, String> statusFields = fields(status, ':');
+        Map<String, String> ioFields = io != null ? fields(io, ':') : Collections.<String, String>emptyMap();
+
+        return new ProcessStats(pid, state,
+                kilobytes(statusFields.get("VmRSS")),
+                kilobytes(statusFields.get("VmHWM")),
+                kilobytes(statusFields.get("VmSize")),
+                userCpuMillis, systemCpuMillis,
+                number(statusFields.get("Threads")),
+                number(statusFields.get("voluntary_ctxt_switches")),
+                number(statusFields.get("nonvoluntary_ctxt_switches")),
+                majorFaults,
+                number(ioFields.get("read_bytes")),
+                number(ioFields.get("write_bytes")),
+                children);
+    }
+
+    /**
+     * @return the parent process id in the content of a {@code stat} file
+     */
+    static long parentPid(String stat) {
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        return Long.parseLong(fields[1]);
+    }
+
+    private static Map<String, String> fields(String content, char separator) {
+        Map<String, String> fields = new HashMap<>();
+        for (String line : content.split("\n")) {
+            int index = line.indexOf(separator);
+            if (index > 0) {
+                fields.put(line.substring(0, index).trim(), line.substring(index + 1).trim());
+            }
+        }
+        return fields;
+    }
+
+    private static long kilobytes(String value) {
+        // e.g. "1580 kB"
+        return value == null ? -1 : Long.parseLong(value.split("\\s+")[0]) * KILOBYTE;
+    }
+
+    private static long number(String value) {
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    private static List<Long> children(long pid) throws IOException {
+        List<Long> children = new ArrayList<>();
+        File childrenFile = new File(PROC, pid + "/task/" + pid + "/children");
+        if (childrenFile.canRead()) {
+            for (String child : read(childrenFile).trim().split("\\s+")) {
+                if (!child.isEmpty()) {
+                    children.add(Long.parseLong(child));
+                }
+            }
+            return children;
+        }
+
+        // Kernels without CONFIG_PROC_CHILDREN
+        File[] processes = PROC.listFiles();
+        if (processes == null) {
+            return children;
+        }
+        for (File process : processes) {
+            if (!process.getName().matches("\\d+")) {
+                continue;
+            }
+            String stat = readQuietly(new File(process, "stat"));
+            if (stat != null && parentPid(stat) == pid) {
+                children.add(Long.parseLong(process.getName()));
+            }
+        }
+        return children;
+    }
+
+    private static long ticksPerSecond() {
+        if (ticksPerSecond == 0) {
+            long ticks = DEFAULT_TICKS_PER_SECOND;
+            BufferedReader reader = null;
+            try {
+                Process getconf = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+                reader = new BufferedReader(new InputStreamReader(getconf.getInputStream(), UTF_8));
+                String line = reader.readLine();
+                if (getconf.waitFor() == 0 && line != null) {
+                    ticks = Long.parseLong(line.trim());
+                }
+            } catch (IOException | NumberFormatException e) {
+                // USER_HZ is 100 on almost every Linux
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeQuietly(reader);
+            }
+            ticksPerSecond = ticks;
+        }
+        return ticksPerSecond;
+    }
+
+    private static String read(File file) throws IOException {
+        if (!file.exists()) {
+            throw new EmbeddedRedisException("No such process file " + file);
+        }
+        return Files.toString(file, UTF_8);
+    }
+
+    private static String readQuietly(File file) {
+        try {
+            return Files.toString(file, UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
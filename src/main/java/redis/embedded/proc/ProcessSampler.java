@@ -0,0 +1,105 @@
+package redis.embedded.proc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.Redis;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the aggregated {@link ProcessStats} of every server and sentinel of a {@link Redis} implementation at a
+ * fixed rate, to catch what single samples miss: the memory of the processes forked for a {@code BGSAVE} or a full
+ * synchronization, and bursts of CPU usage.
+ */
+public class ProcessSampler implements Closeable {
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-proc-sampler-%d").build();
+
+    private final Logger logger = LoggerFactory.getLogger(ProcessSampler.class);
+
+    private final Redis redis;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+    private final List<ProcessStats> samples = Collections.synchronizedList(new ArrayList<ProcessStats>());
+    private volatile long peakTotalRssBytes = 0;
+    private volatile double peakCpuUtilization = 0;
+    private ProcessStats previous;
+
+    public ProcessSampler(Redis redis, long interval, TimeUnit unit) {
+        this.redis = redis;
+        this.intervalMillis = unit.toMillis(interval);
+        if (intervalMillis <= 0) {
+            throw new EmbeddedRedisException("The sampling interval must be at least one millisecond");
+        }
+    }
+
+    /**
+     * @return this sampler
+     */
+    public ProcessSampler start() {
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * @return every aggregated sample so far, in order
+     */
+    public List<ProcessStats> samples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /**
+     * @return the highest resident set size sampled, forked processes included
+     */
+    public long peakTotalRssBytes() {
+        return peakTotalRssBytes;
+    }
+
+    /**
+     * @return the highest CPU usage between two samples, in cores (2.0 is two cores fully used)
+     */
+    public double peakCpuUtilization() {
+        return peakCpuUtilization;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void sample() {
+        ProcessStats stats;
+        try {
+            stats = ProcessStats.aggregate(Proc.sampleAll(redis).values());
+        } catch (RuntimeException e) {
+            // e.g. a node restarting, the next sample may succeed
+            logger.debug("Could not sample redis processes", e);
+            return;
+        }
+
+        samples.add(stats);
+        peakTotalRssBytes = Math.max(peakTotalRssBytes, stats.totalRssBytes());
+        if (previous != null && stats.timestamp() > previous.timestamp()) {
+            double utilization = (double) (stats.cpuMillis() - previous.cpuMillis())
+                    / (stats.timestamp() - previous.timestamp());
+            peakCpuUtilization = Math.max(peakCpuUtilization, utilization);
+        }
+        previous = stats;
+    }
+}
@@ -0,0 +1,192 @@
+package redis.embedded.proc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resource usage of a process as seen by the operating system, from {@code /proc/<pid>/stat}, {@code status} and
+ * {@code io}, with the processes it forked, e.g. for a {@code BGSAVE} or a full synchronization.
+ * <p>
+ * Values the kernel does not expose to this JVM, typically {@code io} of a process of another user, are -1.
+ */
+public class ProcessStats {
+    private final long pid;
+    private final char state;
+    private final long rssBytes;
+    private final long peakRssBytes;
+    private final long virtualBytes;
+    private final long userCpuMillis;
+    private final long systemCpuMillis;
+    private final long threads;
+    private final long voluntaryContextSwitches;
+    private final long involuntaryContextSwitches;
+    private final long majorFaults;
+    private final long readBytes;
+    private final long writeBytes;
+    private final List<ProcessStats> children;
+    private final long timestamp;
+
+    ProcessStats(long pid, char state, long rssBytes, long peakRssBytes, long virtualBytes, long userCpuMillis,
+                 long systemCpuMillis, long threads, long voluntaryContextSwitches, long involuntaryContextSwitches,
+                 long majorFaults, long readBytes, long writeBytes, List<ProcessStats> children) {
+        this.pid = pid;
+        this.state = state;
+        this.rssBytes = rssBytes;
+        this.peakRssBytes = peakRssBytes;
+        this.virtualBytes = virtualBytes;
+        this.userCpuMillis = userCpuMillis;
+        this.systemCpuMillis = systemCpuMillis;
+        this.threads = threads;
+        this.voluntaryContextSwitches = voluntaryContextSwitches;
+        this.involuntaryContextSwitches = involuntaryContextSwitches;
+        this.majorFaults = majorFaults;
+        this.readBytes = readBytes;
+        this.writeBytes = writeBytes;
+        this.children = Collections.unmodifiableList(new ArrayList<>(children));
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Sum the usage of several processes, e.g. of every node of a cluster. Peak resident sizes are summed too, so
+     * the peak of the aggregate is an upper bound of the actual peak of the processes together.
+     *
+     * @return the aggregated usage, with a pid of -1, a state of {@code -} and the children of every process
+     */
+    public static ProcessStats aggregate(Collection<ProcessStats> stats) {
+        long rss = 0, peakRss = 0, virtual = 0, user = 0, system = 0, threads = 0;
+        long voluntary = 0, involuntary = 0, faults = 0, read = 0, write = 0;
+        List<ProcessStats> children = new ArrayList<>();
+        for (ProcessStats s : stats) {
+            rss += s.rssBytes;
+            peakRss += s.peakRssBytes;
+            virtual += s.virtualBytes;
+            user += s.userCpuMillis;
+            system += s.systemCpuMillis;
+            threads += s.threads;
+            voluntary += s.voluntaryContextSwitches;
+            involuntary += s.involuntaryContextSwitches;
+            faults += s.majorFaults;
+            read = sumKnown(read, s.readBytes);
+            write = sumKnown(write, s.writeBytes);
+            children.addAll(s.children);
+        }
+        return new ProcessStats(-1, '-', rss, peakRss, virtual, user, system, threads, voluntary, involuntary, faults,
+                read, write, children);
+    }
+
+    private static long sumKnown(long total, long value) {
+        return total < 0 || value < 0 ? -1 : total + value;
+    }
+
+    public long pid() {
+        return pid;
+    }
+
+    /**
+     * @return the state of the process, e.g. {@code R} running, {@code S} sleeping, {@code T} stopped
+     */
+    public char state() {
+        return state;
+    }
+
+    /**
+     * @return the resident set size of the process alone
+     */
+    public long rssBytes() {
+        return rssBytes;
+    }
+
+    /**
+     * @return the resident set size of the process and of the processes it forked
+     */
+    public long totalRssBytes() {
+        long total = rssBytes;
+        for (ProcessStats child : children) {
+            total += child.totalRssBytes();
+        }
+        return total;
+    }
+
+    /**
+     * @return the highest resident set size of the process since it started ({@code VmHWM})
+     */
+    public long peakRssBytes() {
+        return peakRssBytes;
+    }
+
+    public long virtualBytes() {
+        return virtualBytes;
+    }
+
+    public long userCpuMillis() {
+        return userCpuMillis;
+    }
+
+    public long systemCpuMillis() {
+        return systemCpuMillis;
+    }
+
+    public long cpuMillis() {
+        return userCpuMillis + systemCpuMillis;
+    }
+
+    public long threads() {
+        return threads;
+    }
+
+    public long voluntaryContextSwitches() {
+        return voluntaryContextSwitches;
+    }
+
+    public long involuntaryContextSwitches() {
+        return involuntaryContextSwitches;
+    }
+
+    public long majorFaults() {
+        return majorFaults;
+    }
+
+    /**
+     * @return the bytes the process caused to be read from storage
+     */
+    public long readBytes() {
+        return readBytes;
+    }
+
+    /**
+     * @return the bytes the process caused to be written to storage
+     */
+    public long writeBytes() {
+        return writeBytes;
+    }
+
+    /**
+     * @return the processes forked by this one and still running, e.g. for a {@code BGSAVE}
+     */
+    public List<ProcessStats> children() {
+        return children;
+    }
+
+    /**
+     * @return the time of the sample, in milliseconds since the epoch
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessStats{" +
+                "pid=" + pid +
+                ", state=" + state +
+                ", rss=" + rssBytes +
+                ", peakRss=" + peakRssBytes +
+                ", cpu=" + userCpuMillis + "ms user/" + systemCpuMillis + "ms system" +
+                ", contextSwitches=" + voluntaryContextSwitches + "/" + involuntaryContextSwitches +
+                ", disk=" + readBytes + " read/" + writeBytes + " written" +
+                (children.isEmpty() ? "" : ", children=" + children) +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package redis.embedded.proxy;
+
+/**
+ * The network conditions applied by a {@link TcpProxy} to the bytes flowing in one direction.
+ * Changes apply to the bytes received afterwards, on every connection of the proxy.
+ */
+public class LinkConditions {
+    private final TcpProxy proxy;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile long bandwidth;
+    private volatile boolean stalled;
+
+    LinkConditions(TcpProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * Delay every byte by the given number of milliseconds.
+     */
+    public LinkConditions latency(long millis) {
+        this.latencyMillis = millis;
+        proxy.wakeup();
+        return this;
+    }
+
+    /**
+     * Add to the latency a random delay between zero and the given number of milliseconds. Bytes are still delivered
+     * in order.
+     */
+    public LinkConditions jitter(long millis) {
+        this.jitterMillis = millis;
+        proxy.wakeup();
+        return this;
+    }
+
+    /**
+     * Cap the throughput to the given number of bytes per second, zero for no cap.
+     */
+    public LinkConditions bandwidth(long bytesPerSecond) {
+        this.bandwidth = bytesPerSecond;
+        proxy.wakeup();
+        return this;
+    }
+
+    /**
+     * Hold every byte, received before or after, until {@link #unstall()}.
+     */
+    public LinkConditions stall() {
+        this.stalled = true;
+        proxy.wakeup();
+        return this;
+    }
+
+    public LinkConditions unstall() {
+        this.stalled = false;
+        proxy.wakeup();
+        return this;
+    }
+
+    /**
+     * Remove latency, jitter, bandwidth cap and stall.
+     */
+    public LinkConditions clear() {
+        latencyMillis = 0;
+        jitterMillis = 0;
+        bandwidth = 0;
+        stalled = false;
+        proxy.wakeup();
+        return this;
+    }
+
+    public long latency() {
+        return latencyMillis;
+    }
+
+    public long jitter() {
+        return jitterMillis;
+    }
+
+    public long bandwidth() {
+        return bandwidth;
+    }
+
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latencyMillis + "ms, jitter=" + jitterMillis + "ms, bandwidth=" +
+                (bandwidth == 0 ? "unlimited" : bandwidth + "B/s") + (stalled ? ", stalled" : "");
+    }
+}
@@ -0,0 +1,155 @@
+package redis.embedded.proxy;
+
+import redis.embedded.PortProvider;
+import redis.embedded.Redis;
+import redis.embedded.Resettable;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.util.Instances;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Redis} implementation behind a {@link TcpProxy} per port, whose {@link #ports()} are the ones of the
+ * proxies so that clients connect through them.
+ * <p>
+ * Only the traffic of the clients goes through the proxies: the replication links, the sentinels and the cluster bus
+ * still use the ports of the wrapped instances, as do the addresses advertised in {@code MOVED} redirections and by
+ * the sentinels. A replica goes through the proxy of its master only when configured with its port.
+ */
+public class ProxiedRedis implements Redis, Resettable {
+    private final Redis redis;
+    private final PortProvider portProvider;
+    private final List<TcpProxy> proxies = new ArrayList<>();
+
+    /**
+     * Proxy every port of the given instance on ephemeral ports.
+     */
+    public ProxiedRedis(Redis redis) {
+        this(redis, null);
+    }
+
+    /**
+     * Proxy every port of the given instance on ports of the given provider.
+     */
+    public ProxiedRedis(Redis redis, PortProvider portProvider) {
+        this.redis = redis;
+        this.portProvider = portProvider;
+    }
+
+    @Override
+    public boolean isActive() {
+        if (!redis.isActive()) {
+            return false;
+        }
+        synchronized (proxies) {
+            for (TcpProxy proxy : proxies) {
+                if (!proxy.isActive()) {
+                    return false;
+                }
+            }
+            return !proxies.isEmpty();
+        }
+    }
+
+    /**
+     * Start the wrapped instance, then a proxy in front of each of its ports.
+     */
+    @Override
+    public void start() throws EmbeddedRedisException {
+        redis.start();
+        synchronized (proxies) {
+            try {
+                for (Integer port : redis.ports()) {
+                    proxies.add(new TcpProxy(portProvider == null ? 0 : portProvider.next(), port).start());
+                }
+            } catch (RuntimeException e) {
+                closeProxies();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws EmbeddedRedisException {
+        closeProxies();
+        redis.stop();
+    }
+
+    @Override
+    public void reset() throws EmbeddedRedisException {
+        Instances.reset(redis);
+    }
+
+    /**
+     * @return the ports of the proxies, in the order of the ports of the wrapped instance
+     */
+    @Override
+    public List<Integer> ports() {
+        synchronized (proxies) {
+            List<Integer> ports = new ArrayList<>();
+            for (TcpProxy proxy : proxies) {
+                ports.add(proxy.port());
+            }
+            return ports;
+        }
+    }
+
+    @Override
+    public InputStream errors() {
+        return redis.errors();
+    }
+
+    /**
+     * @return the wrapped instance
+     */
+    public Redis unwrap() {
+        return redis;
+    }
+
+    /**
+     * @return the proxies, in the order of the ports of the wrapped instance
+     */
+    public List<TcpProxy> proxies() {
+        synchronized (proxies) {
+            return Collections.unmodifiableList(new ArrayList<>(proxies));
+        }
+    }
+
+    /**
+     * @return the proxy in front of the first port of the wrapped instance
+     */
+    public TcpProxy proxy() {
+        synchronized (proxies) {
+            if (proxies.isEmpty()) {
+                throw new EmbeddedRedisException("This redis instance is not running.");
+            }
+            return proxies.get(0);
+        }
+    }
+
+    /**
+     * @return the proxy in front of the given port of the wrapped instance
+     */
+    public TcpProxy proxy(int redisPort) {
+        synchronized (proxies) {
+            for (TcpProxy proxy : proxies) {
+                if (proxy.targetPort() == redisPort) {
+                    return proxy;
+                }
+            }
+        }
+        throw new EmbeddedRedisException("No proxy in front of port " + redisPort);
+    }
+
+    private void closeProxies() {
+        synchronized (proxies) {
+            for (TcpProxy proxy : proxies) {
+                proxy.close();
+            }
+            proxies.clear();
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package redis.embedded.proxy;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * A TCP proxy forwarding the connections it accepts on a local port to a target, under configurable
+ * {@link LinkConditions} for each {@link Direction}: latency, jitter, bandwidth cap and stall. The proxy can also be
+ * {@link #partition() partitioned}, silently dropping every byte like an unreachable network would.
+ * <p>
+ * All the connections are served by a single selector thread.
+ */
+public class TcpProxy implements Closeable {
+    public enum Direction {
+        /**
+         * From the clients to the target.
+         */
+        UPSTREAM,
+        /**
+         * From the target to the clients.
+         */
+        DOWNSTREAM
+    }
+
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long MAX_QUEUED_BYTES = 4 * 1024 * 1024;
+    private static final long CLOSE_TIMEOUT = 5000L;
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-proxy-%d").build();
+
+    private final Logger logger = LoggerFactory.getLogger(TcpProxy.class);
+
+    private final int listenPort;
+    private final String targetHost;
+    private final int targetPort;
+    private final LinkConditions upstream = new LinkConditions(this);
+    private final LinkConditions downstream = new LinkConditions(this);
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final Random random = new Random();
+
+    private volatile boolean partitioned = false;
+    private volatile boolean running = false;
+    private volatile int connectionCount = 0;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    /**
+     * @param listenPort the local port to listen on, zero for an ephemeral port
+     * @param targetHost the host to forward connections to
+     * @param targetPort the port to forward connections to
+     */
+    public TcpProxy(int listenPort, String targetHost, int targetPort) {
+        this.listenPort = listenPort;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    public TcpProxy(int listenPort, int targetPort) {
+        this(listenPort, LOCAL_HOST, targetPort);
+    }
+
+    public synchronized TcpProxy start() throws EmbeddedRedisException {
+        if (running) {
+            throw new EmbeddedRedisException("This proxy is already running...");
+        }
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.socket().setReuseAddress(true);
+            server.bind(new InetSocketAddress(LOCAL_HOST, listenPort));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly(server);
+            closeQuietly(selector);
+            throw new EmbeddedRedisException("Could not start proxy on port " + listenPort + " to " + targetHost + ":" + targetPort, e);
+        }
+
+        running = true;
+        thread = THREAD_FACTORY.newThread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        });
+        thread.start();
+        return this;
+    }
+
+    public boolean isActive() {
+        return running;
+    }
+
+    /**
+     * @return the local port the proxy listens on
+     */
+    public int port() {
+        if (server == null) {
+            return listenPort;
+        }
+        return server.socket().getLocalPort();
+    }
+
+    public int targetPort() {
+        return targetPort;
+    }
+
+    public LinkConditions conditions(Direction direction) {
+        return direction == Direction.UPSTREAM ? upstream : downstream;
+    }
+
+    /**
+     * Delay the bytes of both directions, adding up to a round trip of twice the given latency.
+     */
+    public TcpProxy latency(long millis) {
+        upstream.latency(millis);
+        downstream.latency(millis);
+        return this;
+    }
+
+    public TcpProxy jitter(long millis) {
+        upstream.jitter(millis);
+        downstream.jitter(millis);
+        return this;
+    }
+
+    public TcpProxy bandwidth(long bytesPerSecond) {
+        upstream.bandwidth(bytesPerSecond);
+        downstream.bandwidth(bytesPerSecond);
+        return this;
+    }
+
+    public TcpProxy stall() {
+        upstream.stall();
+        downstream.stall();
+        return this;
+    }
+
+    public TcpProxy unstall() {
+        upstream.unstall();
+        downstream.unstall();
+        return this;
+    }
+
+    /**
+     * Drop every byte in both directions, including the ones still delayed, while keeping the connections open.
+     * New connections are accepted, but nothing goes through them either.
+     */
+    public TcpProxy partition() {
+        partitioned = true;
+        wakeup();
+        return this;
+    }
+
+    /**
+     * End a {@link #partition()}. The bytes dropped meanwhile are lost.
+     */
+    public TcpProxy heal() {
+        partitioned = false;
+        wakeup();
+        return this;
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Close every connection currently going through the proxy.
+     */
+    public void disconnectAll() {
+        tasks.add(new Runnable() {
+            @Override
+            public void run() {
+                for (Connection connection : new ArrayList<>(connections)) {
+                    connection.close();
+                }
+            }
+        });
+        wakeup();
+    }
+
+    /**
+     * @return the number of connections currently going through the proxy
+     */
+    public int connections() {
+        return connectionCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeup();
+        try {
+            thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void wakeup() {
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TcpProxy[" + port() + " -> " + targetHost + ":" + targetPort + "]";
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                long nextDue = deliver(System.nanoTime());
+                updateInterests();
+                connectionCount = connections.size();
+
+                if (nextDue == Long.MAX_VALUE) {
+                    selector.select();
+                } else {
+                    long waitMillis = TimeUnit.NANOSECONDS.toMillis(nextDue - System.nanoTime());
+                    if (waitMillis > 0) {
+                        selector.select(waitMillis);
+                    } else {
+                        selector.selectNow();
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Proxy " + this + " failed", e);
+        } finally {
+            running = false;
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            connectionCount = 0;
+            closeQuietly(server);
+            closeQuietly(selector);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        Endpoint endpoint = (Endpoint) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                endpoint.connection.connected = endpoint.channel.finishConnect();
+            }
+            if (key.isValid() && key.isReadable()) {
+                endpoint.in.read();
+            }
+        } catch (IOException e) {
+            endpoint.connection.close();
+        }
+    }
+
+    private void accept() {
+        SocketChannel client = null;
+        SocketChannel target = null;
+        try {
+            client = server.accept();
+            if (client == null) {
+                return;
+            }
+            client.configureBlocking(false);
+            client.socket().setTcpNoDelay(true);
+
+            target = SocketChannel.open();
+            target.configureBlocking(false);
+            target.socket().setTcpNoDelay(true);
+            boolean connected = target.connect(new InetSocketAddress(targetHost, targetPort));
+
+            Connection connection = new Connection(client, target, connected);
+            connections.add(connection);
+        } catch (IOException e) {
+            logger.warn("Proxy " + this + " could not connect to its target", e);
+            closeQuietly(client);
+            closeQuietly(target);
+        }
+    }
+
+    private long deliver(long now) {
+        long nextDue = Long.MAX_VALUE;
+        for (Connection connection : new ArrayList<>(connections)) {
+            if (!connection.connected) {
+                continue;
+            }
+            try {
+                nextDue = Math.min(nextDue, connection.up.deliver(now));
+                nextDue = Math.min(nextDue, connection.down.deliver(now));
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+        return nextDue;
+    }
+
+    private void updateInterests() {
+        for (Connection connection : connections) {
+            connection.client.updateInterest();
+            connection.target.updateInterest();
+        }
+    }
+
+    private class Connection {
+        private final Endpoint client;
+        private final Endpoint target;
+        private final Pipe up;
+        private final Pipe down;
+        private boolean connected;
+
+        private Connection(SocketChannel clientChannel, SocketChannel targetChannel, boolean connected) throws IOException {
+            this.client = new Endpoint(this, clientChannel);
+            this.target = new Endpoint(this, targetChannel);
+            this.up = new Pipe(this, client, target, upstream);
+            this.down = new Pipe(this, target, client, downstream);
+            this.connected = connected;
+            client.key = clientChannel.register(selector, 0, client);
+            target.key = targetChannel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, target);
+        }
+
+        private void close() {
+            connections.remove(this);
+            client.key.cancel();
+            target.key.cancel();
+            closeQuietly(client.channel);
+            closeQuietly(target.channel);
+        }
+    }
+
+    private class Endpoint {
+        private final Connection connection;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        // the pipes reading from and writing to this endpoint
+        private Pipe in;
+        private Pipe out;
+
+        private Endpoint(Connection connection, SocketChannel channel) {
+            this.connection = connection;
+            this.channel = channel;
+        }
+
+        private void updateInterest() {
+            if (!key.isValid() || !connection.connected) {
+                return;
+            }
+            int ops = 0;
+            if (!in.eof && in.queuedBytes < MAX_QUEUED_BYTES) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (out.blocked) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+    }
+
+    /**
+     * The bytes flowing in one direction of a connection, held until they are due.
+     */
+    private class Pipe {
+        private final Connection connection;
+        private final Endpoint from;
+        private final Endpoint to;
+        private final LinkConditions conditions;
+        private final ArrayDeque<Chunk> queue = new ArrayDeque<>();
+        private long queuedBytes;
+        private long lastDue;
+        private long bandwidthCursor;
+        private boolean eof;
+        private boolean blocked;
+
+        private Pipe(Connection connection, Endpoint from, Endpoint to, LinkConditions conditions) {
+            this.connection = connection;
+            this.from = from;
+            this.to = to;
+            this.conditions = conditions;
+            from.in = this;
+            to.out = this;
+        }
+
+        private void read() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int read = from.channel.read(buffer);
+            if (read < 0) {
+                eof = true;
+                return;
+            }
+            if (read == 0 || partitioned) {
+                return;
+            }
+            buffer.flip();
+            queue.add(new Chunk(buffer, due(System.nanoTime(), read)));
+            queuedBytes += read;
+        }
+
+        private long due(long now, int bytes) {
+            long delay = TimeUnit.MILLISECONDS.toNanos(conditions.latency());
+            long jitter = conditions.jitter();
+            if (jitter > 0) {
+                delay += TimeUnit.MILLISECONDS.toNanos((long) (random.nextDouble() * jitter));
+            }
+            // bytes are delivered in order, whatever their jitter
+            long due = Math.max(now + delay, lastDue);
+
+            long bandwidth = conditions.bandwidth();
+            if (bandwidth > 0) {
+                due = Math.max(due, bandwidthCursor);
+                bandwidthCursor = due + TimeUnit.SECONDS.toNanos(bytes) / bandwidth;
+                due = bandwidthCursor;
+            }
+            lastDue = due;
+            return due;
+        }
+
+        /**
+         * @return when the next chunk is due, {@link Long#MAX_VALUE} if none is
+         */
+        private long deliver(long now) throws IOException {
+            if (partitioned) {
+                queue.clear();
+                queuedBytes = 0;
+            }
+            blocked = false;
+            if (conditions.isStalled()) {
+                return Long.MAX_VALUE;
+            }
+            while (!queue.isEmpty()) {
+                Chunk chunk = queue.peek();
+                if (chunk.due > now) {
+                    return chunk.due;
+                }
+                queuedBytes -= to.channel.write(chunk.data);
+                if (chunk.data.hasRemaining()) {
+                    blocked = true;
+                    return Long.MAX_VALUE;
+                }
+                queue.poll();
+            }
+            if (eof) {
+                // everything sent by this side has been delivered
+                connection.close();
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class Chunk {
+        private final ByteBuffer data;
+        private final long due;
+
+        private Chunk(ByteBuffer data, long due) {
+            this.data = data;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package redis.embedded.reaper;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.affinity.Affinity;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kills the redis processes left running by JVMs which exited without stopping them, e.g. a crashed test JVM whose
+ * instances still hold their ports.
+ * <p>
+ * Every instance started writes a {@link PidFile} tagged with the pid of its JVM into a directory shared by all JVMs
+ * (by default {@code ${java.io.tmpdir}/embedded-redis-pids}), and deletes it once stopped. The first instance started
+ * in a JVM reaps the processes of the pid files whose JVM no longer exists, unless the
+ * {@value #DISABLED_PROPERTY} system property is {@code true}. Only available on Unix-like systems.
+ */
+public class OrphanReaper {
+    public static final String DISABLED_PROPERTY = "embedded.redis.reaper.disabled";
+
+    private static final String DEFAULT_DIRECTORY_NAME = "embedded-redis-pids";
+    private static final File PROC = new File("/proc");
+
+    private final Logger logger = LoggerFactory.getLogger(OrphanReaper.class);
+    private final File directory;
+
+    public OrphanReaper() {
+        this(defaultDirectory());
+    }
+
+    public OrphanReaper(File directory) {
+        this.directory = directory;
+    }
+
+    public static File defaultDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY_NAME);
+    }
+
+    /**
+     * Kill with {@code SIGKILL} every process whose owner JVM is gone, and delete the pid files of the processes
+     * not running anymore. A process whose pid was reused by another command, or whose command cannot be read, is left
+     * alone.
+     *
+     * @return the pid files of the processes killed
+     */
+    public List<PidFile> reap() {
+        List<PidFile> reaped = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return reaped;
+        }
+        long jvmPid = Affinity.jvmPid();
+        for (File file : files) {
+            if (!file.getName().endsWith(PidFile.EXTENSION)) {
+                continue;
+            }
+            PidFile pidFile = PidFile.read(file);
+            if (pidFile == null || pidFile.ownerPid() == jvmPid || isAlive(pidFile.ownerPid())) {
+                continue;
+            }
+            if (isAlive(pidFile.pid()) && runs(pidFile.pid(), pidFile.command())) {
+                if (!kill(pidFile.pid())) {
+                    logger.warn("Could not kill orphaned redis process " + pidFile);
+                    continue;
+                }
+                logger.warn("Killed orphaned redis process " + pidFile);
+                reaped.add(pidFile);
+            }
+            pidFile.delete();
+        }
+        return reaped;
+    }
+
+    /**
+     * @return whether a process with the given pid exists
+     */
+    static boolean isAlive(long pid) {
+        if (PROC.isDirectory()) {
+            return new File(PROC, Long.toString(pid)).isDirectory();
+        }
+        // Also fails when the process belongs to another user, which cannot be killed anyway
+        return run("kill", "-0", Long.toString(pid));
+    }
+
+    /**
+     * @return whether the process runs the given command, or false when its command line cannot be read
+     */
+    static boolean runs(long pid, String command) {
+        String commandLine = commandLine(pid);
+        return commandLine != null && commandLine.contains(command);
+    }
+
+    /**
+     * @return the command line of the process, from {@code /proc} or else from {@code ps} (e.g. on macOS), or
+     * null when neither can read it
+     */
+    private static String commandLine(long pid) {
+        File cmdline = new File(new File(PROC, Long.toString(pid)), "cmdline");
+        if (cmdline.isFile()) {
+            try {
+                return FileUtils.readFileToString(cmdline, Charset.defaultCharset());
+            } catch (IOException e) {
+                // Fall back to ps
+            }
+        }
+        return psCommandLine(pid);
+    }
+
+    static String psCommandLine(long pid) {
+        try {
+            Process ps = new ProcessBuilder("ps", "-o", "command=", "-p", Long.toString(pid)).start();
+            String output = IOUtils.toString(ps.getInputStream(), Charset.defaultCharset());
+            return ps.waitFor() == 0 && !output.trim().isEmpty() ? output.trim() : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static boolean kill(long pid) {
+        return run("kill", "-KILL", Long.toString(pid));
+    }
+
+    private static boolean run(String... command) {
+        try {
+            return new ProcessBuilder(command).redirectErrorStream(true).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
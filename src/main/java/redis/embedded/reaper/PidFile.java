@@ -0,0 +1,124 @@
+package redis.embedded.reaper;
+
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * A file recording a running redis process and the JVM owning it, so that the process can be found and killed once
+ * that JVM is gone.
+ */
+public final class PidFile {
+    static final String EXTENSION = ".pid";
+
+    private static final String PID = "pid";
+    private static final String OWNER = "owner";
+    private static final String PORT = "port";
+    private static final String COMMAND = "command";
+
+    private final File file;
+    private final long pid;
+    private final long ownerPid;
+    private final int port;
+    private final String command;
+
+    private PidFile(File file, long pid, long ownerPid, int port, String command) {
+        this.file = file;
+        this.pid = pid;
+        this.ownerPid = ownerPid;
+        this.port = port;
+        this.command = command;
+    }
+
+    /**
+     * @param command the name of the executable of the process, checked before killing it in case its pid was reused
+     */
+    public static PidFile write(File directory, long pid, long ownerPid, int port, String command) {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new EmbeddedRedisException("Cannot create pid file directory " + directory);
+        }
+        Properties properties = new Properties();
+        properties.setProperty(PID, Long.toString(pid));
+        properties.setProperty(OWNER, Long.toString(ownerPid));
+        properties.setProperty(PORT, Integer.toString(port));
+        properties.setProperty(COMMAND, command);
+
+        File file = new File(directory, "redis-" + port + "-" + pid + EXTENSION);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            properties.store(out, null);
+        } catch (IOException e) {
+            throw new EmbeddedRedisException("Could not write pid file " + file, e);
+        } finally {
+            closeQuietly(out);
+        }
+        return new PidFile(file, pid, ownerPid, port, command);
+    }
+
+    /**
+     * @return the pid file, or {@code null} if it cannot be read or is not one, e.g. while it is being written
+     */
+    public static PidFile read(File file) {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+            return new PidFile(file,
+                    Long.parseLong(properties.getProperty(PID)),
+                    Long.parseLong(properties.getProperty(OWNER)),
+                    Integer.parseInt(properties.getProperty(PORT)),
+                    properties.getProperty(COMMAND, ""));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    public boolean delete() {
+        return file.delete() || !file.exists();
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public long pid() {
+        return pid;
+    }
+
+    /**
+     * @return the pid of the JVM which started the process
+     */
+    public long ownerPid() {
+        return ownerPid;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public String command() {
+        return command;
+    }
+
+    @Override
+    public String toString() {
+        return "PidFile{" +
+                "pid=" + pid +
+                ", owner=" + ownerPid +
+                ", port=" + port +
+                ", command=" + command +
+                '}';
+    }
+}
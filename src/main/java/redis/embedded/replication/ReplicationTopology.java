@@ -0,0 +1,465 @@
+package redis.embedded.replication;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.clients.jedis.Jedis;
+import redis.embedded.Redis;
+import redis.embedded.Resettable;
+import redis.embedded.RedisServer;
+import redis.embedded.StopPolicy;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.util.Instances;
+
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * One master and replicas of it, each replicating the master or another replica: wide fan-outs, chains of replicas
+ * of replicas, or any tree of both.
+ * <p>
+ * The servers are started as masters then attached to their source with {@code SLAVEOF}, one level of the tree at a
+ * time and every replica of a level at once, so that each replica performs a full synchronization of an up to date
+ * source. The duration and size of these synchronizations are reported by {@link #syncReports()}, and measured again
+ * by {@link #resync()}, typically once the master has been loaded with a large dataset.
+ */
+public class ReplicationTopology implements Redis, Resettable {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final long SYNC_POLL_INTERVAL = 10L;
+    private static final String INPUT_BYTES_FIELD = "total_net_input_bytes:";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-replication-%d").build();
+
+    private final List<Node> nodes;
+    private final Map<String, Node> nodesByName;
+    private final boolean disklessSync;
+    private final int disklessSyncDelay;
+    private final long syncTimeout;
+    private volatile List<SyncReport> syncReports = Collections.emptyList();
+
+    private ReplicationTopology(List<Node> nodes, boolean disklessSync, int disklessSyncDelay, long syncTimeout) {
+        this.nodes = nodes;
+        this.nodesByName = new HashMap<>();
+        for (Node node : nodes) {
+            nodesByName.put(node.name, node);
+        }
+        this.disklessSync = disklessSync;
+        this.disklessSyncDelay = disklessSyncDelay;
+        this.syncTimeout = syncTimeout;
+    }
+
+    @Override
+    public boolean isActive() {
+        for (Node node : nodes) {
+            if (!node.server.isActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start every server then attach the replicas, waiting for all of them to be synchronized.
+     */
+    @Override
+    public synchronized void start() throws EmbeddedRedisException {
+        inParallel(nodes, new NodeTask<Void>() {
+            @Override
+            public Void run(Node node) {
+                node.server.start();
+                return null;
+            }
+        });
+        configureSync();
+        syncReports = attach();
+    }
+
+    /**
+     * Stop every replica at the same time, then the master, each following its own {@link StopPolicy}.
+     */
+    @Override
+    public void stop() throws EmbeddedRedisException {
+        stop(null);
+    }
+
+    /**
+     * Stop every replica at the same time, then the master, following the given policy.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each server
+     */
+    public synchronized void stop(StopPolicy policy) throws EmbeddedRedisException {
+        try {
+            Instances.stopAll(replicas(), policy);
+        } finally {
+            Instances.stop(master(), policy);
+        }
+    }
+
+    /**
+     * Reset every server, the master first so that its replicas receive the flush through replication.
+     */
+    @Override
+    public synchronized void reset() throws EmbeddedRedisException {
+        for (Node node : nodes) {
+            node.server.reset();
+        }
+        // Restored to their initial value by the reset
+        configureSync();
+    }
+
+    @Override
+    public List<Integer> ports() {
+        List<Integer> ports = new ArrayList<>();
+        for (Node node : nodes) {
+            ports.add(node.port());
+        }
+        return ports;
+    }
+
+    @Override
+    public InputStream errors() {
+        List<InputStream> inputStreams = new ArrayList<>();
+        for (Node node : nodes) {
+            inputStreams.add(node.server.errors());
+        }
+        return new SequenceInputStream(Collections.enumeration(inputStreams));
+    }
+
+    /**
+     * Detach every replica and attach it again, forcing a full synchronization of the current dataset of the master.
+     *
+     * @return the synchronization of every replica, in declaration order
+     */
+    public synchronized List<SyncReport> resync() {
+        for (int i = nodes.size() - 1; i > 0; i--) {
+            try (Jedis jedis = connect(nodes.get(i))) {
+                jedis.slaveofNoOne();
+                // A replica writing on its own can no longer resume its replication stream
+                jedis.flushAll();
+            }
+        }
+        syncReports = attach();
+        return syncReports;
+    }
+
+    /**
+     * @return the synchronization of every replica during the last {@link #start()} or {@link #resync()}, in
+     * declaration order
+     */
+    public List<SyncReport> syncReports() {
+        return syncReports;
+    }
+
+    public RedisServer master() {
+        return nodes.get(0).server;
+    }
+
+    /**
+     * @return every replica, in declaration order
+     */
+    public List<RedisServer> replicas() {
+        List<RedisServer> replicas = new ArrayList<>();
+        for (Node node : nodes.subList(1, nodes.size())) {
+            replicas.add(node.server);
+        }
+        return replicas;
+    }
+
+    public RedisServer get(String name) {
+        Node node = nodesByName.get(name);
+        if (node == null) {
+            throw new EmbeddedRedisException("No server named " + name + " in this replication topology");
+        }
+        return node.server;
+    }
+
+    private void configureSync() {
+        for (Node node : nodes) {
+            try (Jedis jedis = connect(node)) {
+                jedis.configSet("repl-diskless-sync", disklessSync ? "yes" : "no");
+                jedis.configSet("repl-diskless-sync-delay", Integer.toString(disklessSyncDelay));
+            }
+        }
+    }
+
+    private List<SyncReport> attach() {
+        Map<Integer, List<Node>> levels = new TreeMap<>();
+        for (Node node : nodes.subList(1, nodes.size())) {
+            if (!levels.containsKey(node.depth)) {
+                levels.put(node.depth, new ArrayList<Node>());
+            }
+            levels.get(node.depth).add(node);
+        }
+
+        Map<Node, SyncReport> reports = new HashMap<>();
+        for (List<Node> level : levels.values()) {
+            List<SyncReport> levelReports = inParallel(level, new NodeTask<SyncReport>() {
+                @Override
+                public SyncReport run(Node node) {
+                    return sync(node);
+                }
+            });
+            for (int i = 0; i < level.size(); i++) {
+                reports.put(level.get(i), levelReports.get(i));
+            }
+        }
+
+        List<SyncReport> ordered = new ArrayList<>();
+        for (Node node : nodes.subList(1, nodes.size())) {
+            ordered.add(reports.get(node));
+        }
+        return Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * Make a node a replica of its source and measure its synchronization. The bytes received are read from
+     * {@code INFO stats} before and after, minus the commands sent meanwhile to follow the synchronization.
+     */
+    private SyncReport sync(Node node) {
+        Node source = node.source;
+        String sourcePort = Integer.toString(source.port());
+        long deadline = System.currentTimeMillis() + syncTimeout;
+
+        try (Jedis jedis = connect(node)) {
+            long inputBefore = inputBytes(jedis);
+            long start = System.nanoTime();
+            jedis.slaveof(LOCAL_HOST, source.port());
+            long measurementBytes = commandSize("SLAVEOF", LOCAL_HOST, sourcePort);
+
+            while (true) {
+                String replication = jedis.info("replication");
+                measurementBytes += commandSize("INFO", "replication");
+                if (replication.contains("master_link_status:up") && replication.contains("master_sync_in_progress:0")) {
+                    break;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new EmbeddedRedisException("Replica " + node.name + " did not synchronize with "
+                            + source.name + " in time:\n" + replication);
+                }
+                Thread.sleep(SYNC_POLL_INTERVAL);
+            }
+
+            long duration = System.nanoTime() - start;
+            long inputAfter = inputBytes(jedis);
+            measurementBytes += commandSize("INFO", "stats");
+            return new SyncReport(node.name, node.port(), source.name, source.port(), node.depth, disklessSync,
+                    duration, Math.max(0, inputAfter - inputBefore - measurementBytes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException("Interrupted while waiting for replication", e);
+        }
+    }
+
+    private static long inputBytes(Jedis jedis) {
+        for (String line : jedis.info("stats").split("\r?\n")) {
+            if (line.startsWith(INPUT_BYTES_FIELD)) {
+                return Long.parseLong(line.substring(INPUT_BYTES_FIELD.length()).trim());
+            }
+        }
+        throw new EmbeddedRedisException("The redis server does not report " + INPUT_BYTES_FIELD);
+    }
+
+    /**
+     * @return the size of a command in the redis protocol
+     */
+    static long commandSize(String... args) {
+        long size = header(args.length);
+        for (String arg : args) {
+            int length = arg.getBytes(UTF_8).length;
+            size += header(length) + length + 2;
+        }
+        return size;
+    }
+
+    private static long header(int count) {
+        // type, count and CRLF
+        return 1 + Integer.toString(count).length() + 2;
+    }
+
+    private static Jedis connect(Node node) {
+        return new Jedis(LOCAL_HOST, node.port());
+    }
+
+    private <T> List<T> inParallel(List<Node> targets, final NodeTask<T> task) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, targets.size()), THREAD_FACTORY);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (final Node node : targets) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() {
+                        return task.run(node);
+                    }
+                }));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EmbeddedRedisException) {
+                throw (EmbeddedRedisException) e.getCause();
+            }
+            throw new EmbeddedRedisException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface NodeTask<T> {
+        T run(Node node);
+    }
+
+    private static class Node {
+        private final String name;
+        private final RedisServer server;
+        private final Node source;
+        private final int depth;
+
+        private Node(String name, RedisServer server, Node source) {
+            this.name = name;
+            this.server = server;
+            this.source = source;
+            this.depth = source == null ? 0 : source.depth + 1;
+        }
+
+        private int port() {
+            return server.ports().get(0);
+        }
+    }
+
+    /**
+     * Declares a master then its replicas, each replicating a server declared before it. The builders given for the
+     * servers must not be configured as replicas, and must give each server its own port, e.g. with a
+     * {@link redis.embedded.PortProvider}.
+     */
+    public static class Builder {
+        private static final long DEFAULT_SYNC_TIMEOUT = 60000L;
+
+        private final Map<String, NodeSpec> specs = new LinkedHashMap<>();
+        private boolean disklessSync = false;
+        private int disklessSyncDelay = 0;
+        private long syncTimeout = DEFAULT_SYNC_TIMEOUT;
+
+        public Builder master(String name, RedisServer.Builder serverBuilder) {
+            if (!specs.isEmpty()) {
+                throw new RedisBuildingException("The master must be declared first, and only once");
+            }
+            return add(name, null, serverBuilder);
+        }
+
+        public Builder replica(String name, String sourceName, RedisServer.Builder serverBuilder) {
+            if (!specs.containsKey(sourceName)) {
+                throw new RedisBuildingException("Replica " + name + " replicates " + sourceName + ", which must be declared before");
+            }
+            return add(name, sourceName, serverBuilder);
+        }
+
+        /**
+         * Declare {@code count} replicas of the same source, named {@code prefix-1} to {@code prefix-<count>}.
+         */
+        public Builder fanOut(String prefix, String sourceName, int count, RedisServer.Builder serverBuilder) {
+            for (int i = 1; i <= count; i++) {
+                replica(prefix + "-" + i, sourceName, serverBuilder);
+            }
+            return this;
+        }
+
+        /**
+         * Declare a chain of {@code length} replicas named {@code prefix-1} to {@code prefix-<length>}, the first one
+         * replicating the given source and each following one replicating the previous one.
+         */
+        public Builder chain(String prefix, String sourceName, int length, RedisServer.Builder serverBuilder) {
+            String previous = sourceName;
+            for (int i = 1; i <= length; i++) {
+                replica(prefix + "-" + i, previous, serverBuilder);
+                previous = prefix + "-" + i;
+            }
+            return this;
+        }
+
+        /**
+         * Stream the dataset straight to the sockets of the replicas instead of writing it to disk first.
+         */
+        public Builder disklessSync() {
+            return disklessSync(0);
+        }
+
+        /**
+         * @param delaySeconds time a source waits for more replicas before starting a diskless transfer, as all the
+         *                     replicas it serves must join the transfer when it starts
+         */
+        public Builder disklessSync(int delaySeconds) {
+            this.disklessSync = true;
+            this.disklessSyncDelay = delaySeconds;
+            return this;
+        }
+
+        /**
+         * @param syncTimeout maximum time in milliseconds for a replica to synchronize with its source
+         */
+        public Builder syncTimeout(long syncTimeout) {
+            this.syncTimeout = syncTimeout;
+            return this;
+        }
+
+        public ReplicationTopology build() {
+            if (specs.isEmpty()) {
+                throw new RedisBuildingException("A replication topology needs a master");
+            }
+
+            List<Node> nodes = new ArrayList<>();
+            Map<String, Node> built = new HashMap<>();
+            Map<Integer, String> ports = new HashMap<>();
+            for (NodeSpec spec : specs.values()) {
+                Node node = new Node(spec.name, spec.serverBuilder.build(), built.get(spec.sourceName));
+                String sharing = ports.put(node.port(), node.name);
+                if (sharing != null) {
+                    throw new RedisBuildingException("Servers " + sharing + " and " + node.name + " share port " + node.port());
+                }
+                nodes.add(node);
+                built.put(node.name, node);
+            }
+            return new ReplicationTopology(nodes, disklessSync, disklessSyncDelay, syncTimeout);
+        }
+
+        private Builder add(String name, String sourceName, RedisServer.Builder serverBuilder) {
+            if (specs.containsKey(name)) {
+                throw new RedisBuildingException("Replication topology already has a server named " + name);
+            }
+            specs.put(name, new NodeSpec(name, sourceName, serverBuilder.copy()));
+            return this;
+        }
+
+        private static class NodeSpec {
+            private final String name;
+            private final String sourceName;
+            private final RedisServer.Builder serverBuilder;
+
+            private NodeSpec(String name, String sourceName, RedisServer.Builder serverBuilder) {
+                this.name = name;
+                this.sourceName = sourceName;
+                this.serverBuilder = serverBuilder;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package redis.embedded.replication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full synchronization of one replica of a {@link ReplicationTopology} with its source.
+ */
+public class SyncReport {
+    private final String replica;
+    private final int replicaPort;
+    private final String source;
+    private final int sourcePort;
+    private final int depth;
+    private final boolean diskless;
+    private final long durationNanos;
+    private final long bytes;
+
+    SyncReport(String replica, int replicaPort, String source, int sourcePort, int depth, boolean diskless,
+               long durationNanos, long bytes) {
+        this.replica = replica;
+        this.replicaPort = replicaPort;
+        this.source = source;
+        this.sourcePort = sourcePort;
+        this.depth = depth;
+        this.diskless = diskless;
+        this.durationNanos = durationNanos;
+        this.bytes = bytes;
+    }
+
+    public String replica() {
+        return replica;
+    }
+
+    public int replicaPort() {
+        return replicaPort;
+    }
+
+    /**
+     * @return the name of the node the replica synchronized with, the master or another replica
+     */
+    public String source() {
+        return source;
+    }
+
+    public int sourcePort() {
+        return sourcePort;
+    }
+
+    /**
+     * @return the number of replication links between the master and the replica, 1 for a direct replica
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public boolean isDiskless() {
+        return diskless;
+    }
+
+    /**
+     * @return the time from {@code SLAVEOF} to the replica reporting its link up and no synchronization in progress
+     */
+    public long duration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the bytes received by the replica during the synchronization, the commands of the measurement
+     * itself excluded
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return replica + " <- " + source + " (depth " + depth + (diskless ? ", diskless" : "") + "): "
+                + duration(TimeUnit.MILLISECONDS) + "ms, " + bytes + " bytes";
+    }
+}
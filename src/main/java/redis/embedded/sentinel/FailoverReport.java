@@ -0,0 +1,68 @@
+package redis.embedded.sentinel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of a sentinel failover, measured from the sentinel events:
+ * <ul>
+ * <li>detection: from the trigger to the master being objectively down ({@code +odown}), or to the start of the
+ * failover ({@code +try-failover}) when it was asked with {@code SENTINEL FAILOVER}</li>
+ * <li>election: from detection to a leader having selected the replica to promote
+ * ({@code +failover-state-select-slave})</li>
+ * <li>reconfiguration: from election to the new master being announced ({@code +switch-master})</li>
+ * </ul>
+ */
+public class FailoverReport {
+    private final String masterName;
+    private final int oldMasterPort;
+    private final int newMasterPort;
+    private final long detectionNanos;
+    private final long electionNanos;
+    private final long reconfigurationNanos;
+
+    public FailoverReport(String masterName, int oldMasterPort, int newMasterPort,
+                          long detectionNanos, long electionNanos, long reconfigurationNanos) {
+        this.masterName = masterName;
+        this.oldMasterPort = oldMasterPort;
+        this.newMasterPort = newMasterPort;
+        this.detectionNanos = detectionNanos;
+        this.electionNanos = electionNanos;
+        this.reconfigurationNanos = reconfigurationNanos;
+    }
+
+    public String masterName() {
+        return masterName;
+    }
+
+    public int oldMasterPort() {
+        return oldMasterPort;
+    }
+
+    public int newMasterPort() {
+        return newMasterPort;
+    }
+
+    public long detection(TimeUnit unit) {
+        return unit.convert(detectionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long election(TimeUnit unit) {
+        return unit.convert(electionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long reconfiguration(TimeUnit unit) {
+        return unit.convert(reconfigurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long total(TimeUnit unit) {
+        return unit.convert(detectionNanos + electionNanos + reconfigurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "Failover of " + masterName + " from port " + oldMasterPort + " to port " + newMasterPort +
+                ": detection=" + detection(TimeUnit.MILLISECONDS) + "ms" +
+                ", election=" + election(TimeUnit.MILLISECONDS) + "ms" +
+                ", reconfiguration=" + reconfiguration(TimeUnit.MILLISECONDS) + "ms";
+    }
+}
@@ -0,0 +1,20 @@
+package redis.embedded.sentinel;
+
+/**
+ * How a failover of a sentinel monitored master is triggered.
+ */
+public enum FailoverTrigger {
+    /**
+     * Kill the master process with {@code SIGKILL}, leaving it no chance to close its connections. It is left
+     * stopped.
+     */
+    KILL,
+    /**
+     * Pause the clients of the master with {@code CLIENT PAUSE}, long enough for the sentinels to consider it down.
+     */
+    PAUSE,
+    /**
+     * Ask a sentinel for a failover with {@code SENTINEL FAILOVER}, without the master being down.
+     */
+    COMMAND
+}
@@ -0,0 +1,64 @@
+package redis.embedded.sentinel;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An event published by a sentinel, such as {@code +sdown} or {@code +switch-master}.
+ *
+ * @see <a href="http://redis.io/topics/sentinel#pubsub-messages">Sentinel Pub/Sub messages</a>
+ */
+public class SentinelEvent {
+    private final int sentinelPort;
+    private final String type;
+    private final String message;
+    private final long nanoTime;
+
+    public SentinelEvent(int sentinelPort, String type, String message, long nanoTime) {
+        this.sentinelPort = sentinelPort;
+        this.type = type;
+        this.message = message;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return the port of the sentinel which published this event
+     */
+    public int sentinelPort() {
+        return sentinelPort;
+    }
+
+    /**
+     * @return the channel of the event, e.g. {@code +switch-master}
+     */
+    public String type() {
+        return type;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which this event was received
+     */
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * @return whether this event is about the given master or one of its replicas
+     */
+    public boolean concerns(String masterName) {
+        return words().contains(masterName);
+    }
+
+    List<String> words() {
+        return Arrays.asList(message.split(" "));
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + message;
+    }
+}
@@ -0,0 +1,8 @@
+package redis.embedded.sentinel;
+
+/**
+ * Receives the events of a {@link SentinelEventSubscription}. Events are received on the subscription threads.
+ */
+public interface SentinelEventListener {
+    void onEvent(SentinelEvent event);
+}
@@ -0,0 +1,100 @@
+package redis.embedded.sentinel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A subscription to every event published by a set of sentinels. The subscription is active once constructed and
+ * until it is closed.
+ */
+public class SentinelEventSubscription implements Closeable {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final long SUBSCRIBE_TIMEOUT = 5000L;
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-sentinel-events-%d").build();
+
+    private final Logger logger = LoggerFactory.getLogger(SentinelEventSubscription.class);
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    public SentinelEventSubscription(List<Integer> sentinelPorts, SentinelEventListener listener) {
+        CountDownLatch subscribed = new CountDownLatch(sentinelPorts.size());
+        for (Integer port : sentinelPorts) {
+            Subscriber subscriber = new Subscriber(port, listener, subscribed);
+            subscribers.add(subscriber);
+            THREAD_FACTORY.newThread(subscriber).start();
+        }
+
+        try {
+            if (!subscribed.await(SUBSCRIBE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                close();
+                throw new EmbeddedRedisException("Could not subscribe to sentinels on ports " + sentinelPorts);
+            }
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException("Interrupted while subscribing to sentinels", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private class Subscriber extends JedisPubSub implements Runnable {
+        private final int port;
+        private final SentinelEventListener listener;
+        private final CountDownLatch subscribed;
+        private final Jedis jedis;
+        private volatile boolean closed;
+
+        private Subscriber(int port, SentinelEventListener listener, CountDownLatch subscribed) {
+            this.port = port;
+            this.listener = listener;
+            this.subscribed = subscribed;
+            this.jedis = new Jedis(LOCAL_HOST, port);
+        }
+
+        @Override
+        public void run() {
+            try {
+                jedis.psubscribe(this, "*");
+            } catch (JedisConnectionException e) {
+                if (!closed) {
+                    logger.warn("Lost subscription to sentinel on port " + port, e);
+                }
+            }
+        }
+
+        @Override
+        public void onPSubscribe(String pattern, int subscribedChannels) {
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+            listener.onEvent(new SentinelEvent(port, channel, message, System.nanoTime()));
+        }
+
+        private void close() {
+            closed = true;
+            // Closing the socket makes the subscribing thread leave psubscribe()
+            jedis.disconnect();
+        }
+    }
+}
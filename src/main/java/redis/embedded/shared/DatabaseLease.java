@@ -0,0 +1,74 @@
+package redis.embedded.shared;
+
+import redis.clients.jedis.Jedis;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A logical database of a running server leased from a {@link DatabasePool}.
+ * <p>
+ * Clients must {@code SELECT} {@link #database()} after connecting, or connect with {@link #uri()} or
+ * {@link #newJedis()} which already do. The database is flushed once released.
+ */
+public class DatabaseLease implements Closeable {
+    private final DatabasePool pool;
+    private final String host;
+    private final int port;
+    private final int database;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    DatabaseLease(DatabasePool pool, String host, int port, int database) {
+        this.pool = pool;
+        this.host = host;
+        this.port = port;
+        this.database = database;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public int database() {
+        return database;
+    }
+
+    /**
+     * @return an URI pinned to the leased database, e.g. {@code redis://localhost:6379/3}
+     */
+    public String uri() {
+        return "redis://" + host + ":" + port + "/" + database;
+    }
+
+    /**
+     * @return a new connection with the leased database selected, to be closed by the caller
+     */
+    public Jedis newJedis() {
+        Jedis jedis = new Jedis(host, port);
+        jedis.select(database);
+        return jedis;
+    }
+
+    /**
+     * Give back the database to the pool, which flushes it asynchronously. Subsequent calls have no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(database);
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return uri();
+    }
+}
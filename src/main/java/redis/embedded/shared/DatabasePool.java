@@ -0,0 +1,128 @@
+package redis.embedded.shared;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases the logical databases of a single running server, isolating its users at the cost of a {@code FLUSHDB}
+ * instead of a process per user.
+ * <pre>
+ * {@code
+ * RedisServer server = new RedisServer.Builder().databases(64).build();
+ * server.start();
+ * DatabasePool pool = new DatabasePool(server);
+ *
+ * try (DatabaseLease lease = pool.lease(); Jedis jedis = lease.newJedis()) {
+ *     // do some work on a clean keyspace
+ * }
+ * }
+ * </pre>
+ * Released databases are flushed in background and leased again once flushed. Databases are not flushed when the
+ * pool is created: the server is expected to start empty.
+ */
+public class DatabasePool implements Closeable {
+    private static final String LOCAL_HOST = "localhost";
+
+    private final Logger logger = LoggerFactory.getLogger(DatabasePool.class);
+
+    private final String host;
+    private final int port;
+    private final int size;
+    private final BlockingQueue<Integer> available = new LinkedBlockingQueue<>();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("embedded-redis-flushdb-%d").build());
+
+    /**
+     * Lease every database of a running server, as reported by {@code CONFIG GET databases}.
+     */
+    public DatabasePool(RedisServer server) {
+        this.host = LOCAL_HOST;
+        this.port = server.ports().get(0);
+        this.size = fetchDatabases();
+        for (int database = 0; database < size; database++) {
+            available.add(database);
+        }
+    }
+
+    private int fetchDatabases() {
+        try (Jedis jedis = new Jedis(host, port)) {
+            List<String> config = jedis.configGet("databases");
+            return Integer.parseInt(config.get(1));
+        }
+    }
+
+    /**
+     * Lease a database, waiting for one to be released if they are all leased.
+     */
+    public DatabaseLease lease() throws InterruptedException {
+        return new DatabaseLease(this, host, port, available.take());
+    }
+
+    /**
+     * Lease a database, waiting at most {@code timeout} for one to be released if they are all leased.
+     *
+     * @throws EmbeddedRedisException if no database has been released in time
+     */
+    public DatabaseLease lease(long timeout, TimeUnit unit) throws InterruptedException {
+        Integer database = available.poll(timeout, unit);
+        if (database == null) {
+            throw new EmbeddedRedisException("All the " + size + " databases of redis on port " + port + " are leased.");
+        }
+        return new DatabaseLease(this, host, port, database);
+    }
+
+    /**
+     * @return the number of databases of the server
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of databases which can be leased without waiting
+     */
+    public int available() {
+        return available.size();
+    }
+
+    void release(final int database) {
+        flusher.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (Jedis jedis = new Jedis(host, port)) {
+                    jedis.select(database);
+                    jedis.flushDB();
+                    available.add(database);
+                } catch (RuntimeException e) {
+                    // Never lease a database which could not be cleaned
+                    logger.warn("Failed to flush database " + database + " of redis on port " + port, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop flushing released databases, waiting for pending flushes to complete.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
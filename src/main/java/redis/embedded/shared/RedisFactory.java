@@ -0,0 +1,10 @@
+package redis.embedded.shared;
+
+import redis.embedded.Redis;
+
+/**
+ * Creates the {@link Redis} implementation shared by a {@link SharedRedisRegistry}, when none is running yet.
+ */
+public interface RedisFactory<T extends Redis> {
+    T create();
+}
@@ -0,0 +1,46 @@
+package redis.embedded.shared;
+
+import redis.embedded.Redis;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A hold on a running {@link Redis} implementation shared through a {@link SharedRedisRegistry}.
+ * <p>
+ * The shared instance must not be stopped directly: it is stopped by the registry once every holder has called
+ * {@link #release()} and the idle timeout of the registry has elapsed.
+ */
+public class SharedRedis<T extends Redis> implements Closeable {
+    private final SharedRedisRegistry registry;
+    private final SharedRedisRegistry.Entry entry;
+    private final T redis;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    SharedRedis(SharedRedisRegistry registry, SharedRedisRegistry.Entry entry, T redis) {
+        this.registry = registry;
+        this.entry = entry;
+        this.redis = redis;
+    }
+
+    /**
+     * @return the running shared instance
+     */
+    public T get() {
+        return redis;
+    }
+
+    /**
+     * Release this hold. Subsequent calls have no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            registry.release(entry);
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,233 @@
+package redis.embedded.shared;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.Redis;
+import redis.embedded.RedisServer;
+import redis.embedded.cluster.RedisCluster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry of running {@link Redis} implementations shared by every holder asking for an equivalent one.
+ * <p>
+ * Instances are identified by a key, which is the {@code fingerprint()} of their builder for servers and clusters.
+ * The first {@code acquire} of a key builds and starts the instance, following ones return the running instance.
+ * Once the last holder has released it, the instance is stopped after the idle timeout unless it is acquired again
+ * in the meantime, which lets consecutive test classes reuse the same instance.
+ * <pre>
+ * {@code
+ * try (SharedRedis<RedisCluster> shared = SharedRedisRegistry.instance().acquire(clusterBuilder)) {
+ *     List<Integer> ports = shared.get().ports();
+ *     // do some work
+ * }
+ * }
+ * </pre>
+ * Instances of the {@link #instance()} registry still running when the JVM exits are stopped by a shutdown hook.
+ */
+public class SharedRedisRegistry {
+    public static final long DEFAULT_IDLE_TIMEOUT = 30000L;
+
+    private static final SharedRedisRegistry INSTANCE = new SharedRedisRegistry(DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+
+    private final Logger logger = LoggerFactory.getLogger(SharedRedisRegistry.class);
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler = newScheduler();
+    private volatile long idleTimeoutMillis;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                INSTANCE.stopAll();
+            }
+        }, "embedded-redis-shared-shutdown"));
+    }
+
+    /**
+     * Create a registry of its own. Unlike the {@link #instance()} registry, the instances of this registry are not
+     * stopped when the JVM exits, {@link #stopAll()} must be called instead.
+     */
+    public SharedRedisRegistry(long idleTimeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+    }
+
+    /**
+     * @return the registry shared by the whole JVM, with an idle timeout of {@value #DEFAULT_IDLE_TIMEOUT} ms
+     */
+    public static SharedRedisRegistry instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Change the time an instance without holder is kept running. It applies to instances released afterward.
+     */
+    public SharedRedisRegistry idleTimeout(long idleTimeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+        return this;
+    }
+
+    public SharedRedis<RedisServer> acquire(final RedisServer.Builder builder) {
+        final RedisServer.Builder copy = builder.copy();
+        return acquire(copy.fingerprint(), new RedisFactory<RedisServer>() {
+            @Override
+            public RedisServer create() {
+                return copy.build();
+            }
+        });
+    }
+
+    public SharedRedis<RedisCluster> acquire(final RedisCluster.Builder builder) {
+        final RedisCluster.Builder copy = builder.copy();
+        return acquire(copy.fingerprint(), new RedisFactory<RedisCluster>() {
+            @Override
+            public RedisCluster create() {
+                return copy.build();
+            }
+        });
+    }
+
+    /**
+     * Acquire the instance registered under {@code key}, creating and starting it with {@code factory} if needed.
+     * A key must always be used with the same type of instance.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Redis> SharedRedis<T> acquire(String key, RedisFactory<T> factory) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key, factory.create());
+                entries.put(key, entry);
+            }
+            entry.holders++;
+            entry.cancelIdleStop();
+        }
+
+        try {
+            entry.ensureStarted();
+        } catch (RuntimeException e) {
+            discard(entry);
+            throw e;
+        }
+        return new SharedRedis<>(this, entry, (T) entry.redis);
+    }
+
+    /**
+     * @return the number of holders of the instance registered under {@code key}
+     */
+    public synchronized int holders(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? 0 : entry.holders;
+    }
+
+    /**
+     * Stop every registered instance, whether it is still held or not.
+     */
+    public synchronized void stopAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            entry.cancelIdleStop();
+            stop(entry);
+        }
+    }
+
+    synchronized void release(final Entry entry) {
+        entry.holders--;
+        if (entry.holders > 0) {
+            return;
+        }
+
+        if (idleTimeoutMillis <= 0) {
+            stop(entry);
+        } else {
+            entry.idleStop = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    stopIfIdle(entry);
+                }
+            }, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void discard(Entry entry) {
+        entry.holders--;
+        if (entry.holders == 0) {
+            unregister(entry);
+        }
+    }
+
+    private synchronized void stopIfIdle(Entry entry) {
+        if (entry.holders == 0 && entries.get(entry.key) == entry) {
+            stop(entry);
+        }
+    }
+
+    private void stop(Entry entry) {
+        unregister(entry);
+        try {
+            entry.stop();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to stop shared redis " + entry.key, e);
+        }
+    }
+
+    /**
+     * Remove an entry unless it was already replaced, e.g. by an acquire following {@link #stopAll()}
+     */
+    private void unregister(Entry entry) {
+        if (entries.get(entry.key) == entry) {
+            entries.remove(entry.key);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("embedded-redis-shared-%d").build());
+        // Do not keep a thread alive for registries without pending stop
+        scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+
+    static class Entry {
+        private final String key;
+        private final Redis redis;
+        private int holders;
+        private boolean started;
+        private ScheduledFuture<?> idleStop;
+
+        private Entry(String key, Redis redis) {
+            this.key = key;
+            this.redis = redis;
+        }
+
+        private synchronized void ensureStarted() {
+            if (!started) {
+                redis.start();
+                started = true;
+            }
+        }
+
+        private synchronized void stop() {
+            if (started) {
+                redis.stop();
+                started = false;
+            }
+        }
+
+        private void cancelIdleStop() {
+            if (idleStop != null) {
+                idleStop.cancel(false);
+                idleStop = null;
+            }
+        }
+    }
+}
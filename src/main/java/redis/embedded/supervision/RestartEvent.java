@@ -0,0 +1,90 @@
+package redis.embedded.supervision;
+
+import redis.embedded.AbstractRedisInstance;
+
+/**
+ * A restart of a crashed instance by a {@link Supervisor}.
+ */
+public class RestartEvent {
+
+    public enum Outcome {
+        /**
+         * The instance is running again, and back in its cluster for a cluster node.
+         */
+        RESTARTED,
+        /**
+         * The restart failed, and is attempted again if the policy allows it.
+         */
+        FAILED,
+        /**
+         * The instance crashed more often than the policy allows, and is no longer supervised.
+         */
+        GAVE_UP
+    }
+
+    private final AbstractRedisInstance instance;
+    private final int port;
+    private final Outcome outcome;
+    private final Integer exitCode;
+    private final int restarts;
+    private final Exception failure;
+    private final long timestamp;
+
+    RestartEvent(AbstractRedisInstance instance, Outcome outcome, Integer exitCode, int restarts, Exception failure) {
+        this.instance = instance;
+        this.port = instance.ports().get(0);
+        this.outcome = outcome;
+        this.exitCode = exitCode;
+        this.restarts = restarts;
+        this.failure = failure;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public AbstractRedisInstance instance() {
+        return instance;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    /**
+     * @return the exit code of the crashed process
+     */
+    public Integer exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return the number of restarts attempted within the window of the policy, this one included
+     */
+    public int restarts() {
+        return restarts;
+    }
+
+    /**
+     * @return the cause of a {@link Outcome#FAILED} restart, {@code null} otherwise
+     */
+    public Exception failure() {
+        return failure;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "RestartEvent{" +
+                "port=" + port +
+                ", outcome=" + outcome +
+                ", exitCode=" + exitCode +
+                ", restarts=" + restarts +
+                (failure != null ? ", failure=" + failure.getMessage() : "") +
+                '}';
+    }
+}
@@ -0,0 +1,9 @@
+package redis.embedded.supervision;
+
+/**
+ * Notified of the restarts performed by a {@link Supervisor}.
+ */
+public interface RestartListener {
+
+    void onRestart(RestartEvent event);
+}
@@ -0,0 +1,119 @@
+package redis.embedded.supervision;
+
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a {@link Supervisor} restarts a crashed instance: after an exponential backoff, and at most a number of times
+ * within a sliding window, after which it gives up on the instance.
+ */
+public class RestartPolicy {
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final int maxRestarts;
+    private final long windowMillis;
+    private final long rejoinTimeoutMillis;
+
+    private RestartPolicy(long initialBackoffMillis, long maxBackoffMillis, double multiplier, int maxRestarts,
+                          long windowMillis, long rejoinTimeoutMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.multiplier = multiplier;
+        this.maxRestarts = maxRestarts;
+        this.windowMillis = windowMillis;
+        this.rejoinTimeoutMillis = rejoinTimeoutMillis;
+    }
+
+    /**
+     * @param restarts the number of restarts already attempted within the window
+     * @return the delay in milliseconds before the next restart
+     */
+    public long backoff(int restarts) {
+        double backoff = initialBackoffMillis * Math.pow(multiplier, restarts);
+        return (long) Math.min(backoff, maxBackoffMillis);
+    }
+
+    public int maxRestarts() {
+        return maxRestarts;
+    }
+
+    public long window(TimeUnit unit) {
+        return unit.convert(windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the maximum time for a restarted cluster node to rejoin its cluster
+     */
+    public long rejoinTimeout(TimeUnit unit) {
+        return unit.convert(rejoinTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "RestartPolicy{" +
+                "backoff=" + initialBackoffMillis + "ms*" + multiplier + "^n up to " + maxBackoffMillis + "ms" +
+                ", maxRestarts=" + maxRestarts + " per " + windowMillis + "ms" +
+                '}';
+    }
+
+    public static class Builder {
+        private static final long DEFAULT_INITIAL_BACKOFF = 100L;
+        private static final long DEFAULT_MAX_BACKOFF = 10000L;
+        private static final double DEFAULT_MULTIPLIER = 2.0;
+        private static final int DEFAULT_MAX_RESTARTS = 5;
+        private static final long DEFAULT_WINDOW = 60000L;
+        private static final long DEFAULT_REJOIN_TIMEOUT = 30000L;
+
+        private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF;
+        private long maxBackoffMillis = DEFAULT_MAX_BACKOFF;
+        private double multiplier = DEFAULT_MULTIPLIER;
+        private int maxRestarts = DEFAULT_MAX_RESTARTS;
+        private long windowMillis = DEFAULT_WINDOW;
+        private long rejoinTimeoutMillis = DEFAULT_REJOIN_TIMEOUT;
+
+        /**
+         * Wait {@code initial} before the first restart of a window, then multiply the delay by the multiplier on
+         * every restart up to {@code max}.
+         */
+        public Builder backoff(long initial, long max, TimeUnit unit) {
+            this.initialBackoffMillis = unit.toMillis(initial);
+            this.maxBackoffMillis = unit.toMillis(max);
+            return this;
+        }
+
+        public Builder multiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Give up on an instance once it has been restarted {@code maxRestarts} times within {@code window}.
+         */
+        public Builder maxRestarts(int maxRestarts, long window, TimeUnit unit) {
+            this.maxRestarts = maxRestarts;
+            this.windowMillis = unit.toMillis(window);
+            return this;
+        }
+
+        public Builder rejoinTimeout(long rejoinTimeout, TimeUnit unit) {
+            this.rejoinTimeoutMillis = unit.toMillis(rejoinTimeout);
+            return this;
+        }
+
+        public RestartPolicy build() {
+            if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+                throw new RedisBuildingException("The initial backoff must be positive and lower than the maximum backoff");
+            }
+            if (multiplier < 1) {
+                throw new RedisBuildingException("The backoff multiplier must be at least 1");
+            }
+            if (maxRestarts < 1 || windowMillis <= 0) {
+                throw new RedisBuildingException("A restart policy must allow at least one restart in a positive window");
+            }
+            return new RestartPolicy(initialBackoffMillis, maxBackoffMillis, multiplier, maxRestarts, windowMillis,
+                    rejoinTimeoutMillis);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package redis.embedded.supervision;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.ProcessExitListener;
+import redis.embedded.Redis;
+import redis.embedded.cluster.RedisCluster;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarts supervised instances whose process exits without being stopped, following their {@link RestartPolicy}.
+ * <p>
+ * A crashed instance is started again with the same arguments, so on the same port and in the same working
+ * directory, reloading the data it persisted. It is never moved to another port of its port provider: if the port
+ * was taken in the meantime, the restart fails and is retried after the backoff of the policy. A node of a
+ * supervised {@link RedisCluster} is then brought back into the cluster with its previous role (see
+ * {@link RedisCluster#rejoin(Redis, long)}). Restarts are performed one at a time, and instances stopped with
+ * {@link Redis#stop()} are never restarted.
+ */
+public class Supervisor implements Closeable {
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-supervisor-%d").build();
+
+    private final Logger logger = LoggerFactory.getLogger(Supervisor.class);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+    private final Map<AbstractRedisInstance, Supervised> supervised = new ConcurrentHashMap<>();
+    private final List<RestartListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<RestartEvent> history = Collections.synchronizedList(new ArrayList<RestartEvent>());
+    private volatile boolean closed = false;
+
+    /**
+     * Restart a server or a sentinel whenever it crashes.
+     */
+    public Supervisor supervise(AbstractRedisInstance instance, RestartPolicy policy) {
+        return supervise(instance, policy, null);
+    }
+
+    /**
+     * Restart any node the cluster has now whenever it crashes, and bring it back into the cluster.
+     */
+    public Supervisor supervise(RedisCluster cluster, RestartPolicy policy) {
+        for (Redis server : cluster.servers()) {
+            if (!(server instanceof AbstractRedisInstance)) {
+                throw new EmbeddedRedisException("Cannot supervise cluster node " + server + ", which is not a redis server");
+            }
+            supervise((AbstractRedisInstance) server, policy, cluster);
+        }
+        return this;
+    }
+
+    /**
+     * Stop supervising an instance, or every node of a cluster.
+     */
+    public void unsupervise(Redis redis) {
+        List<Redis> instances = redis instanceof RedisCluster
+                ? ((RedisCluster) redis).servers()
+                : Collections.singletonList(redis);
+        for (Redis instance : instances) {
+            Supervised removed = supervised.remove(instance);
+            if (removed != null) {
+                removed.instance.removeExitListener(removed);
+            }
+        }
+    }
+
+    public void addListener(RestartListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RestartListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the restarts so far, in order
+     */
+    public List<RestartEvent> history() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * Stop supervising, cancelling the pending restarts.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        for (Supervised s : supervised.values()) {
+            s.instance.removeExitListener(s);
+        }
+        supervised.clear();
+    }
+
+    private Supervisor supervise(AbstractRedisInstance instance, RestartPolicy policy, RedisCluster cluster) {
+        if (closed) {
+            throw new EmbeddedRedisException("This supervisor is closed");
+        }
+        Supervised s = new Supervised(instance, policy, cluster);
+        Supervised replaced = supervised.put(instance, s);
+        if (replaced != null) {
+            instance.removeExitListener(replaced);
+        }
+        instance.addExitListener(s);
+        return this;
+    }
+
+    private void publish(RestartEvent event) {
+        history.add(event);
+        for (RestartListener listener : listeners) {
+            try {
+                listener.onRestart(event);
+            } catch (RuntimeException e) {
+                logger.warn("Restart listener failed on {}", event, e);
+            }
+        }
+    }
+
+    private class Supervised implements ProcessExitListener {
+        private final AbstractRedisInstance instance;
+        private final RestartPolicy policy;
+        private final RedisCluster cluster;
+        /**
+         * Times in nanoseconds of the restarts within the window of the policy
+         */
+        private final Deque<Long> restarts = new ArrayDeque<>();
+
+        private Supervised(AbstractRedisInstance instance, RestartPolicy policy, RedisCluster cluster) {
+            this.instance = instance;
+            this.policy = policy;
+            this.cluster = cluster;
+        }
+
+        @Override
+        public void exited(AbstractRedisInstance instance, int exitCode) {
+            logger.warn("Redis instance on port {} exited with code {}", instance.ports().get(0), exitCode);
+            scheduleRestart(exitCode);
+        }
+
+        private synchronized void scheduleRestart(final int exitCode) {
+            if (closed || supervised.get(instance) != this) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long windowStart = now - policy.window(TimeUnit.NANOSECONDS);
+            while (!restarts.isEmpty() && restarts.peekFirst() < windowStart) {
+                restarts.pollFirst();
+            }
+            if (restarts.size() >= policy.maxRestarts()) {
+                supervised.remove(instance);
+                instance.removeExitListener(this);
+                publish(new RestartEvent(instance, RestartEvent.Outcome.GAVE_UP, exitCode, restarts.size(), null));
+                return;
+            }
+
+            long delay = policy.backoff(restarts.size());
+            restarts.addLast(now);
+            final int attempt = restarts.size();
+            try {
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        restart(exitCode, attempt);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed in the meantime
+            }
+        }
+
+        private void restart(int exitCode, int attempt) {
+            if (closed || supervised.get(instance) != this || instance.isActive()) {
+                return;
+            }
+            try {
+                instance.startOnSamePort();
+                if (cluster != null) {
+                    cluster.rejoin(instance, policy.rejoinTimeout(TimeUnit.MILLISECONDS));
+                }
+                publish(new RestartEvent(instance, RestartEvent.Outcome.RESTARTED, exitCode, attempt, null));
+            } catch (RuntimeException e) {
+                logger.warn("Could not restart redis instance on port {}", instance.ports().get(0), e);
+                publish(new RestartEvent(instance, RestartEvent.Outcome.FAILED, exitCode, attempt, e));
+                if (!instance.isActive()) {
+                    // No exit will be notified for a process which did not start
+                    scheduleRestart(exitCode);
+                }
+            }
+        }
+    }
+}
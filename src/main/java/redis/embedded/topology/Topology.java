@@ -0,0 +1,422 @@
+package redis.embedded.topology;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.embedded.Redis;
+import redis.embedded.Resettable;
+import redis.embedded.RedisSentinel;
+import redis.embedded.RedisServer;
+import redis.embedded.StopPolicy;
+import redis.embedded.cluster.RedisCluster;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.util.Instances;
+import redis.embedded.util.RawClient;
+
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A set of named {@link Redis} implementations, such as standalone servers, replicas, sentinels and clusters, started
+ * and stopped as one.
+ * <p>
+ * Nodes depend on the nodes they were declared after in the {@link Builder}: a replica on its master, a sentinel on
+ * the masters it monitors. {@link #start()} starts every node as soon as its dependencies are running, with as many
+ * nodes starting at the same time as possible, and returns once all of them are running. {@link #stop()} stops the
+ * nodes in the reverse order, a node being stopped once every node depending on it is.
+ * <p>
+ * A master built with a {@link redis.embedded.PortProvider} may move to another port on a conflict at startup, so
+ * replicas and sentinels are attached to the port their masters actually started on, once those are running.
+ */
+public class Topology implements Redis, Resettable {
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("embedded-redis-topology-%d").build();
+
+    private final Map<String, Redis> nodes;
+    private final Map<String, List<String>> dependencies;
+    private final Map<String, String> masters;
+    private final Map<String, Map<String, Integer>> monitored;
+
+    Topology(Map<String, Redis> nodes, Map<String, List<String>> dependencies, Map<String, String> masters,
+             Map<String, Map<String, Integer>> monitored) {
+        this.nodes = nodes;
+        this.dependencies = dependencies;
+        this.masters = masters;
+        this.monitored = monitored;
+    }
+
+    @Override
+    public boolean isActive() {
+        for (Redis redis : nodes.values()) {
+            if (!redis.isActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start every node, in parallel as far as dependencies allow. If a node fails to start, the nodes already
+     * started are stopped.
+     */
+    @Override
+    public void start() throws EmbeddedRedisException {
+        try {
+            walk(dependencies, new NodeAction() {
+                @Override
+                public void run(String name, Redis redis) {
+                    redis.start();
+                    attach(name, redis);
+                }
+            }, true);
+        } catch (EmbeddedRedisException e) {
+            try {
+                stop();
+            } catch (EmbeddedRedisException ignored) {
+                // the start failure is the one to report
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stop every node, in parallel as far as dependencies allow, dependent nodes first.
+     */
+    @Override
+    public void stop() throws EmbeddedRedisException {
+        stop(null);
+    }
+
+    /**
+     * Stop every node following the given policy, in parallel as far as dependencies allow, dependent nodes
+     * first.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each node
+     */
+    public void stop(final StopPolicy policy) throws EmbeddedRedisException {
+        walk(dependents(), new NodeAction() {
+            @Override
+            public void run(String name, Redis redis) {
+                // Also stops what is left of a cluster with a dead node, which is not active
+                Instances.stop(redis, policy);
+            }
+        }, false);
+    }
+
+    /**
+     * Reset every node, in dependency order.
+     */
+    @Override
+    public void reset() throws EmbeddedRedisException {
+        for (Redis redis : nodes.values()) {
+            Instances.reset(redis);
+        }
+    }
+
+    @Override
+    public List<Integer> ports() {
+        List<Integer> ports = new ArrayList<>();
+        for (Redis redis : nodes.values()) {
+            ports.addAll(redis.ports());
+        }
+        return ports;
+    }
+
+    @Override
+    public InputStream errors() {
+        List<InputStream> inputStreams = new ArrayList<>();
+        for (Redis redis : nodes.values()) {
+            inputStreams.add(redis.errors());
+        }
+        return new SequenceInputStream(Collections.enumeration(inputStreams));
+    }
+
+    /**
+     * @return the names of the nodes, in declaration order
+     */
+    public List<String> names() {
+        return new ArrayList<>(nodes.keySet());
+    }
+
+    public Redis get(String name) {
+        Redis redis = nodes.get(name);
+        if (redis == null) {
+            throw new EmbeddedRedisException("No node named " + name + " in this topology");
+        }
+        return redis;
+    }
+
+    public <T extends Redis> T get(String name, Class<T> type) {
+        return type.cast(get(name));
+    }
+
+    /**
+     * @return the names of the nodes a node depends on
+     */
+    public List<String> dependencies(String name) {
+        get(name);
+        return Collections.unmodifiableList(dependencies.get(name));
+    }
+
+    /**
+     * Point a replica at its master, and a sentinel at the masters it monitors, on the ports they started on.
+     */
+    private void attach(String name, Redis redis) {
+        int port = redis.ports().get(0);
+        String master = masters.get(name);
+        if (master != null) {
+            try (RawClient client = new RawClient(Builder.LOCAL_HOST, port)) {
+                client.status(Protocol.Command.SLAVEOF, Builder.LOCAL_HOST, Integer.toString(port(master)));
+            }
+        }
+
+        Map<String, Integer> builtPorts = monitored.get(name);
+        if (builtPorts != null) {
+            try (Jedis jedis = new Jedis(Builder.LOCAL_HOST, port)) {
+                for (Map.Entry<String, Integer> monitoredMaster : builtPorts.entrySet()) {
+                    if (port(monitoredMaster.getKey()) != monitoredMaster.getValue()) {
+                        remonitor(jedis, monitoredMaster.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Monitor a master again, on its current port, with the settings the sentinel was configured with.
+     */
+    private void remonitor(Jedis sentinel, String master) {
+        Map<String, String> state = null;
+        for (Map<String, String> candidate : sentinel.sentinelMasters()) {
+            if (master.equals(candidate.get("name"))) {
+                state = candidate;
+            }
+        }
+        if (state == null) {
+            throw new EmbeddedRedisException("Sentinel does not monitor " + master);
+        }
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("down-after-milliseconds", state.get("down-after-milliseconds"));
+        settings.put("failover-timeout", state.get("failover-timeout"));
+        settings.put("parallel-syncs", state.get("parallel-syncs"));
+        sentinel.sentinelRemove(master);
+        sentinel.sentinelMonitor(master, Builder.LOCAL_HOST, port(master), Integer.parseInt(state.get("quorum")));
+        sentinel.sentinelSet(master, settings);
+    }
+
+    private int port(String name) {
+        return nodes.get(name).ports().get(0);
+    }
+
+    private Map<String, List<String>> dependents() {
+        Map<String, List<String>> dependents = new LinkedHashMap<>();
+        for (String name : nodes.keySet()) {
+            dependents.put(name, new ArrayList<String>());
+        }
+        for (Map.Entry<String, List<String>> node : dependencies.entrySet()) {
+            for (String dependency : node.getValue()) {
+                dependents.get(dependency).add(node.getKey());
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Run an action on every node, each once all the nodes it waits for are done, as many at the same time as
+     * possible.
+     *
+     * @param waitsFor   the nodes each node waits for
+     * @param failFast   whether to stop scheduling nodes after the first failure, or to go on and report it at the end
+     */
+    private void walk(Map<String, List<String>> waitsFor, final NodeAction action, boolean failFast) {
+        final Map<String, Integer> pending = new HashMap<>();
+        final Map<String, List<String>> next = new HashMap<>();
+        for (String name : nodes.keySet()) {
+            pending.put(name, waitsFor.get(name).size());
+            next.put(name, new ArrayList<String>());
+        }
+        for (Map.Entry<String, List<String>> node : waitsFor.entrySet()) {
+            for (String waited : node.getValue()) {
+                next.get(waited).add(node.getKey());
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nodes.size()), THREAD_FACTORY);
+        CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+        EmbeddedRedisException failure = null;
+        try {
+            int running = 0;
+            for (Map.Entry<String, Integer> node : pending.entrySet()) {
+                if (node.getValue() == 0) {
+                    submit(completion, node.getKey(), action);
+                    running++;
+                }
+            }
+
+            while (running > 0) {
+                String done;
+                try {
+                    done = completion.take().get();
+                    running--;
+                } catch (ExecutionException e) {
+                    running--;
+                    if (failure == null) {
+                        failure = e.getCause() instanceof EmbeddedRedisException
+                                ? (EmbeddedRedisException) e.getCause()
+                                : new EmbeddedRedisException(e.getCause().getMessage(), e.getCause());
+                    }
+                    continue;
+                }
+
+                if (failure != null && failFast) {
+                    continue;
+                }
+                for (String dependent : next.get(done)) {
+                    int remaining = pending.get(dependent) - 1;
+                    pending.put(dependent, remaining);
+                    if (remaining == 0) {
+                        submit(completion, dependent, action);
+                        running++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void submit(CompletionService<String> completion, final String name, final NodeAction action) {
+        final Redis redis = nodes.get(name);
+        completion.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                try {
+                    action.run(name, redis);
+                } catch (RuntimeException e) {
+                    throw new EmbeddedRedisException("Node " + name + " of the topology failed: " + e.getMessage(), e);
+                }
+                return name;
+            }
+        });
+    }
+
+    private interface NodeAction {
+        void run(String name, Redis redis);
+    }
+
+    /**
+     * Declares the nodes of a {@link Topology}. A node can only depend on nodes declared before it, so that the
+     * dependencies never form a cycle.
+     */
+    public static class Builder {
+        private static final String LOCAL_HOST = "127.0.0.1";
+
+        private final Map<String, Redis> nodes = new LinkedHashMap<>();
+        private final Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        private final Map<String, String> masters = new HashMap<>();
+        private final Map<String, Map<String, Integer>> monitored = new HashMap<>();
+
+        /**
+         * A standalone server, or the master of replicas declared afterwards.
+         */
+        public Builder server(String name, RedisServer.Builder serverBuilder) {
+            return node(name, serverBuilder.copy().build());
+        }
+
+        /**
+         * A replica of a server declared before, possibly itself a replica to make a replication chain.
+         */
+        public Builder replica(String name, String masterName, RedisServer.Builder serverBuilder) {
+            port(masterName);
+            node(name, serverBuilder.copy().slaveOf(null).build(), masterName);
+            masters.put(name, masterName);
+            return this;
+        }
+
+        /**
+         * A sentinel monitoring servers declared before, each under its node name. The quorum, timeouts and port are
+         * the ones of the given builder.
+         */
+        public Builder sentinel(String name, RedisSentinel.Builder sentinelBuilder, String... masterNames) {
+            if (masterNames.length == 0) {
+                throw new RedisBuildingException("Sentinel " + name + " must monitor at least one master");
+            }
+            RedisSentinel.Builder builder = sentinelBuilder.copy();
+            builder.reset();
+            Map<String, Integer> builtPorts = new LinkedHashMap<>();
+            for (String masterName : masterNames) {
+                builtPorts.put(masterName, port(masterName));
+                builder.masterName(masterName);
+                builder.masterPort(builtPorts.get(masterName));
+                builder.addDefaultReplicationGroup();
+            }
+            node(name, builder.build(), masterNames);
+            monitored.put(name, builtPorts);
+            return this;
+        }
+
+        public Builder cluster(String name, RedisCluster.Builder clusterBuilder) {
+            return node(name, clusterBuilder.build());
+        }
+
+        /**
+         * Any other {@link Redis} implementation, started once the given nodes are.
+         */
+        public Builder node(String name, Redis redis, String... dependsOn) {
+            if (nodes.containsKey(name)) {
+                throw new RedisBuildingException("Topology already has a node named " + name);
+            }
+            for (String dependency : dependsOn) {
+                if (!nodes.containsKey(dependency)) {
+                    throw new RedisBuildingException("Node " + name + " depends on " + dependency + ", which must be declared before");
+                }
+            }
+            nodes.put(name, redis);
+            dependencies.put(name, new ArrayList<>(Arrays.asList(dependsOn)));
+            return this;
+        }
+
+        public Topology build() {
+            Map<String, List<String>> dependenciesCopy = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> node : dependencies.entrySet()) {
+                dependenciesCopy.put(node.getKey(), new ArrayList<>(node.getValue()));
+            }
+            Map<String, Map<String, Integer>> monitoredCopy = new HashMap<>();
+            for (Map.Entry<String, Map<String, Integer>> sentinel : monitored.entrySet()) {
+                monitoredCopy.put(sentinel.getKey(), new LinkedHashMap<>(sentinel.getValue()));
+            }
+            return new Topology(new LinkedHashMap<>(nodes), dependenciesCopy, new HashMap<>(masters), monitoredCopy);
+        }
+
+        private int port(String name) {
+            Redis redis = nodes.get(name);
+            if (redis == null) {
+                throw new RedisBuildingException("Unknown node " + name + ", which must be declared before");
+            }
+            return redis.ports().get(0);
+        }
+    }
+}
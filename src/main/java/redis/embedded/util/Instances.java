@@ -0,0 +1,171 @@
+package redis.embedded.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.embedded.AbstractRedisInstance;
+import redis.embedded.Redis;
+import redis.embedded.Resettable;
+import redis.embedded.SentinelCluster;
+import redis.embedded.StopPolicy;
+import redis.embedded.cluster.RedisCluster;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.proxy.ProxiedRedis;
+import redis.embedded.replication.ReplicationTopology;
+import redis.embedded.topology.Topology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Finds the redis instances a {@link Redis} implementation is made of, and stops them.
+ */
+public final class Instances {
+
+    private static final ThreadFactory STOP_THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("embedded-redis-stop-%d")
+            .setDaemon(true)
+            .build();
+
+    private Instances() {
+    }
+
+    /**
+     * @return the servers and sentinels of a cluster, sentinel cluster, replication topology, topology or proxied
+     * instance, the instance itself for a server or a sentinel, or the given implementation if it is none of these
+     */
+    public static List<Redis> of(Redis redis) {
+        List<Redis> instances = new ArrayList<>();
+        if (redis instanceof AbstractRedisInstance) {
+            instances.add(redis);
+        } else if (redis instanceof RedisCluster) {
+            addAll(instances, ((RedisCluster) redis).servers());
+        } else if (redis instanceof SentinelCluster) {
+            addAll(instances, ((SentinelCluster) redis).servers());
+            addAll(instances, ((SentinelCluster) redis).sentinels());
+        } else if (redis instanceof ReplicationTopology) {
+            instances.add(((ReplicationTopology) redis).master());
+            addAll(instances, ((ReplicationTopology) redis).replicas());
+        } else if (redis instanceof Topology) {
+            Topology topology = (Topology) redis;
+            for (String name : topology.names()) {
+                instances.addAll(of(topology.get(name)));
+            }
+        } else if (redis instanceof ProxiedRedis) {
+            instances.addAll(of(((ProxiedRedis) redis).unwrap()));
+        } else {
+            instances.add(redis);
+        }
+        return instances;
+    }
+
+    /**
+     * @return the servers and sentinels a {@link Redis} implementation is made of
+     * @throws EmbeddedRedisException if it is made of other implementations
+     */
+    public static List<AbstractRedisInstance> processesOf(Redis redis) {
+        List<AbstractRedisInstance> processes = new ArrayList<>();
+        for (Redis instance : of(redis)) {
+            if (!(instance instanceof AbstractRedisInstance)) {
+                throw new EmbeddedRedisException(instance + " is not a redis server or sentinel");
+            }
+            processes.add((AbstractRedisInstance) instance);
+        }
+        return processes;
+    }
+
+    /**
+     * Stop a {@link Redis} implementation following the given policy, down to each of its servers and sentinels.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each instance
+     */
+    public static void stop(Redis redis, StopPolicy policy) throws EmbeddedRedisException {
+        if (policy == null) {
+            redis.stop();
+        } else if (redis instanceof AbstractRedisInstance) {
+            ((AbstractRedisInstance) redis).stop(policy);
+        } else if (redis instanceof RedisCluster) {
+            ((RedisCluster) redis).stop(policy);
+        } else if (redis instanceof SentinelCluster) {
+            ((SentinelCluster) redis).stop(policy);
+        } else if (redis instanceof ReplicationTopology) {
+            ((ReplicationTopology) redis).stop(policy);
+        } else if (redis instanceof Topology) {
+            ((Topology) redis).stop(policy);
+        } else {
+            redis.stop();
+        }
+    }
+
+    /**
+     * Reset a {@link Resettable} implementation.
+     *
+     * @throws EmbeddedRedisException if it cannot be reset
+     */
+    public static void reset(Redis redis) throws EmbeddedRedisException {
+        if (!(redis instanceof Resettable)) {
+            throw new EmbeddedRedisException(redis + " cannot be reset");
+        }
+        ((Resettable) redis).reset();
+    }
+
+    /**
+     * Stop the given instances at the same time, so that stopping many of them takes as long as the slowest one.
+     * Every instance is stopped even if some fail to.
+     *
+     * @param policy the policy to stop with, or {@code null} for the policy of each instance
+     * @throws EmbeddedRedisException the first failure, once every instance has been stopped
+     */
+    public static void stopAll(List<? extends Redis> instances, final StopPolicy policy) throws EmbeddedRedisException {
+        if (instances.isEmpty()) {
+            return;
+        }
+        if (instances.size() == 1) {
+            stop(instances.get(0), policy);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(instances.size(), STOP_THREAD_FACTORY);
+        EmbeddedRedisException failure = null;
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final Redis redis : instances) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        stop(redis, policy);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof EmbeddedRedisException
+                                ? (EmbeddedRedisException) e.getCause()
+                                : new EmbeddedRedisException(e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddedRedisException(e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void addAll(List<Redis> instances, List<? extends Redis> redis) {
+        for (Redis r : redis) {
+            instances.addAll(of(r));
+        }
+    }
+}
@@ -56,4 +56,9 @@ public class OsArchitecture {
         result = 31 * result + arch.hashCode();
         return result;
     }
+
+    @Override
+    public String toString() {
+        return os + "_" + arch;
+    }
 }
@@ -0,0 +1,56 @@
+package redis.embedded.util;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Protocol;
+
+import java.util.List;
+
+/**
+ * A connection to send the commands, or forms of commands, that Jedis does not provide,
+ * such as {@code CLIENT PAUSE} or {@code DEBUG SLEEP}.
+ */
+public class RawClient extends Client {
+
+    public RawClient(String host, int port) {
+        super(host, port);
+    }
+
+    /**
+     * Send a command expecting a status reply, like {@code OK}.
+     */
+    public String status(Protocol.Command command, String... args) {
+        sendCommand(command, args);
+        return getStatusCodeReply();
+    }
+
+    /**
+     * Send a command without waiting for its reply, for commands blocking the server like {@code DEBUG SLEEP}.
+     */
+    public void send(Protocol.Command command, String... args) {
+        sendCommand(command, args);
+        flush();
+    }
+
+    /**
+     * Send a command and return its raw reply.
+     */
+    public Object call(Protocol.Command command, String... args) {
+        sendCommand(command, args);
+        return getOne();
+    }
+
+    /**
+     * Queue a command with binary arguments, its reply being read later by {@link #replies()}.
+     */
+    public void append(Protocol.Command command, byte[]... args) {
+        sendCommand(command, args);
+    }
+
+    /**
+     * @return the replies of the commands queued by {@link #append(Protocol.Command, byte[]...)}, errors being
+     * returned as exceptions
+     */
+    public List<Object> replies() {
+        return getAll();
+    }
+}
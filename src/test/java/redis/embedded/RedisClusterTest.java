@@ -4,12 +4,24 @@ package redis.embedded;
 import org.junit.*;
 import org.junit.rules.*;
 import redis.clients.jedis.*;
+import redis.embedded.affinity.CpuSet;
+import redis.embedded.affinity.CpuSpreader;
 import redis.embedded.cluster.*;
+import redis.embedded.config.MaxMemoryPolicy;
+import redis.embedded.config.RedisConfig;
 import redis.embedded.exceptions.*;
+import redis.embedded.ports.ReservingPortProvider;
 import redis.embedded.ports.SequencePortProvider;
+import redis.embedded.supervision.RestartEvent;
+import redis.embedded.supervision.RestartListener;
+import redis.embedded.supervision.RestartPolicy;
+import redis.embedded.supervision.Supervisor;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -53,6 +65,23 @@ public class RedisClusterTest {
         instance = new RedisCluster(oneServer, DEFAULT_REPLICATES, DEFAULT_NUMBER_RETRIES);
     }
 
+    @Test
+    public void builderSettingsShouldNotChangeTheGivenServerBuilder() {
+        RedisServer.Builder serverBuilder = new RedisServer.Builder();
+        String fingerprint = serverBuilder.fingerprint();
+
+        RedisCluster.Builder clusterBuilder = new RedisCluster.Builder()
+                .withServerBuilder(serverBuilder)
+                .cpuAffinity(new CpuSpreader(CpuSet.of(0, 1)))
+                .nice(10)
+                .stopPolicy(StopPolicy.FAST);
+
+        assertThat(serverBuilder.fingerprint(), equalTo(fingerprint));
+        assertThat(clusterBuilder.fingerprint(), containsString("nice=10"));
+        assertThat(clusterBuilder.fingerprint(), containsString("stopPolicy=" + StopPolicy.FAST));
+        assertThat(clusterBuilder.copy().fingerprint(), equalTo(clusterBuilder.fingerprint()));
+    }
+
     @Test
     @Configuration(master = 2)
     public void numberOfNodeShouldAtLeastThree2() {
@@ -108,6 +137,26 @@ public class RedisClusterTest {
         assertThat(instance.isActive(), equalTo(true));
     }
 
+    @Test
+    @Configuration(master = 3, slave = 1)
+    public void configureShouldSetParametersOnEveryNode() {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(ports)
+                .config(new RedisConfig.Builder().hz(20).build())
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        cluster.configure(new RedisConfig.Builder().maxmemoryPolicy(MaxMemoryPolicy.VOLATILE_TTL).build());
+
+        for (Integer port : ports) {
+            try (Jedis jedis = new Jedis(LOCAL_HOST, port)) {
+                assertThat(jedis.configGet("hz"), contains("hz", "20"));
+                assertThat(jedis.configGet("maxmemory-policy"), contains("maxmemory-policy", "volatile-ttl"));
+            }
+        }
+    }
+
     @Test
     @Configuration(master = 3, slave = 1)
     public void startShouldStartCluster() throws IOException {
@@ -177,4 +226,192 @@ public class RedisClusterTest {
         instance = new RedisCluster.Builder()
                 .build();
     }
+
+    @Test
+    @Configuration(master = 3, slave = 3)
+    public void failoverShouldPromoteReplica() {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(Arrays.asList(3000, 3001, 3002, 3003, 3004, 3005))
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        final Redis master = cluster.masters().get(0);
+        final Redis replica = cluster.replicas(master).get(0);
+
+        final ClusterFailoverReport report = cluster.failover(replica, ClusterFailoverMode.DEFAULT, 10000L);
+
+        assertThat(report.newMasterPort(), equalTo(replica.ports().get(0)));
+        assertThat(report.detection(TimeUnit.MILLISECONDS), equalTo(0L));
+        assertThat(cluster.masters(), hasItem(replica));
+        assertThat(cluster.replicas(replica), hasItem(master));
+    }
+
+    @Test
+    @Configuration(master = 3, slave = 3)
+    public void killMasterShouldPromoteReplica() {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(Arrays.asList(3000, 3001, 3002, 3003, 3004, 3005))
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        final Redis master = cluster.masters().get(0);
+        final Redis replica = cluster.replicas(master).get(0);
+
+        final ClusterFailoverReport report = cluster.killMaster(master, 30000L);
+
+        assertThat(report.oldMasterPort(), equalTo(master.ports().get(0)));
+        assertThat(report.newMasterPort(), equalTo(replica.ports().get(0)));
+        assertThat(master.isActive(), is(false));
+        assertThat(cluster.masters(), hasItem(replica));
+        assertThat(cluster.masters(), not(hasItem(master)));
+    }
+
+    @Test
+    @Configuration(master = 3, slave = 3)
+    public void reshardShouldMoveSlotsWithTheirKeys() throws IOException {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(Arrays.asList(3000, 3001, 3002, 3003, 3004, 3005))
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        final List<Redis> masters = cluster.masters();
+        final Redis source = masters.get(0);
+        final Redis target = masters.get(1);
+
+        Set<HostAndPort> hostAndPorts = new HashSet<>();
+        for (Integer port : cluster.ports()) {
+            hostAndPorts.add(new HostAndPort(LOCAL_HOST, port));
+        }
+        try (JedisCluster jc = new JedisCluster(hostAndPorts)) {
+            for (int i = 0; i < 1000; i++) {
+                jc.set("key" + i, "value" + i);
+            }
+
+            final List<ReshardProgress> progress = new ArrayList<>();
+            long moved = cluster.reshard(source, target)
+                    .slotCount(100)
+                    .batchSize(10)
+                    .listener(new ReshardListener() {
+                        @Override
+                        public void onSlotMigrated(ReshardProgress p) {
+                            progress.add(p);
+                        }
+                    })
+                    .run();
+
+            assertThat(progress, hasSize(100));
+            assertThat(progress.get(99).keysMoved(), equalTo(moved));
+            assertThat(moved, greaterThan(0L));
+            for (int i = 0; i < 1000; i++) {
+                assertThat(jc.get("key" + i), equalTo("value" + i));
+            }
+        }
+    }
+
+    @Test
+    @Configuration(master = 4, slave = 4)
+    public void clusterShouldGrowAndShrink() {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(new ReservingPortProvider(3000, 3099))
+                .numOfMasters(3)
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        final RedisServer master = cluster.addMaster(true);
+        final RedisServer replica = cluster.addReplica(master);
+
+        assertThat(cluster.masters(), hasSize(4));
+        assertThat(cluster.replicas(master), contains((Redis) replica));
+        for (ClusterNode node : cluster.nodes()) {
+            if (node.isMaster()) {
+                assertThat(node.slotCount(), equalTo(4096));
+            }
+        }
+
+        cluster.removeNode(master);
+
+        assertThat(cluster.masters(), hasSize(3));
+        assertThat(cluster.servers(), not(hasItem((Redis) master)));
+        assertThat(cluster.nodes(), hasSize(7));
+        assertThat(cluster.isActive(), equalTo(true));
+    }
+
+    @Test
+    @Configuration(master = 3, slave = 3)
+    public void supervisedReplicaShouldRejoinAfterCrash() throws Exception {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(Arrays.asList(3000, 3001, 3002, 3003, 3004, 3005))
+                .build();
+        instance = cluster;
+        cluster.start();
+        RedisServer master = (RedisServer) cluster.masters().get(0);
+        RedisServer replica = (RedisServer) cluster.replicas(master).get(0);
+
+        final BlockingQueue<RestartEvent> events = new LinkedBlockingQueue<>();
+        try (Supervisor supervisor = new Supervisor()) {
+            supervisor.supervise(cluster, new RestartPolicy.Builder().build());
+            supervisor.addListener(new RestartListener() {
+                @Override
+                public void onRestart(RestartEvent event) {
+                    events.add(event);
+                }
+            });
+
+            replica.crash();
+
+            RestartEvent event = events.poll(30, TimeUnit.SECONDS);
+            assertThat(event.outcome(), equalTo(RestartEvent.Outcome.RESTARTED));
+            assertThat(event.port(), equalTo(replica.ports().get(0)));
+        }
+        assertThat(cluster.replicas(master), contains((Redis) replica));
+        assertThat(cluster.isActive(), equalTo(true));
+    }
+
+    @Test
+    @Configuration(master = 3, slave = 3)
+    public void slotAllocatorShouldDecideSlotsOfMasters() {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(Arrays.asList(3000, 3001, 3002, 3003, 3004, 3005))
+                .slotAllocator(new WeightedSlotAllocator(2, 1, 1))
+                .build();
+        instance = cluster;
+        cluster.start();
+
+        for (ClusterNode node : cluster.nodes()) {
+            if (node.port() == 3000) {
+                assertThat(node.slotCount(), equalTo(8192));
+            } else if (node.port() == 3001 || node.port() == 3002) {
+                assertThat(node.slotCount(), equalTo(4096));
+            }
+        }
+    }
+
+    @Test
+    @Configuration(master = 10, slave = 20)
+    public void scaleModeShouldBootstrapLargeCluster() throws IOException {
+        RedisCluster cluster = new RedisCluster.Builder()
+                .serverPorts(new SequencePortProvider(3000))
+                .numOfMasters(10)
+                .numOfReplicates(2)
+                .numOfRetries(30)
+                .scaleMode()
+                .build();
+        instance = cluster;
+
+        assertThat(cluster.ports(), hasSize(30));
+
+        cluster.start();
+
+        assertThat(cluster.isActive(), equalTo(true));
+        assertThat(cluster.masters(), hasSize(10));
+        assertThat(cluster.nodes(), hasSize(30));
+        try (JedisCluster jc = new JedisCluster(Collections.singleton(new HostAndPort(LOCAL_HOST, 3000)))) {
+            jc.set("key", "value");
+            assertThat(jc.get("key"), equalTo("value"));
+        }
+    }
 }
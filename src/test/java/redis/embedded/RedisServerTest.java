@@ -1,5 +1,6 @@
 package redis.embedded;
 
+import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import org.junit.After;
 import org.junit.Rule;
@@ -9,21 +10,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.embedded.config.ClientClass;
+import redis.embedded.config.MaxMemoryPolicy;
+import redis.embedded.config.RedisConfig;
 import redis.embedded.exceptions.EmbeddedRedisException;
 import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.ports.ReservingPortProvider;
+import redis.embedded.ports.SequencePortProvider;
+import redis.embedded.reaper.OrphanReaper;
 import redis.embedded.util.Architecture;
 import redis.embedded.util.OS;
 import redis.embedded.util.OsArchitecture;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 import static org.hamcrest.Matchers.*;
 
 public class RedisServerTest {
@@ -66,6 +77,13 @@ public class RedisServerTest {
         assertThat(builder.settings(), not(equalTo(copy.settings())) );
     }
 
+    @Test
+    public void databasesShouldBeSetInSettings() {
+        RedisServer.Builder builder = new RedisServer.Builder().databases(64);
+
+        assertThat(builder.settings(), startsWith("databases 64"));
+    }
+
     @Test(timeout = 1500L)
     public void testSimpleRun() throws Exception {
         redisServer = new RedisServer(6379);
@@ -130,6 +148,272 @@ public class RedisServerTest {
         }
     }
 
+    @Test
+    public void resetShouldRestoreCleanState() throws Exception {
+        redisServer = new RedisServer.Builder().port(6379).setting("maxmemory-policy allkeys-lru").build();
+        redisServer.start();
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.set("abc", "1");
+            jedis.configSet("maxmemory-policy", "noeviction");
+        }
+
+        redisServer.reset();
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            assertThat(jedis.dbSize(), equalTo(0L));
+            assertThat(jedis.configGet("maxmemory-policy"), contains("maxmemory-policy", "allkeys-lru"));
+        }
+    }
+
+    @Test
+    public void shouldStartWithRequirepassAndRenamedConfig() throws Exception {
+        redisServer = new RedisServer.Builder()
+                .port(6379)
+                .setting("requirepass secret")
+                .setting("rename-command CONFIG \"\"")
+                .build();
+        redisServer.start();
+
+        assertThat(redisServer.isActive(), is(true));
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.auth("secret");
+            assertThat(jedis.ping(), equalTo("PONG"));
+        }
+    }
+
+    @Test
+    public void rollbackShouldRestoreCheckpointDataset() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.set("abc", "1");
+            jedis.select(2);
+            jedis.hset("def", "field", "2");
+
+            redisServer.checkpoint("baseline");
+
+            jedis.del("def");
+            jedis.select(0);
+            jedis.set("abc", "3");
+            jedis.set("xyz", "4");
+
+            redisServer.rollback("baseline");
+
+            assertThat(jedis.get("abc"), equalTo("1"));
+            assertThat(jedis.exists("xyz"), is(false));
+            jedis.select(2);
+            assertThat(jedis.hget("def", "field"), equalTo("2"));
+        }
+    }
+
+    @Test
+    public void rollbackShouldRestoreLongTimeToLive() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+        long thirtyDays = TimeUnit.DAYS.toMillis(30);
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.psetex("abc", thirtyDays, "1");
+            redisServer.checkpoint("baseline");
+            jedis.del("abc");
+
+            redisServer.rollback("baseline");
+
+            assertThat(jedis.get("abc"), equalTo("1"));
+            assertThat(jedis.pttl("abc"), greaterThan(TimeUnit.DAYS.toMillis(29)));
+        }
+    }
+
+    @Test
+    public void forkShouldStartIndependentCopy() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.set("abc", "1");
+        }
+
+        RedisServer copy = redisServer.fork(new RedisServer.Builder().port(6380));
+        try (Jedis jedis = new Jedis("localhost", 6380)) {
+            assertThat(jedis.get("abc"), equalTo("1"));
+
+            jedis.set("abc", "2");
+            assertThat(jedis.info("replication"), containsString("role:master"));
+        } finally {
+            copy.stop();
+        }
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            assertThat(jedis.get("abc"), equalTo("1"));
+        }
+    }
+
+    @Test
+    public void pausedServerShouldNotReplyUntilResumed() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+
+        redisServer.pause();
+        try (Jedis jedis = new Jedis("localhost", 6379, 200)) {
+            try {
+                jedis.ping();
+                fail("A paused server should not reply");
+            } catch (JedisConnectionException expected) {
+                // read timed out
+            }
+        }
+        redisServer.resume();
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            assertThat(jedis.ping(), equalTo("PONG"));
+        }
+    }
+
+    @Test
+    public void crashedServerShouldRestartOnSamePort() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+
+        redisServer.crash();
+        assertThat(redisServer.isActive(), is(false));
+
+        redisServer.start();
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            assertThat(jedis.ping(), equalTo("PONG"));
+        }
+    }
+
+    @Test
+    public void shouldIndicateInactiveAfterUnexpectedExit() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+        final CountDownLatch exited = new CountDownLatch(1);
+        redisServer.addExitListener(new ProcessExitListener() {
+            @Override
+            public void exited(AbstractRedisInstance instance, int exitCode) {
+                exited.countDown();
+            }
+        });
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.shutdown();
+        }
+
+        assertThat(exited.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(redisServer.isActive(), is(false));
+        assertThat(redisServer.exitCode(), equalTo(0));
+    }
+
+    @Test
+    public void shouldStopWithShutdownNoSave() throws Exception {
+        File dir = Files.createTempDir();
+        redisServer = new RedisServer.Builder()
+                .port(6379)
+                .setting("dir " + dir.getAbsolutePath())
+                .stopPolicy(StopPolicy.FAST)
+                .build();
+        redisServer.start();
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            jedis.set("key", "value");
+        }
+
+        redisServer.stop();
+
+        assertThat(redisServer.isActive(), is(false));
+        assertThat(new File(dir, "dump.rdb").exists(), is(false));
+    }
+
+    @Test
+    public void shouldKillInstanceNotStoppingWithinTimeout() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+        redisServer.debugSleep(5000);
+
+        long start = System.currentTimeMillis();
+        redisServer.stop(new StopPolicy.Builder().timeout(200, TimeUnit.MILLISECONDS).build());
+
+        assertThat(redisServer.isActive(), is(false));
+        assertThat(System.currentTimeMillis() - start, lessThan(3000L));
+    }
+
+    @Test
+    public void shouldStayActiveWhenNotStoppingWithinTimeoutWithoutEscalation() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+        final CountDownLatch exited = new CountDownLatch(1);
+        redisServer.addExitListener(new ProcessExitListener() {
+            @Override
+            public void exited(AbstractRedisInstance instance, int exitCode) {
+                exited.countDown();
+            }
+        });
+        redisServer.debugSleep(1000);
+
+        try {
+            redisServer.stop(new StopPolicy.Builder()
+                    .timeout(100, TimeUnit.MILLISECONDS)
+                    .escalate(false)
+                    .build());
+            fail("The stop should have timed out");
+        } catch (EmbeddedRedisException expected) {
+            assertThat(redisServer.isActive(), is(true));
+        }
+
+        // The late exit is the requested stop, not a crash
+        assertThat(exited.await(3, TimeUnit.SECONDS), is(false));
+        assertThat(redisServer.isActive(), is(false));
+        assertThat(redisServer.exitCode(), nullValue());
+    }
+
+    @Test
+    public void shouldWritePidFileUntilStopped() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+        File pidFile = new File(OrphanReaper.defaultDirectory(), "redis-6379-" + redisServer.pid() + ".pid");
+
+        assertThat(pidFile.exists(), is(true));
+        redisServer.stop();
+        assertThat(pidFile.exists(), is(false));
+    }
+
+    @Test
+    public void shouldApplyConfigAtBuildTimeAndLive() throws Exception {
+        redisServer = new RedisServer.Builder()
+                .port(6379)
+                .config(new RedisConfig.Builder()
+                        .maxmemory(16 * 1024 * 1024)
+                        .maxmemoryPolicy(MaxMemoryPolicy.ALLKEYS_LRU)
+                        .build())
+                .build();
+        redisServer.start();
+
+        new RedisConfig.Builder()
+                .maxmemoryPolicy(MaxMemoryPolicy.NOEVICTION)
+                .hz(50)
+                .clientOutputBufferLimit(ClientClass.PUBSUB, 1024 * 1024, 0, 0)
+                .build()
+                .applyTo(redisServer);
+
+        try (Jedis jedis = new Jedis("localhost", 6379)) {
+            assertThat(jedis.configGet("maxmemory"), contains("maxmemory", "16777216"));
+            assertThat(jedis.configGet("maxmemory-policy"), contains("maxmemory-policy", "noeviction"));
+            assertThat(jedis.configGet("hz"), contains("hz", "50"));
+            assertThat(jedis.configGet("client-output-buffer-limit").get(1), containsString("pubsub 1048576 0 0"));
+        }
+    }
+
+    @Test
+    public void shouldReportRejectedConfigParameter() throws Exception {
+        redisServer = new RedisServer(6379);
+        redisServer.start();
+
+        exception.expect(EmbeddedRedisException.class);
+        exception.expectMessage("no-such-parameter");
+        new RedisConfig.Builder().set("no-such-parameter", "1").build().applyTo(redisServer);
+    }
+
     @Test
     public void shouldIndicateInactiveBeforeStart() throws Exception {
         redisServer = new RedisServer(6379);
@@ -184,6 +468,60 @@ public class RedisServerTest {
                 .build();
     }
 
+    @Test
+    public void shouldRecoverFromPortConflictWithPortProvider() throws Exception {
+        redisServer = new RedisServer.Builder().port(6379).build();
+        redisServer.start();
+
+        RedisServer server = new RedisServer.Builder()
+                .port(new SequencePortProvider(6379, 6390))
+                .build();
+        try {
+            server.start();
+
+            assertThat(server.isActive(), is(true));
+            assertThat(server.ports(), contains(6380));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void startOnSamePortShouldNotMoveToAnotherPort() throws Exception {
+        RedisServer server = new RedisServer.Builder()
+                .port(new SequencePortProvider(6379, 6390))
+                .build();
+        server.start();
+        server.crash();
+
+        redisServer = new RedisServer.Builder().port(6379).build();
+        redisServer.start();
+        try {
+            server.startOnSamePort();
+            fail("The server should not have moved to another port");
+        } catch (EmbeddedRedisException e) {
+            assertThat(server.isActive(), is(false));
+            assertThat(server.ports(), contains(6379));
+        }
+    }
+
+    @Test
+    public void stopShouldReleaseReservedPort() throws Exception {
+        ReservingPortProvider portProvider = new ReservingPortProvider();
+        try {
+            redisServer = new RedisServer.Builder().port(portProvider).build();
+            int port = redisServer.ports().get(0);
+            assertThat(portProvider.reservedPorts(), contains(port));
+
+            redisServer.start();
+            redisServer.stop();
+
+            assertThat(portProvider.reservedPorts(), is(empty()));
+        } finally {
+            portProvider.close();
+        }
+    }
+
     @Test
     public void shouldLetAccessToLogs() throws IOException {
         redisServer = new RedisServer.Builder().build();
@@ -5,11 +5,19 @@ import org.junit.Before;
 import org.junit.Test;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisSentinelPool;
+import redis.embedded.config.RedisConfig;
+import redis.embedded.sentinel.FailoverReport;
+import redis.embedded.sentinel.FailoverTrigger;
 import redis.embedded.util.JedisUtil;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -197,6 +205,88 @@ public class SentinelClusterTest {
         testClusterWithThreeMasters(masters, cluster, sentinelHosts);
     }
 
+    @Test
+    @Configuration(sentinel = 3, master = 1, slave = 1)
+    public void failoverShouldPromoteReplicaAndReportPhases() throws Exception {
+        //given
+        final SentinelCluster cluster = new SentinelCluster.Builder().ephemeral().fastFailover()
+                .sentinelCount(3).quorumSize(2)
+                .replicationGroup("ourmaster", 1)
+                .build();
+        cluster.start();
+
+        try {
+            final int oldMasterPort = cluster.masterPort("ourmaster");
+
+            //when
+            final FailoverReport report = cluster.failover("ourmaster", FailoverTrigger.KILL, 30000L);
+
+            //then
+            assertEquals(oldMasterPort, report.oldMasterPort());
+            assertNotEquals(oldMasterPort, report.newMasterPort());
+            assertEquals(report.newMasterPort(), cluster.masterPort("ourmaster"));
+            assertTrue(report.detection(TimeUnit.MILLISECONDS) >= 1000L);
+        } finally {
+            cluster.stop();
+        }
+    }
+
+    @Test
+    @Configuration(sentinel = 2, master = 1, slave = 1)
+    public void resetShouldWaitForRediscoveryOfConfiguredMasters() throws Exception {
+        //given
+        final SentinelCluster cluster = new SentinelCluster.Builder().ephemeral()
+                .sentinelCount(2)
+                .replicationGroup("ourmaster", 1)
+                .build();
+        cluster.start();
+
+        try (Jedis sentinel = new Jedis("localhost", cluster.sentinelPorts().get(0))) {
+            final long deadline = System.currentTimeMillis() + 10000L;
+            while (sentinel.sentinelSlaves("ourmaster").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100L);
+            }
+            sentinel.sentinelMonitor("othermaster", "127.0.0.1", cluster.masterPort("ourmaster"), 1);
+
+            //when
+            cluster.reset();
+
+            //then
+            assertEquals(1, sentinel.sentinelSlaves("ourmaster").size());
+            assertEquals(2, sentinel.sentinelMasters().size());
+        } finally {
+            cluster.stop();
+        }
+    }
+
+    @Test
+    @Configuration(master = 1, slave = 1)
+    public void configShouldBeSetOnEveryServer() throws Exception {
+        //given
+        RedisServer.Builder serverBuilder = new RedisServer.Builder();
+        final SentinelCluster cluster = new SentinelCluster.Builder().ephemeral()
+                .withServerBuilder(serverBuilder)
+                .config(new RedisConfig.Builder().hz(20).build())
+                .config(new RedisConfig.Builder().hz(30).build())
+                .replicationGroup("ourmaster", 1)
+                .build();
+
+        //when
+        cluster.start();
+
+        //then
+        try {
+            for (Redis server : cluster.servers()) {
+                try (Jedis jedis = new Jedis("localhost", server.ports().get(0))) {
+                    assertThat(jedis.configGet("hz"), contains("hz", "30"));
+                }
+            }
+            assertEquals(new RedisServer.Builder().fingerprint(), serverBuilder.fingerprint());
+        } finally {
+            cluster.stop();
+        }
+    }
+
     // Helper
     private void testClusterWithThreeMasters(String[] masters, SentinelCluster cluster, Set<String> sentinelHosts) {
         try (JedisSentinelPool pool1 = new JedisSentinelPool(masters[0], sentinelHosts);
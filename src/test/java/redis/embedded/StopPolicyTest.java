@@ -0,0 +1,39 @@
+package redis.embedded;
+
+import org.junit.Test;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StopPolicyTest {
+
+    @Test
+    public void shouldDefaultToDestroyWithEscalation() {
+        StopPolicy policy = new StopPolicy.Builder().build();
+
+        assertThat(policy.mode(), equalTo(StopPolicy.Mode.DESTROY));
+        assertThat(policy.timeout(TimeUnit.SECONDS), equalTo(30L));
+        assertThat(policy.escalates(), is(true));
+    }
+
+    @Test
+    public void shouldBuildConfiguredPolicy() {
+        StopPolicy policy = new StopPolicy.Builder()
+                .mode(StopPolicy.Mode.SHUTDOWN_SAVE)
+                .timeout(2, TimeUnit.MINUTES)
+                .escalate(false)
+                .build();
+
+        assertThat(policy.mode(), equalTo(StopPolicy.Mode.SHUTDOWN_SAVE));
+        assertThat(policy.timeout(TimeUnit.MILLISECONDS), equalTo(120000L));
+        assertThat(policy.escalates(), is(false));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void shouldRejectNegativeTimeout() {
+        new StopPolicy.Builder().timeout(-1, TimeUnit.SECONDS).build();
+    }
+}
@@ -0,0 +1,62 @@
+package redis.embedded.affinity;
+
+import org.junit.Test;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CpuSetTest {
+
+    @Test
+    public void shouldParseAndFormatListFormat() {
+        CpuSet cpus = CpuSet.parse("0-3, 6,8-9");
+
+        assertThat(cpus.cpus(), contains(0, 1, 2, 3, 6, 8, 9));
+        assertThat(cpus.toString(), equalTo("0-3,6,8-9"));
+        assertThat(CpuSet.of(5).toString(), equalTo("5"));
+    }
+
+    @Test
+    public void withoutShouldRemoveCpus() {
+        assertThat(CpuSet.range(0, 7).without(CpuSet.of(0, 1)), equalTo(CpuSet.range(2, 7)));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void withoutShouldNotLeaveAnEmptySet() {
+        CpuSet.range(0, 1).without(CpuSet.range(0, 3));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void shouldRejectInvalidList() {
+        CpuSet.parse("0-a");
+    }
+
+    @Test
+    public void availableShouldNotBeEmpty() {
+        assertThat(CpuSet.available().size(), greaterThan(0));
+    }
+
+    @Test
+    public void spreaderShouldHandOutCpusInTurn() {
+        CpuSpreader spreader = new CpuSpreader(CpuSet.parse("2-6"), 2);
+
+        assertThat(spreader.next(), equalTo(CpuSet.of(2, 3)));
+        assertThat(spreader.next(), equalTo(CpuSet.of(4, 5)));
+        assertThat(spreader.next(), equalTo(CpuSet.of(6, 2)));
+    }
+
+    @Test
+    public void launchPrefixShouldWrapTasksetAndNice() {
+        assertThat(Affinity.launchPrefix(CpuSet.of(1, 2), 5),
+                equalTo(Arrays.asList("taskset", "-c", "1-2", "nice", "-n", "5")));
+        assertThat(Affinity.launchPrefix(null, null), empty());
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void launchPrefixShouldRejectInvalidNice() {
+        Affinity.launchPrefix(null, 20);
+    }
+}
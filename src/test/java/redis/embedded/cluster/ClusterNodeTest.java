@@ -0,0 +1,62 @@
+package redis.embedded.cluster;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ClusterNodeTest {
+    private static final String CLUSTER_NODES =
+            "07c37dfeb235213a872192d90877d0cd55635b91 127.0.0.1:30004 slave e7d1eecce10fd6bb5eb35b9f99a514335d9ba9ca 0 1426238317239 4 connected\n" +
+            "67ed2db8d677e59ec4a4cefb06858cf2a1a89fa1 127.0.0.1:30002@40002 master - 0 1426238316232 2 connected 5461-10922\n" +
+            "292f8b365bb7edb5e285caf0b7e6ddc7265d2f4f 127.0.0.1:30003 master,fail - 1426238316232 1426238316000 3 disconnected 10923-16383 [42->-67ed2db8d677e59ec4a4cefb06858cf2a1a89fa1]\n" +
+            "e7d1eecce10fd6bb5eb35b9f99a514335d9ba9ca 127.0.0.1:30001 myself,master - 0 0 1 connected 0-5460 16000\n";
+
+    @Test
+    public void shouldParseEveryNode() {
+        List<ClusterNode> nodes = ClusterNode.parse(CLUSTER_NODES);
+
+        assertThat(nodes, hasSize(4));
+        assertThat(nodes.get(0).id(), equalTo("07c37dfeb235213a872192d90877d0cd55635b91"));
+        assertThat(nodes.get(0).host(), equalTo("127.0.0.1"));
+        assertThat(nodes.get(0).port(), equalTo(30004));
+    }
+
+    @Test
+    public void shouldParseReplica() {
+        ClusterNode replica = ClusterNode.parse(CLUSTER_NODES).get(0);
+
+        assertThat(replica.isReplica(), equalTo(true));
+        assertThat(replica.isMaster(), equalTo(false));
+        assertThat(replica.masterId(), equalTo("e7d1eecce10fd6bb5eb35b9f99a514335d9ba9ca"));
+        assertThat(replica.slotCount(), equalTo(0));
+    }
+
+    @Test
+    public void shouldIgnoreClusterBusPort() {
+        assertThat(ClusterNode.parse(CLUSTER_NODES).get(1).port(), equalTo(30002));
+    }
+
+    @Test
+    public void shouldParseSlotsIgnoringMigrations() {
+        List<ClusterNode> nodes = ClusterNode.parse(CLUSTER_NODES);
+
+        assertThat(nodes.get(2).slotCount(), equalTo(16383 - 10923 + 1));
+        assertThat(nodes.get(3).slotCount(), equalTo(5461 + 1));
+        assertThat(nodes.get(3).servesSlot(16000), equalTo(true));
+        assertThat(nodes.get(3).servesSlot(5461), equalTo(false));
+    }
+
+    @Test
+    public void shouldParseFlagsAndLinkState() {
+        List<ClusterNode> nodes = ClusterNode.parse(CLUSTER_NODES);
+
+        assertThat(nodes.get(2).isFailing(), equalTo(true));
+        assertThat(nodes.get(2).isConnected(), equalTo(false));
+        assertThat(nodes.get(3).isMyself(), equalTo(true));
+        assertThat(nodes.get(3).masterId(), nullValue());
+        assertThat(nodes.get(3).configEpoch(), equalTo(1L));
+    }
+}
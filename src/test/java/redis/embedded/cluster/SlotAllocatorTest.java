@@ -0,0 +1,86 @@
+package redis.embedded.cluster;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SlotAllocatorTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void evenAllocatorShouldSplitSlotsEvenly() {
+        List<List<SlotRange>> ranges = new EvenSlotAllocator().allocate(3);
+
+        assertThat(ranges, contains(
+                Collections.singletonList(new SlotRange(0, 5460)),
+                Collections.singletonList(new SlotRange(5461, 10921)),
+                Collections.singletonList(new SlotRange(10922, 16383))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void weightedAllocatorShouldSplitSlotsProportionally() {
+        List<List<SlotRange>> ranges = new WeightedSlotAllocator(2, 1, 1).allocate(3);
+
+        assertThat(ranges, contains(
+                Collections.singletonList(new SlotRange(0, 8191)),
+                Collections.singletonList(new SlotRange(8192, 12287)),
+                Collections.singletonList(new SlotRange(12288, 16383))));
+    }
+
+    @Test
+    public void weightedAllocatorShouldRequireAWeightPerMaster() {
+        exception.expect(EmbeddedRedisException.class);
+        new WeightedSlotAllocator(2, 1).allocate(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void explicitAllocatorShouldKeepGivenRanges() {
+        List<SlotRange> first = Arrays.asList(new SlotRange(0, 99), new SlotRange(200, 16383));
+        List<SlotRange> second = Collections.singletonList(new SlotRange(100, 199));
+
+        List<List<SlotRange>> ranges = new ArrayList<>();
+        ranges.add(first);
+        ranges.add(second);
+
+        assertThat(new ExplicitSlotAllocator(ranges).allocate(2), contains(first, second));
+    }
+
+    @Test
+    public void hotSlotsAllocatorShouldConcentrateHotKeysOnHotMaster() {
+        int slot = JedisClusterCRC16.getSlot("hot");
+        assertThat(slot, greaterThan(5460));
+
+        List<List<SlotRange>> ranges = HotSlotsAllocator.forKeys(0, "hot").allocate(3);
+
+        assertThat(ranges.get(0), hasItem(new SlotRange(slot, slot)));
+        for (SlotRange range : ranges.get(1)) {
+            assertThat(range.contains(slot), equalTo(false));
+        }
+        for (SlotRange range : ranges.get(2)) {
+            assertThat(range.contains(slot), equalTo(false));
+        }
+    }
+
+    @Test
+    public void fromOwnersShouldMergeContiguousSlots() {
+        List<List<SlotRange>> ranges = SlotRange.fromOwners(new int[]{0, 0, 1, 1, 0}, 2);
+
+        assertThat(ranges.get(0), contains(new SlotRange(0, 1), new SlotRange(4, 4)));
+        assertThat(ranges.get(1), contains(new SlotRange(2, 3)));
+    }
+}
@@ -0,0 +1,73 @@
+package redis.embedded.config;
+
+import org.junit.Test;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RedisConfigTest {
+
+    @Test
+    public void shouldWriteOneLinePerParameterAndClientClass() {
+        RedisConfig config = new RedisConfig.Builder()
+                .maxmemory(64 * 1024 * 1024)
+                .maxmemoryPolicy(MaxMemoryPolicy.ALLKEYS_LRU)
+                .hz(100)
+                .clientOutputBufferLimit(ClientClass.SLAVE, 0, 0, 0)
+                .clientOutputBufferLimit(ClientClass.PUBSUB, 32 * 1024 * 1024, 8 * 1024 * 1024, 60)
+                .build();
+
+        assertThat(config.configLines(), contains(
+                "maxmemory 67108864",
+                "maxmemory-policy allkeys-lru",
+                "hz 100",
+                "client-output-buffer-limit slave 0 0 0",
+                "client-output-buffer-limit pubsub 33554432 8388608 60"));
+    }
+
+    @Test
+    public void shouldSetEveryClientClassInOneParameter() {
+        RedisConfig config = new RedisConfig.Builder()
+                .timeout(30)
+                .clientOutputBufferLimit(ClientClass.PUBSUB, 1024, 512, 10)
+                .clientOutputBufferLimit(ClientClass.NORMAL, 0, 0, 0)
+                .build();
+
+        assertThat(config.parameters(), hasEntry("timeout", "30"));
+        assertThat(config.parameters(), hasEntry("client-output-buffer-limit", "normal 0 0 0 pubsub 1024 512 10"));
+    }
+
+    @Test
+    public void shouldOverrideParametersWhenMerged() {
+        RedisConfig base = new RedisConfig.Builder()
+                .maxmemory(1024)
+                .maxmemoryPolicy(MaxMemoryPolicy.NOEVICTION)
+                .build();
+        RedisConfig override = new RedisConfig.Builder()
+                .maxmemoryPolicy(MaxMemoryPolicy.VOLATILE_TTL)
+                .set("lua-time-limit", "1000")
+                .build();
+
+        assertThat(base.with(override), equalTo(new RedisConfig.Builder()
+                .maxmemory(1024)
+                .maxmemoryPolicy(MaxMemoryPolicy.VOLATILE_TTL)
+                .set("lua-time-limit", "1000")
+                .build()));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void shouldRejectHzOutOfRange() {
+        new RedisConfig.Builder().hz(0);
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void shouldRejectNegativeMaxmemory() {
+        new RedisConfig.Builder().maxmemory(-1);
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void shouldRejectRawClientOutputBufferLimit() {
+        new RedisConfig.Builder().set("client-output-buffer-limit", "normal 0 0 0");
+    }
+}
@@ -0,0 +1,106 @@
+package redis.embedded.fault;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.embedded.Redis;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class FaultInjectorTest {
+
+    private FaultInjector injector;
+    private RedisServer server;
+
+    @Before
+    public void setUp() {
+        injector = new FaultInjector(42L);
+        server = mock(RedisServer.class);
+        when(server.ports()).thenReturn(Collections.singletonList(6379));
+    }
+
+    @After
+    public void tearDown() {
+        injector.close();
+    }
+
+    @Test
+    public void injectedPauseShouldBeResumedAfterDuration() throws Exception {
+        injector.inject(Fault.PAUSE, server, 10, TimeUnit.MILLISECONDS).get();
+
+        verify(server, timeout(1000)).resume();
+        verify(server).pause();
+        waitForHistory(2);
+        List<FaultEvent> history = injector.history();
+        assertThat(history.get(0).phase(), equalTo(FaultEvent.Phase.INJECTED));
+        assertThat(history.get(1).phase(), equalTo(FaultEvent.Phase.HEALED));
+        assertThat(history.get(1).port(), equalTo(6379));
+    }
+
+    @Test
+    public void crashShouldBeHealedByRestart() throws Exception {
+        when(server.isActive()).thenReturn(false);
+
+        injector.inject(Fault.CRASH, server, 10, TimeUnit.MILLISECONDS).get();
+
+        verify(server).crash();
+        verify(server, timeout(1000)).start();
+    }
+
+    @Test
+    public void closeShouldHealOngoingFaults() throws Exception {
+        injector.inject(Fault.PAUSE, server, 1, TimeUnit.HOURS).get();
+
+        injector.close();
+
+        verify(server).resume();
+        assertThat(injector.history().get(1).phase(), equalTo(FaultEvent.Phase.HEALED));
+    }
+
+    @Test
+    public void failedInjectionShouldBeRecorded() throws Exception {
+        doThrow(new EmbeddedRedisException("not running")).when(server).clientPause(anyLong());
+
+        injector.inject(Fault.CLIENT_PAUSE, server, 10, TimeUnit.MILLISECONDS).get();
+
+        assertThat(injector.history().get(0).phase(), equalTo(FaultEvent.Phase.FAILED));
+    }
+
+    @Test
+    public void randomFaultsShouldBeInjectedOneAtATime() throws Exception {
+        RedisServer other = mock(RedisServer.class);
+        when(other.ports()).thenReturn(Collections.singletonList(6380));
+
+        injector.randomly(Arrays.asList(server, other), EnumSet.of(Fault.PAUSE), 1, 5, 1, 5, TimeUnit.MILLISECONDS);
+        waitForHistory(6);
+
+        List<FaultEvent> history = injector.history();
+        for (int i = 0; i < 6; i += 2) {
+            assertThat(history.get(i).phase(), equalTo(FaultEvent.Phase.INJECTED));
+            assertThat(history.get(i + 1).phase(), equalTo(FaultEvent.Phase.HEALED));
+            assertThat(history.get(i + 1).port(), equalTo(history.get(i).port()));
+        }
+    }
+
+    @Test(expected = EmbeddedRedisException.class)
+    public void faultsShouldOnlyBeInjectedIntoSingleInstances() {
+        injector.inject(Fault.PAUSE, mock(Redis.class), 10, TimeUnit.MILLISECONDS);
+    }
+
+    private void waitForHistory(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (injector.history().size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
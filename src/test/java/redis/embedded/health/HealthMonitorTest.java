@@ -0,0 +1,264 @@
+package redis.embedded.health;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import redis.embedded.ProcessExitListener;
+import redis.embedded.Redis;
+import redis.embedded.RedisServer;
+import redis.embedded.cluster.RedisCluster;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class HealthMonitorTest {
+
+    private final BlockingQueue<HealthEvent> events = new LinkedBlockingQueue<>();
+    private HealthMonitor monitor;
+    private PongServer pongServer;
+
+    @Before
+    public void setUp() throws IOException {
+        pongServer = new PongServer();
+    }
+
+    @After
+    public void tearDown() {
+        if (monitor != null) {
+            monitor.close();
+        }
+        pongServer.close();
+    }
+
+    @Test
+    public void shouldPublishUpThenStopped() throws Exception {
+        FakeRedis redis = new FakeRedis(pongServer.port());
+        monitor = monitor(redis).start();
+
+        HealthEvent up = next();
+        assertThat(up.previous(), nullValue());
+        assertThat(up.state(), equalTo(HealthState.UP));
+        assertThat(up.latency(TimeUnit.NANOSECONDS), greaterThan(0L));
+
+        redis.active = false;
+        assertThat(next().state(), equalTo(HealthState.STOPPED));
+        assertThat(monitor.state(pongServer.port()), equalTo(HealthState.STOPPED));
+    }
+
+    @Test
+    public void shouldPublishSlowAndUnresponsive() throws Exception {
+        monitor = monitor(new FakeRedis(pongServer.port())).start();
+        assertThat(next().state(), equalTo(HealthState.UP));
+
+        pongServer.delay = 80;
+        assertThat(next().state(), equalTo(HealthState.SLOW));
+
+        pongServer.delay = 1000;
+        HealthEvent unresponsive = next();
+        assertThat(unresponsive.previous(), equalTo(HealthState.SLOW));
+        assertThat(unresponsive.state(), equalTo(HealthState.UNRESPONSIVE));
+
+        pongServer.delay = 0;
+        assertThat(next().state(), equalTo(HealthState.UP));
+    }
+
+    @Test
+    public void shouldPublishExitAsSoonAsNotified() throws Exception {
+        RedisServer server = mock(RedisServer.class);
+        when(server.ports()).thenReturn(Collections.singletonList(pongServer.port()));
+        when(server.isActive()).thenReturn(true);
+        monitor = monitor(server).start();
+        assertThat(next().state(), equalTo(HealthState.UP));
+
+        ArgumentCaptor<ProcessExitListener> listener = ArgumentCaptor.forClass(ProcessExitListener.class);
+        verify(server).addExitListener(listener.capture());
+        when(server.isActive()).thenReturn(false);
+        listener.getValue().exited(server, 137);
+
+        HealthEvent exited = next();
+        assertThat(exited.state(), equalTo(HealthState.EXITED));
+        assertThat(exited.exitCode(), equalTo(137));
+        assertThat(exited.instance(), sameInstance((Redis) server));
+
+        monitor.close();
+        verify(server).removeExitListener(listener.getValue());
+    }
+
+    @Test
+    public void shouldProbeTheCurrentPortOfAnInstance() throws Exception {
+        PongServer moved = new PongServer();
+        try {
+            RedisServer server = mock(RedisServer.class);
+            when(server.ports()).thenReturn(Collections.singletonList(pongServer.port()));
+            when(server.isActive()).thenReturn(true);
+            monitor = monitor(server).start();
+            assertThat(next().state(), equalTo(HealthState.UP));
+
+            // Restarted on another port
+            when(server.ports()).thenReturn(Collections.singletonList(moved.port()));
+            pongServer.close();
+
+            assertThat(events.poll(200, TimeUnit.MILLISECONDS), nullValue());
+            assertThat(monitor.states().keySet(), contains(moved.port()));
+            assertThat(monitor.state(moved.port()), equalTo(HealthState.UP));
+        } finally {
+            moved.close();
+        }
+    }
+
+    @Test
+    public void shouldWatchNodesAddedToAndRemovedFromACluster() throws Exception {
+        PongServer added = new PongServer();
+        try {
+            Redis first = new FakeRedis(pongServer.port());
+            Redis second = new FakeRedis(added.port());
+            RedisCluster cluster = mock(RedisCluster.class);
+            when(cluster.servers()).thenReturn(Collections.singletonList(first));
+            monitor = monitor(cluster).start();
+            assertThat(next().instance(), sameInstance(first));
+
+            when(cluster.servers()).thenReturn(Arrays.asList(first, second));
+            HealthEvent up = next();
+            assertThat(up.instance(), sameInstance(second));
+            assertThat(up.state(), equalTo(HealthState.UP));
+
+            when(cluster.servers()).thenReturn(Collections.singletonList(second));
+            Thread.sleep(100);
+            assertThat(monitor.states().keySet(), contains(added.port()));
+        } finally {
+            added.close();
+        }
+    }
+
+    private HealthMonitor monitor(Redis redis) {
+        return new HealthMonitor.Builder()
+                .watch(redis)
+                .interval(10, TimeUnit.MILLISECONDS)
+                .slowThreshold(40, TimeUnit.MILLISECONDS)
+                .timeout(300, TimeUnit.MILLISECONDS)
+                .listener(new HealthListener() {
+                    @Override
+                    public void onStateChange(HealthEvent event) {
+                        events.add(event);
+                    }
+                })
+                .build();
+    }
+
+    private HealthEvent next() throws InterruptedException {
+        HealthEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertThat("No health event published", event, notNullValue());
+        return event;
+    }
+
+    private static class FakeRedis implements Redis {
+        private final int port;
+        private volatile boolean active = true;
+
+        FakeRedis(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public List<Integer> ports() {
+            return Collections.singletonList(port);
+        }
+
+        @Override
+        public InputStream errors() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+
+    /**
+     * Replies {@code +PONG} to every command, after an adjustable delay.
+     */
+    private static class PongServer implements Runnable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private volatile long delay = 0;
+
+        PongServer() throws IOException {
+            Thread thread = new Thread(this, "pong-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    Thread connection = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8")));
+                OutputStream output = socket.getOutputStream();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("*")) {
+                        Thread.sleep(delay);
+                        output.write("+PONG\r\n".getBytes(Charset.forName("UTF-8")));
+                        output.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException ignored) {
+                // connection closed by the client
+            } finally {
+                closeQuietly(socket);
+            }
+        }
+
+        void close() {
+            closeQuietly(serverSocket);
+        }
+    }
+}
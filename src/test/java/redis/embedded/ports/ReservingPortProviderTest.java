@@ -0,0 +1,129 @@
+package redis.embedded.ports;
+
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import redis.embedded.exceptions.RedisBuildingException;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ReservingPortProviderTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private File registry;
+    private final List<ReservingPortProvider> providers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        registry = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        for (ReservingPortProvider provider : providers) {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void nextShouldReserveDistinctPortsInRange() {
+        final ReservingPortProvider provider = provider(42000, 42019);
+
+        final Set<Integer> ports = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            ports.add(provider.next());
+        }
+
+        assertThat(ports.size(), equalTo(20));
+        assertThat(ports, everyItem(allOf(greaterThanOrEqualTo(42000), lessThanOrEqualTo(42019))));
+        assertThat(provider.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void nextShouldReserveContiguousBlock() {
+        final ReservingPortProvider provider = provider(42000, 42099);
+
+        final List<Integer> block = provider.next(6);
+
+        assertThat(block.size(), equalTo(6));
+        for (int i = 1; i < block.size(); i++) {
+            assertThat(block.get(i), equalTo(block.get(0) + i));
+        }
+        assertThat(provider.reservedPorts(), equalTo(block));
+    }
+
+    @Test
+    public void providersSharingARegistryShouldNotOverlap() {
+        final ReservingPortProvider provider1 = provider(42000, 42009);
+        final ReservingPortProvider provider2 = provider(42000, 42009);
+
+        final List<Integer> ports1 = provider1.next(5);
+        final List<Integer> ports2 = provider2.next(5);
+
+        assertThat(ports1, contains(42000, 42001, 42002, 42003, 42004));
+        assertThat(ports2, contains(42005, 42006, 42007, 42008, 42009));
+    }
+
+    @Test
+    public void releasedPortsShouldBeAvailableAgain() {
+        final ReservingPortProvider provider1 = provider(42000, 42000);
+        final ReservingPortProvider provider2 = provider(42000, 42000);
+
+        assertThat(provider1.next(), equalTo(42000));
+        provider1.release(42000);
+
+        assertThat(provider2.next(), equalTo(42000));
+        assertThat(provider1.reservedPorts(), empty());
+    }
+
+    @Test
+    public void shouldSkipPortsAlreadyBound() throws Exception {
+        final ReservingPortProvider provider = provider(42000, 42001);
+
+        try (ServerSocket socket = new ServerSocket(42000)) {
+            assertThat(socket.getLocalPort(), equalTo(42000));
+            assertThat(provider.next(), equalTo(42001));
+        }
+    }
+
+    @Test
+    public void nextShouldThrowExceptionWhenRunOutsOfPorts() {
+        final ReservingPortProvider provider = provider(42000, 42001);
+        provider.next(2);
+
+        exception.expect(RedisBuildingException.class);
+        exception.expectMessage("Run out of Redis ports!");
+        provider.next();
+    }
+
+    @Test
+    public void copyShouldNotShareReservations() {
+        final ReservingPortProvider provider = provider(42000, 42001);
+        final ReservingPortProvider copy = provider.copy();
+        providers.add(copy);
+
+        final int port = provider.next();
+
+        assertThat(copy.next(), not(equalTo(port)));
+        assertThat(copy.reservedPorts(), not(hasItem(port)));
+    }
+
+    private ReservingPortProvider provider(int startPort, int maxPort) {
+        final ReservingPortProvider provider = new ReservingPortProvider(registry, startPort, maxPort);
+        providers.add(provider);
+        return provider;
+    }
+}
@@ -0,0 +1,87 @@
+package redis.embedded.proc;
+
+import org.junit.Test;
+import redis.embedded.affinity.Affinity;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ProcTest {
+
+    private static final String STAT = "4242 (redis-server *:6379) S 4200 4242 4200 0 -1 4194560 2158 0 3 0 "
+            + "250 130 0 0 20 0 4 0 246894 45215744 2048 18446744073709551615 1 1 0 0 0 0 0 4097 17610 0 0 0 17 "
+            + "3 0 0 0 0 0";
+    private static final String STATUS = "Name:\tredis-server\n"
+            + "State:\tS (sleeping)\n"
+            + "VmHWM:\t   12288 kB\n"
+            + "VmRSS:\t    8192 kB\n"
+            + "VmSize:\t   44156 kB\n"
+            + "Threads:\t4\n"
+            + "voluntary_ctxt_switches:\t1500\n"
+            + "nonvoluntary_ctxt_switches:\t42\n";
+    private static final String IO = "rchar: 3980\n"
+            + "wchar: 1048576\n"
+            + "read_bytes: 4096\n"
+            + "write_bytes: 1044480\n";
+
+    @Test
+    public void shouldParseProcFiles() {
+        ProcessStats stats = Proc.parse(STAT, STATUS, IO, 100, Collections.<ProcessStats>emptyList());
+
+        assertThat(stats.pid(), equalTo(4242L));
+        assertThat(stats.state(), equalTo('S'));
+        assertThat(stats.rssBytes(), equalTo(8192L * 1024));
+        assertThat(stats.peakRssBytes(), equalTo(12288L * 1024));
+        assertThat(stats.virtualBytes(), equalTo(44156L * 1024));
+        assertThat(stats.userCpuMillis(), equalTo(2500L));
+        assertThat(stats.systemCpuMillis(), equalTo(1300L));
+        assertThat(stats.majorFaults(), equalTo(3L));
+        assertThat(stats.threads(), equalTo(4L));
+        assertThat(stats.voluntaryContextSwitches(), equalTo(1500L));
+        assertThat(stats.involuntaryContextSwitches(), equalTo(42L));
+        assertThat(stats.readBytes(), equalTo(4096L));
+        assertThat(stats.writeBytes(), equalTo(1044480L));
+        assertThat(Proc.parentPid(STAT), equalTo(4200L));
+    }
+
+    @Test
+    public void unreadableIoShouldBeUnknown() {
+        ProcessStats stats = Proc.parse(STAT, STATUS, null, 100, Collections.<ProcessStats>emptyList());
+
+        assertThat(stats.readBytes(), equalTo(-1L));
+        assertThat(stats.writeBytes(), equalTo(-1L));
+    }
+
+    @Test
+    public void aggregateShouldSumProcessesAndKeepChildren() {
+        ProcessStats child = Proc.parse(STAT, STATUS, IO, 100, Collections.<ProcessStats>emptyList());
+        ProcessStats parent = Proc.parse(STAT, STATUS, IO, 100, Collections.singletonList(child));
+        ProcessStats other = Proc.parse(STAT, STATUS, null, 100, Collections.<ProcessStats>emptyList());
+
+        ProcessStats total = ProcessStats.aggregate(Arrays.asList(parent, other));
+
+        assertThat(total.pid(), equalTo(-1L));
+        assertThat(total.rssBytes(), equalTo(2 * 8192L * 1024));
+        assertThat(total.totalRssBytes(), equalTo(3 * 8192L * 1024));
+        assertThat(total.cpuMillis(), equalTo(2 * 3800L));
+        assertThat(total.children(), contains(child));
+        assertThat(total.readBytes(), equalTo(-1L));
+    }
+
+    @Test
+    public void shouldSampleThisJvm() {
+        assumeTrue(new File("/proc/self/stat").exists());
+        long pid = Affinity.jvmPid();
+
+        ProcessStats stats = Proc.sample(pid);
+
+        assertThat(stats.pid(), equalTo(pid));
+        assertThat(stats.rssBytes(), greaterThan(0L));
+        assertThat(stats.threads(), greaterThan(1L));
+    }
+}
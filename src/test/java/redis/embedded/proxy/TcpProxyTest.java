@@ -0,0 +1,173 @@
+package redis.embedded.proxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class TcpProxyTest {
+
+    private ServerSocket echoServer;
+    private TcpProxy proxy;
+
+    @Before
+    public void setUp() throws Exception {
+        echoServer = new ServerSocket(0);
+        Thread echo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!echoServer.isClosed()) {
+                    try {
+                        final Socket socket = echoServer.accept();
+                        Thread connection = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                echo(socket);
+                            }
+                        });
+                        connection.setDaemon(true);
+                        connection.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        echo.setDaemon(true);
+        echo.start();
+
+        proxy = new TcpProxy(0, echoServer.getLocalPort()).start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        proxy.close();
+        echoServer.close();
+    }
+
+    @Test
+    public void shouldForwardBothDirections() throws Exception {
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "hello"), equalTo("hello"));
+            assertThat(proxy.connections(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void latencyShouldDelayEachDirection() throws Exception {
+        proxy.conditions(TcpProxy.Direction.UPSTREAM).latency(100);
+        proxy.conditions(TcpProxy.Direction.DOWNSTREAM).latency(50);
+
+        try (Socket socket = connect()) {
+            long start = System.nanoTime();
+            assertThat(roundTrip(socket, "hello"), equalTo("hello"));
+            assertThat((System.nanoTime() - start) / 1000000, greaterThanOrEqualTo(150L));
+        }
+    }
+
+    @Test
+    public void bandwidthShouldCapThroughput() throws Exception {
+        proxy.conditions(TcpProxy.Direction.DOWNSTREAM).bandwidth(64 * 1024);
+
+        try (Socket socket = connect()) {
+            long start = System.nanoTime();
+            byte[] data = new byte[32 * 1024];
+            socket.getOutputStream().write(data);
+            new DataInputStream(socket.getInputStream()).readFully(data);
+            assertThat((System.nanoTime() - start) / 1000000, greaterThanOrEqualTo(400L));
+        }
+    }
+
+    @Test
+    public void stalledBytesShouldBeDeliveredOnceUnstalled() throws Exception {
+        try (Socket socket = connect()) {
+            socket.setSoTimeout(200);
+            proxy.stall();
+            socket.getOutputStream().write("hello".getBytes("UTF-8"));
+            assertTimesOut(socket);
+
+            proxy.unstall();
+            socket.setSoTimeout(2000);
+            assertThat(read(socket, 5), equalTo("hello"));
+        }
+    }
+
+    @Test
+    public void partitionShouldDropBytesUntilHealed() throws Exception {
+        try (Socket socket = connect()) {
+            socket.setSoTimeout(200);
+            proxy.partition();
+            socket.getOutputStream().write("lost".getBytes("UTF-8"));
+            assertTimesOut(socket);
+
+            proxy.heal();
+            socket.setSoTimeout(2000);
+            assertThat(roundTrip(socket, "hello"), equalTo("hello"));
+        }
+    }
+
+    @Test
+    public void disconnectAllShouldCloseConnections() throws Exception {
+        try (Socket socket = connect()) {
+            roundTrip(socket, "hello");
+
+            proxy.disconnectAll();
+
+            assertThat(socket.getInputStream().read(), equalTo(-1));
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", proxy.port());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static String roundTrip(Socket socket, String message) throws IOException {
+        socket.getOutputStream().write(message.getBytes("UTF-8"));
+        return read(socket, message.length());
+    }
+
+    private static String read(Socket socket, int length) throws IOException {
+        byte[] data = new byte[length];
+        new DataInputStream(socket.getInputStream()).readFully(data);
+        return new String(data, "UTF-8");
+    }
+
+    private static void assertTimesOut(Socket socket) throws IOException {
+        try {
+            socket.getInputStream().read();
+            fail("Nothing should have been received");
+        } catch (SocketTimeoutException expected) {
+            // nothing went through
+        }
+    }
+
+    private static void echo(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException ignored) {
+            // connection closed
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package redis.embedded.reaper;
+
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.embedded.affinity.Affinity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assume.assumeTrue;
+
+public class OrphanReaperTest {
+
+    private File directory;
+    private Process sleeping;
+    private long sleepingPid;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(new File("/proc/self").isDirectory());
+        directory = Files.createTempDir();
+        sleeping = new ProcessBuilder("sh", "-c", "echo $$; exec sleep 60").start();
+        sleepingPid = readPid(sleeping);
+    }
+
+    @After
+    public void tearDown() {
+        if (sleeping != null) {
+            sleeping.destroy();
+        }
+    }
+
+    @Test
+    public void shouldKillProcessOfExitedJvm() throws Exception {
+        PidFile pidFile = PidFile.write(directory, sleepingPid, exitedPid(), 6379, "sleep");
+
+        List<PidFile> reaped = new OrphanReaper(directory).reap();
+
+        assertThat(reaped, hasSize(1));
+        assertThat(reaped.get(0).pid(), equalTo(sleepingPid));
+        assertThat(waitFor(sleeping), equalTo(137));
+        assertThat(pidFile.file().exists(), is(false));
+    }
+
+    @Test
+    public void shouldKeepProcessOfRunningJvm() throws Exception {
+        PidFile pidFile = PidFile.write(directory, sleepingPid, Affinity.jvmPid(), 6379, "sleep");
+
+        List<PidFile> reaped = new OrphanReaper(directory).reap();
+
+        assertThat(reaped, is(empty()));
+        assertThat(OrphanReaper.isAlive(sleepingPid), is(true));
+        assertThat(pidFile.file().exists(), is(true));
+    }
+
+    @Test
+    public void shouldNotKillProcessReusingPid() throws Exception {
+        PidFile pidFile = PidFile.write(directory, sleepingPid, exitedPid(), 6379, "redis-server-3.2.1-64");
+
+        List<PidFile> reaped = new OrphanReaper(directory).reap();
+
+        assertThat(reaped, is(empty()));
+        assertThat(OrphanReaper.isAlive(sleepingPid), is(true));
+        assertThat(pidFile.file().exists(), is(false));
+    }
+
+    @Test
+    public void shouldDeletePidFileOfExitedProcess() throws Exception {
+        PidFile pidFile = PidFile.write(directory, exitedPid(), exitedPid(), 6379, "sleep");
+
+        assertThat(new OrphanReaper(directory).reap(), is(empty()));
+        assertThat(pidFile.file().exists(), is(false));
+    }
+
+    @Test
+    public void shouldReadCommandLineWithPs() throws Exception {
+        assertThat(OrphanReaper.psCommandLine(sleepingPid), containsString("sleep"));
+        assertThat(OrphanReaper.psCommandLine(exitedPid()), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotRunCommandWhichCannotBeVerified() throws Exception {
+        assertThat(OrphanReaper.runs(exitedPid(), "sleep"), is(false));
+    }
+
+    @Test
+    public void shouldReadWrittenPidFile() {
+        PidFile written = PidFile.write(directory, 42, 7, 6380, "redis-server");
+
+        PidFile read = PidFile.read(written.file());
+
+        assertThat(read.pid(), equalTo(42L));
+        assertThat(read.ownerPid(), equalTo(7L));
+        assertThat(read.port(), equalTo(6380));
+        assertThat(read.command(), equalTo("redis-server"));
+    }
+
+    private static long exitedPid() throws Exception {
+        Process process = new ProcessBuilder("sh", "-c", "echo $$").start();
+        long pid = readPid(process);
+        process.waitFor();
+        return pid;
+    }
+
+    private static long readPid(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        return Long.parseLong(reader.readLine().trim());
+    }
+
+    private static int waitFor(Process process) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                return process.exitValue();
+            } catch (IllegalThreadStateException running) {
+                Thread.sleep(10);
+            }
+        }
+        return -1;
+    }
+}
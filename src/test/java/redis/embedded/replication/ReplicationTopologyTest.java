@@ -0,0 +1,91 @@
+package redis.embedded.replication;
+
+import org.junit.After;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.ports.ReservingPortProvider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ReplicationTopologyTest {
+
+    private ReplicationTopology topology;
+    private ReservingPortProvider portProvider;
+
+    @After
+    public void tearDown() {
+        if (topology != null) {
+            topology.stop();
+        }
+        if (portProvider != null) {
+            portProvider.close();
+        }
+    }
+
+    @Test
+    public void commandSizeShouldFollowTheRedisProtocol() {
+        // *2\r\n$4\r\nINFO\r\n$5\r\nstats\r\n
+        assertThat(ReplicationTopology.commandSize("INFO", "stats"), equalTo(25L));
+        // *3\r\n$7\r\nSLAVEOF\r\n$9\r\n127.0.0.1\r\n$5\r\n20000\r\n
+        assertThat(ReplicationTopology.commandSize("SLAVEOF", "127.0.0.1", "20000"), equalTo(43L));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void sourceShouldBeDeclaredBefore() {
+        new ReplicationTopology.Builder()
+                .master("master", new RedisServer.Builder().port(6300))
+                .replica("replica", "unknown", new RedisServer.Builder().port(6301));
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void serversShouldNotSharePorts() {
+        new ReplicationTopology.Builder()
+                .master("master", new RedisServer.Builder().port(6300))
+                .fanOut("replica", "master", 2, new RedisServer.Builder().port(6301))
+                .build();
+    }
+
+    @Test
+    public void chainAndFanOutShouldReportFullSyncs() {
+        portProvider = new ReservingPortProvider();
+        RedisServer.Builder serverBuilder = new RedisServer.Builder().port(portProvider);
+        topology = new ReplicationTopology.Builder()
+                .master("master", serverBuilder)
+                .fanOut("wide", "master", 2, serverBuilder)
+                .chain("chained", "wide-1", 2, serverBuilder)
+                .disklessSync()
+                .build();
+        topology.start();
+
+        List<SyncReport> reports = topology.syncReports();
+        assertThat(reports, hasSize(4));
+        assertThat(reports.get(3).replica(), equalTo("chained-2"));
+        assertThat(reports.get(3).source(), equalTo("chained-1"));
+        assertThat(reports.get(3).depth(), equalTo(3));
+
+        try (Jedis jedis = new Jedis("127.0.0.1", topology.master().ports().get(0))) {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < 10000; i++) {
+                pipeline.set("key" + i, "value" + i);
+            }
+            pipeline.sync();
+        }
+
+        reports = topology.resync();
+        for (SyncReport report : reports) {
+            assertThat(report.isDiskless(), equalTo(true));
+            assertThat(report.bytes(), greaterThan(100000L));
+            assertThat(report.duration(TimeUnit.NANOSECONDS), greaterThan(0L));
+        }
+        try (Jedis jedis = new Jedis("127.0.0.1", topology.get("chained-2").ports().get(0))) {
+            assertThat(jedis.dbSize(), equalTo(10000L));
+        }
+    }
+}
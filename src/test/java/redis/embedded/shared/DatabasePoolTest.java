@@ -0,0 +1,75 @@
+package redis.embedded.shared;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DatabasePoolTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private RedisServer server;
+    private DatabasePool pool;
+
+    @Before
+    public void setUp() {
+        server = new RedisServer.Builder().port(6379).databases(2).build();
+        server.start();
+        pool = new DatabasePool(server);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        server.stop();
+    }
+
+    @Test
+    public void poolShouldLeaseEveryDatabase() throws Exception {
+        assertThat(pool.size(), equalTo(2));
+
+        final DatabaseLease lease1 = pool.lease();
+        final DatabaseLease lease2 = pool.lease();
+
+        assertThat(lease1.database(), not(equalTo(lease2.database())));
+        assertThat(lease1.uri(), equalTo("redis://localhost:6379/" + lease1.database()));
+        assertThat(pool.available(), equalTo(0));
+    }
+
+    @Test
+    public void releasedDatabaseShouldBeFlushed() throws Exception {
+        final DatabaseLease lease = pool.lease();
+        try (Jedis jedis = lease.newJedis()) {
+            jedis.set("key", "value");
+        }
+        pool.lease().release();
+        lease.release();
+
+        final DatabaseLease lease1 = pool.lease(1, TimeUnit.SECONDS);
+        final DatabaseLease lease2 = pool.lease(1, TimeUnit.SECONDS);
+        try (Jedis jedis1 = lease1.newJedis(); Jedis jedis2 = lease2.newJedis()) {
+            assertThat(jedis1.dbSize(), equalTo(0L));
+            assertThat(jedis2.dbSize(), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void leaseShouldTimeOutWhenAllDatabasesAreLeased() throws Exception {
+        pool.lease();
+        pool.lease();
+
+        exception.expect(EmbeddedRedisException.class);
+        pool.lease(10, TimeUnit.MILLISECONDS);
+    }
+}
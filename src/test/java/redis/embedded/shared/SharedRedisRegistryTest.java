@@ -0,0 +1,103 @@
+package redis.embedded.shared;
+
+import org.junit.Before;
+import org.junit.Test;
+import redis.embedded.Redis;
+import redis.embedded.RedisServer;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class SharedRedisRegistryTest {
+
+    private SharedRedisRegistry registry;
+    private Redis redis;
+    private RedisFactory<Redis> factory;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        registry = new SharedRedisRegistry(0, TimeUnit.MILLISECONDS);
+        redis = mock(Redis.class);
+        factory = mock(RedisFactory.class);
+        when(factory.create()).thenReturn(redis);
+    }
+
+    @Test
+    public void acquireShouldStartInstanceOnce() {
+        final SharedRedis<Redis> first = registry.acquire("key", factory);
+        final SharedRedis<Redis> second = registry.acquire("key", factory);
+
+        assertThat(first.get(), sameInstance(second.get()));
+        assertThat(registry.holders("key"), equalTo(2));
+        verify(factory, times(1)).create();
+        verify(redis, times(1)).start();
+    }
+
+    @Test
+    public void instanceShouldBeStoppedWhenLastHolderReleases() {
+        final SharedRedis<Redis> first = registry.acquire("key", factory);
+        final SharedRedis<Redis> second = registry.acquire("key", factory);
+
+        first.release();
+        first.release();
+        verify(redis, never()).stop();
+
+        second.close();
+        verify(redis, times(1)).stop();
+        assertThat(registry.holders("key"), equalTo(0));
+    }
+
+    @Test
+    public void instanceShouldBeKeptDuringIdleTimeout() {
+        registry.idleTimeout(1, TimeUnit.HOURS);
+
+        registry.acquire("key", factory).release();
+        registry.acquire("key", factory).release();
+
+        verify(factory, times(1)).create();
+        verify(redis, never()).stop();
+
+        registry.stopAll();
+        verify(redis, times(1)).stop();
+    }
+
+    @Test
+    public void lateReleaseShouldNotStopInstanceAcquiredAfterStopAll() {
+        final Redis newRedis = mock(Redis.class);
+        final SharedRedis<Redis> old = registry.acquire("key", factory);
+        registry.stopAll();
+        when(factory.create()).thenReturn(newRedis);
+        registry.acquire("key", factory);
+
+        old.release();
+
+        verify(newRedis, never()).stop();
+        assertThat(registry.holders("key"), equalTo(1));
+    }
+
+    @Test
+    public void failedStartShouldNotBeRegistered() {
+        doThrow(new IllegalStateException("boom")).when(redis).start();
+
+        try {
+            registry.acquire("key", factory);
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertThat(registry.holders("key"), equalTo(0));
+    }
+
+    @Test
+    public void equivalentBuildersShouldHaveSameFingerprint() {
+        final RedisServer.Builder builder1 = new RedisServer.Builder().port(6380).setting("maxmemory 64mb");
+        final RedisServer.Builder builder2 = new RedisServer.Builder().port(6380).setting("maxmemory 64mb");
+        final RedisServer.Builder builder3 = new RedisServer.Builder().port(6381).setting("maxmemory 64mb");
+
+        assertThat(builder1.fingerprint(), equalTo(builder2.fingerprint()));
+        assertThat(builder1.fingerprint(), not(equalTo(builder3.fingerprint())));
+    }
+}
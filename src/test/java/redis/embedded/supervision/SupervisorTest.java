@@ -0,0 +1,122 @@
+package redis.embedded.supervision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import redis.embedded.ProcessExitListener;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class SupervisorTest {
+
+    private final BlockingQueue<RestartEvent> events = new LinkedBlockingQueue<>();
+    private Supervisor supervisor;
+    private RedisServer server;
+
+    @Before
+    public void setUp() {
+        supervisor = new Supervisor();
+        supervisor.addListener(new RestartListener() {
+            @Override
+            public void onRestart(RestartEvent event) {
+                events.add(event);
+            }
+        });
+        server = mock(RedisServer.class);
+        when(server.ports()).thenReturn(Collections.singletonList(6379));
+    }
+
+    @After
+    public void tearDown() {
+        supervisor.close();
+    }
+
+    @Test
+    public void backoffShouldGrowUpToMaximum() {
+        RestartPolicy policy = new RestartPolicy.Builder()
+                .backoff(100, 1000, TimeUnit.MILLISECONDS)
+                .multiplier(3)
+                .build();
+
+        assertThat(policy.backoff(0), equalTo(100L));
+        assertThat(policy.backoff(1), equalTo(300L));
+        assertThat(policy.backoff(2), equalTo(900L));
+        assertThat(policy.backoff(3), equalTo(1000L));
+    }
+
+    @Test
+    public void crashedInstanceShouldBeRestarted() throws Exception {
+        ProcessExitListener listener = supervise(policy(3));
+
+        listener.exited(server, 137);
+
+        RestartEvent event = next();
+        assertThat(event.outcome(), equalTo(RestartEvent.Outcome.RESTARTED));
+        assertThat(event.exitCode(), equalTo(137));
+        assertThat(event.restarts(), equalTo(1));
+        verify(server).startOnSamePort();
+        verify(server, never()).start();
+    }
+
+    @Test
+    public void failedRestartShouldBeRetried() throws Exception {
+        ProcessExitListener listener = supervise(policy(3));
+        doThrow(new EmbeddedRedisException("bind failure")).doNothing().when(server).startOnSamePort();
+
+        listener.exited(server, 1);
+
+        assertThat(next().outcome(), equalTo(RestartEvent.Outcome.FAILED));
+        RestartEvent restarted = next();
+        assertThat(restarted.outcome(), equalTo(RestartEvent.Outcome.RESTARTED));
+        assertThat(restarted.restarts(), equalTo(2));
+        verify(server, times(2)).startOnSamePort();
+    }
+
+    @Test
+    public void shouldGiveUpAfterMaxRestartsInWindow() throws Exception {
+        ProcessExitListener listener = supervise(policy(2));
+
+        listener.exited(server, 137);
+        assertThat(next().outcome(), equalTo(RestartEvent.Outcome.RESTARTED));
+        listener.exited(server, 137);
+        assertThat(next().outcome(), equalTo(RestartEvent.Outcome.RESTARTED));
+        listener.exited(server, 137);
+
+        assertThat(next().outcome(), equalTo(RestartEvent.Outcome.GAVE_UP));
+        verify(server, times(2)).startOnSamePort();
+        verify(server).removeExitListener(listener);
+        List<RestartEvent> history = supervisor.history();
+        assertThat(history, hasSize(3));
+    }
+
+    private RestartPolicy policy(int maxRestarts) {
+        return new RestartPolicy.Builder()
+                .backoff(1, 10, TimeUnit.MILLISECONDS)
+                .maxRestarts(maxRestarts, 1, TimeUnit.MINUTES)
+                .build();
+    }
+
+    private ProcessExitListener supervise(RestartPolicy policy) {
+        supervisor.supervise(server, policy);
+        ArgumentCaptor<ProcessExitListener> listener = ArgumentCaptor.forClass(ProcessExitListener.class);
+        verify(server).addExitListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private RestartEvent next() throws InterruptedException {
+        RestartEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertThat("No restart event published", event, notNullValue());
+        return event;
+    }
+}
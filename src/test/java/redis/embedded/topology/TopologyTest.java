@@ -0,0 +1,227 @@
+package redis.embedded.topology;
+
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.embedded.Redis;
+import redis.embedded.RedisSentinel;
+import redis.embedded.RedisServer;
+import redis.embedded.exceptions.EmbeddedRedisException;
+import redis.embedded.exceptions.RedisBuildingException;
+import redis.embedded.ports.PredefinedPortProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TopologyTest {
+
+    private List<String> events;
+
+    @Before
+    public void setUp() {
+        events = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    public void shouldStartDependenciesFirstAndStopThemLast() {
+        Topology topology = new Topology.Builder()
+                .node("master", new FakeRedis("master", 6379))
+                .node("replica", new FakeRedis("replica", 6380), "master")
+                .node("chained", new FakeRedis("chained", 6381), "replica")
+                .node("sentinel", new FakeRedis("sentinel", 26379), "master")
+                .build();
+
+        topology.start();
+        assertTrue(topology.isActive());
+        assertThat(events.indexOf("start master"), lessThan(events.indexOf("start replica")));
+        assertThat(events.indexOf("start replica"), lessThan(events.indexOf("start chained")));
+        assertThat(events.indexOf("start master"), lessThan(events.indexOf("start sentinel")));
+
+        events.clear();
+        topology.stop();
+        assertThat(events, hasSize(4));
+        assertThat(events.indexOf("stop chained"), lessThan(events.indexOf("stop replica")));
+        assertThat(events.indexOf("stop replica"), lessThan(events.indexOf("stop master")));
+        assertThat(events.indexOf("stop sentinel"), lessThan(events.indexOf("stop master")));
+        assertThat(topology.ports(), contains(6379, 6380, 6381, 26379));
+    }
+
+    @Test(timeout = 5000L)
+    public void independentNodesShouldStartInParallel() {
+        // Each node only returns once both are starting
+        final CountDownLatch bothStarting = new CountDownLatch(2);
+        Topology topology = new Topology.Builder()
+                .node("first", new BlockingRedis(bothStarting))
+                .node("second", new BlockingRedis(bothStarting))
+                .build();
+
+        topology.start();
+
+        assertTrue(topology.isActive());
+    }
+
+    @Test
+    public void failedStartShouldStopStartedNodes() {
+        Topology topology = new Topology.Builder()
+                .node("master", new FakeRedis("master", 6379))
+                .node("broken", new FakeRedis("broken", 6380) {
+                    @Override
+                    public void start() {
+                        throw new EmbeddedRedisException("bind failure");
+                    }
+                }, "master")
+                .node("replica", new FakeRedis("replica", 6381), "broken")
+                .build();
+
+        try {
+            topology.start();
+            fail("The start should have failed");
+        } catch (EmbeddedRedisException e) {
+            assertThat(e.getMessage(), containsString("broken"));
+        }
+
+        assertThat(events, contains("start master", "stop master"));
+    }
+
+    @Test
+    public void stopShouldReachNodesThatAreNotActive() {
+        // Like a cluster with a dead node, whose other nodes still run
+        Topology topology = new Topology.Builder()
+                .node("cluster", new FakeRedis("cluster", 7000) {
+                    @Override
+                    public boolean isActive() {
+                        return false;
+                    }
+
+                    @Override
+                    public void stop() {
+                        events.add("stop cluster");
+                    }
+                })
+                .build();
+
+        topology.stop();
+
+        assertThat(events, contains("stop cluster"));
+    }
+
+    @Test
+    public void dependenciesShouldBeDeclaredFirst() {
+        try {
+            new Topology.Builder()
+                    .node("replica", new FakeRedis("replica", 6380), "master")
+                    .node("master", new FakeRedis("master", 6379));
+            fail("A dependency on a node declared later should be rejected");
+        } catch (RedisBuildingException e) {
+            assertThat(e.getMessage(), containsString("master"));
+        }
+    }
+
+    @Test(expected = RedisBuildingException.class)
+    public void namesShouldBeUnique() {
+        new Topology.Builder()
+                .node("master", new FakeRedis("master", 6379))
+                .node("master", new FakeRedis("master", 6380));
+    }
+
+    @Test
+    public void replicasAndSentinelsShouldFollowAMasterThatMovedPort() throws Exception {
+        RedisServer.Builder masterBuilder = new RedisServer.Builder()
+                .port(new PredefinedPortProvider(Arrays.asList(6390, 6391)));
+        Topology topology = new Topology.Builder()
+                .server("master", masterBuilder)
+                .replica("replica", "master", new RedisServer.Builder().port(6392))
+                .sentinel("sentinel", new RedisSentinel.Builder().port(26390), "master")
+                .build();
+
+        // The port the master was built with is taken by the time it starts
+        try (ServerSocket socket = new ServerSocket(6390)) {
+            assertTrue(socket.isBound());
+            topology.start();
+        }
+        try {
+            assertThat(topology.get("master").ports(), contains(6391));
+            try (Jedis replica = new Jedis("127.0.0.1", 6392);
+                 Jedis sentinel = new Jedis("127.0.0.1", 26390)) {
+                assertThat(replica.info("replication"), containsString("master_port:6391"));
+                assertThat(sentinel.sentinelGetMasterAddrByName("master"), contains("127.0.0.1", "6391"));
+            }
+        } finally {
+            topology.stop();
+        }
+    }
+
+    private class FakeRedis implements Redis {
+        private final String name;
+        private final int port;
+        private volatile boolean active;
+
+        FakeRedis(String name, int port) {
+            this.name = name;
+            this.port = port;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void start() {
+            events.add("start " + name);
+            active = true;
+        }
+
+        @Override
+        public void stop() {
+            if (active) {
+                events.add("stop " + name);
+            }
+            active = false;
+        }
+
+        @Override
+        public List<Integer> ports() {
+            return Collections.singletonList(port);
+        }
+
+        @Override
+        public InputStream errors() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+
+    private class BlockingRedis extends FakeRedis {
+        private final CountDownLatch latch;
+
+        BlockingRedis(CountDownLatch latch) {
+            super("blocking", 0);
+            this.latch = latch;
+        }
+
+        @Override
+        public void start() {
+            latch.countDown();
+            try {
+                if (!latch.await(2, TimeUnit.SECONDS)) {
+                    throw new EmbeddedRedisException("Nodes were started one after the other");
+                }
+            } catch (InterruptedException e) {
+                throw new EmbeddedRedisException(e.getMessage(), e);
+            }
+            super.start();
+        }
+    }
+}
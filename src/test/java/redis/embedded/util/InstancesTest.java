@@ -0,0 +1,73 @@
+package redis.embedded.util;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import redis.embedded.Redis;
+import redis.embedded.RedisServer;
+import redis.embedded.StopPolicy;
+import redis.embedded.exceptions.EmbeddedRedisException;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class InstancesTest {
+
+    @Test
+    public void shouldStopInstancesAtTheSameTime() {
+        final CountDownLatch stopping = new CountDownLatch(3);
+        Answer<Void> awaitOthers = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                stopping.countDown();
+                if (!stopping.await(5, TimeUnit.SECONDS)) {
+                    throw new EmbeddedRedisException("Instances stopped one after the other");
+                }
+                return null;
+            }
+        };
+        Redis first = mock(Redis.class);
+        Redis second = mock(Redis.class);
+        Redis third = mock(Redis.class);
+        doAnswer(awaitOthers).when(first).stop();
+        doAnswer(awaitOthers).when(second).stop();
+        doAnswer(awaitOthers).when(third).stop();
+
+        Instances.stopAll(Arrays.asList(first, second, third), null);
+
+        verify(first).stop();
+        verify(second).stop();
+        verify(third).stop();
+    }
+
+    @Test
+    public void shouldStopEveryInstanceBeforeReportingFailure() {
+        Redis failing = mock(Redis.class);
+        Redis other = mock(Redis.class);
+        doThrow(new EmbeddedRedisException("stuck")).when(failing).stop();
+
+        try {
+            Instances.stopAll(Arrays.asList(failing, other), null);
+            fail("The failure should have been reported");
+        } catch (EmbeddedRedisException e) {
+            assertThat(e.getMessage(), equalTo("stuck"));
+        }
+        verify(other).stop();
+    }
+
+    @Test
+    public void shouldStopServersWithGivenPolicy() {
+        RedisServer server = mock(RedisServer.class);
+
+        Instances.stop(server, StopPolicy.FAST);
+
+        verify(server).stop(StopPolicy.FAST);
+        verify(server, never()).stop();
+    }
+}